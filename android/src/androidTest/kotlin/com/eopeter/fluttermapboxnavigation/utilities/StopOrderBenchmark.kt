@@ -0,0 +1,67 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.eopeter.fluttermapboxnavigation.models.Waypoint
+import kotlin.random.Random
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Times [StopOrderOptimizer] on the device it runs on, with
+ * `./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=com.eopeter.fluttermapboxnavigation.utilities.StopOrderBenchmark`.
+ *
+ * Every run orders the same pseudo-random stops, spread over about 20 km around a fixed point,
+ * so results can be compared between devices and versions. They are logged under the `StopOrderBenchmark` tag.
+ */
+@RunWith(AndroidJUnit4::class)
+class StopOrderBenchmark {
+
+    companion object {
+        private const val SEED = 42
+        private const val SPREAD_DEGREES = 0.1
+        private const val RUNS = 5
+
+        // well above the few tens of milliseconds expected for 200 stops, so only a regression fails
+        private const val MAX_MEDIAN_MILLIS = 500L
+    }
+
+    @Test
+    fun orders50Stops() = run(50)
+
+    @Test
+    fun orders100Stops() = run(100)
+
+    @Test
+    fun orders200Stops() = run(200)
+
+    /**
+     * Logs the median and the worst time in milliseconds of [RUNS] optimizations of [size] stops,
+     * and how much shorter the optimized order is than the generated one.
+     */
+    private fun run(size: Int) {
+        val random = Random(SEED + size)
+        val stops = List(size) {
+            Waypoint(
+                "",
+                13.4 + random.nextDouble(-SPREAD_DEGREES, SPREAD_DEGREES),
+                52.5 + random.nextDouble(-SPREAD_DEGREES, SPREAD_DEGREES),
+                false
+            )
+        }
+        val results = List(RUNS) { StopOrderOptimizer.solve(stops) }
+        val times = results.map { it.millis }.sorted()
+        val median = times[times.size / 2]
+        val result = results.first()
+        val saving = if (result.initialCost > 0) 1 - result.cost / result.initialCost else 0.0
+        Log.i(
+            "StopOrderBenchmark",
+            "stops=$size runs=$RUNS medianMillis=$median maxMillis=${times.last()} " +
+                "initialDistance=${result.initialCost} optimizedDistance=${result.cost} saving=$saving"
+        )
+
+        assertTrue("the optimized order is longer", result.cost <= result.initialCost)
+        assertTrue("median of $median ms", median <= MAX_MEDIAN_MILLIS)
+    }
+}
@@ -8,8 +8,27 @@ import android.os.Build
 import com.eopeter.fluttermapboxnavigation.activity.NavigationLauncher
 import com.eopeter.fluttermapboxnavigation.factory.EmbeddedNavigationViewFactory
 import com.eopeter.fluttermapboxnavigation.models.Waypoint
+import com.eopeter.fluttermapboxnavigation.utilities.EventReplayBuffer
+import com.eopeter.fluttermapboxnavigation.utilities.EventRouter
+import com.eopeter.fluttermapboxnavigation.utilities.HybridRouter
+import com.eopeter.fluttermapboxnavigation.utilities.LocalRouter
+import com.eopeter.fluttermapboxnavigation.utilities.MapboxRouter
+import com.eopeter.fluttermapboxnavigation.utilities.MilestoneEngine
+import com.eopeter.fluttermapboxnavigation.utilities.NetworkMonitor
+import com.eopeter.fluttermapboxnavigation.utilities.PluginRouter
+import com.eopeter.fluttermapboxnavigation.utilities.PluginUtilities
+import com.eopeter.fluttermapboxnavigation.utilities.RouteComparison
+import com.eopeter.fluttermapboxnavigation.utilities.RouteLegCache
+import com.eopeter.fluttermapboxnavigation.utilities.RouteProjector
+import com.eopeter.fluttermapboxnavigation.utilities.RouteRefreshScheduler
+import com.eopeter.fluttermapboxnavigation.utilities.RouteRegistry
+import com.eopeter.fluttermapboxnavigation.utilities.RouteRequestCoordinator
+import com.eopeter.fluttermapboxnavigation.utilities.RouteResponseCache
+import com.eopeter.fluttermapboxnavigation.utilities.SessionSnapshotStore
+import com.eopeter.fluttermapboxnavigation.utilities.StopOrderOptimizer
 import com.mapbox.api.directions.v5.DirectionsCriteria
 import com.mapbox.api.directions.v5.models.DirectionsRoute
+import com.mapbox.navigation.core.lifecycle.MapboxNavigationApp
 import io.flutter.embedding.engine.plugins.FlutterPlugin
 import io.flutter.embedding.engine.plugins.activity.ActivityAware
 import io.flutter.embedding.engine.plugins.activity.ActivityPluginBinding
@@ -20,6 +39,7 @@ import io.flutter.plugin.common.MethodChannel
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler
 import io.flutter.plugin.common.MethodChannel.Result
 import io.flutter.plugin.platform.PlatformViewRegistry
+import java.io.File
 
 /** FlutterMapboxNavigationPlugin */
 class FlutterMapboxNavigationPlugin : FlutterPlugin, MethodCallHandler,
@@ -41,13 +61,19 @@ class FlutterMapboxNavigationPlugin : FlutterPlugin, MethodCallHandler,
         platformViewRegistry = binding.platformViewRegistry
         binaryMessenger = messenger
 
+        if (cacheDirectory == null) {
+            cacheDirectory = binding.applicationContext.cacheDir
+            // spilled events of a previous process belong to a navigation that no longer exists
+            cacheDirectory?.listFiles { file -> file.name.startsWith(EventReplayBuffer.SPILL_FILE_PREFIX) }
+                ?.forEach { it.delete() }
+        }
+        NetworkMonitor.start(binding.applicationContext)
+
 
     }
 
     companion object {
 
-        var eventSink: EventChannel.EventSink? = null
-
         var PERMISSION_REQUEST_CODE: Int = 367
 
         lateinit var routes: List<DirectionsRoute>
@@ -67,6 +93,27 @@ class FlutterMapboxNavigationPlugin : FlutterPlugin, MethodCallHandler,
         var navigationVoiceUnits = DirectionsCriteria.METRIC
         var voiceInstructionsEnabled = true
         var bannerInstructionsEnabled = true
+        val eventRouter = EventRouter()
+        val routeLegCache = RouteLegCache()
+        val routeRegistry = RouteRegistry()
+        var routeCache: RouteResponseCache.Config? = null
+        val routeResponseCache = RouteResponseCache()
+        var routeRequestDebounceMillis = 0L
+        val routeRequests = RouteRequestCoordinator()
+        var localRouter: LocalRouter.Config? = null
+        var hybridRouter: HybridRouter.Config? = null
+        val router: PluginRouter
+            get() = when {
+                localRouter != null -> LocalRouter
+                hybridRouter != null -> HybridRouter
+                else -> MapboxRouter
+            }
+        val routeComparison = RouteComparison()
+        var enableRefresh = false
+        val routeRefresh = RouteRefreshScheduler()
+        val routeProjector = RouteProjector()
+        var sessionResume: SessionSnapshotStore.Config? = null
+        var cacheDirectory: File? = null
         var zoom = 15.0
         var bearing = 0.0
         var tilt = 0.0
@@ -76,6 +123,37 @@ class FlutterMapboxNavigationPlugin : FlutterPlugin, MethodCallHandler,
         var binaryMessenger: BinaryMessenger? = null
 
         var viewId = "FlutterMapboxNavigationView"
+
+        /**
+         * Applies the options of [arguments] that act on the MapboxNavigation shared by the full screen
+         * navigation and every embedded view, so the last ones set apply to all of them: `routeCache`,
+         * `routeRequestDebounceMillis`, `localRouter`, `hybridRouter` and `enableRefresh`. Options that are
+         * not in [arguments] are left as they are. The options of one view only go to its
+         * [EventRouter.Route], see [EventRouter.Route.configure].
+         */
+        fun configureSharedOptions(arguments: Map<*, *>) {
+            if (arguments.containsKey("routeCache")) {
+                routeCache = RouteResponseCache.Config.fromMap(arguments["routeCache"] as? Map<*, *>)
+            }
+
+            val debounce = arguments["routeRequestDebounceMillis"] as? Int
+            if (debounce != null) {
+                routeRequestDebounceMillis = debounce.coerceAtLeast(0).toLong()
+            }
+
+            if (arguments.containsKey("localRouter")) {
+                localRouter = LocalRouter.Config.fromMap(arguments["localRouter"] as? Map<*, *>)
+            }
+
+            if (arguments.containsKey("hybridRouter")) {
+                hybridRouter = HybridRouter.Config.fromMap(arguments["hybridRouter"] as? Map<*, *>)
+            }
+
+            val refresh = arguments["enableRefresh"] as? Boolean
+            if (refresh != null) {
+                enableRefresh = refresh
+            }
+        }
     }
 
     override fun onMethodCall(call: MethodCall, result: Result) {
@@ -89,6 +167,63 @@ class FlutterMapboxNavigationPlugin : FlutterPlugin, MethodCallHandler,
             "getDurationRemaining" -> {
                 result.success(durationRemaining)
             }
+            "getEventPipelineStats" -> {
+                result.success(eventRouter.global.pipeline?.stats())
+            }
+            "getRouteCacheStats" -> {
+                result.success(routeResponseCache.stats())
+            }
+            "getRouteRequestStats" -> {
+                result.success(routeRequests.stats())
+            }
+            "getRouteRefreshStats" -> {
+                result.success(routeRefresh.stats())
+            }
+            "projectOnRoute" -> {
+                result.success(routeProjector.project(call.arguments as? Map<*, *>))
+            }
+            "compareRoutes" -> {
+                val navigation = MapboxNavigationApp.current()
+                if (navigation == null) {
+                    result.error("NO_NAVIGATION", "compareRoutes needs a navigation view to be created", null)
+                } else {
+                    routeComparison.compare(
+                        this,
+                        navigation,
+                        call.arguments as? Map<*, *>,
+                        navigationLanguage,
+                        navigationVoiceUnits
+                    ) { result.success(it) }
+                }
+            }
+            "clearRouteCache" -> {
+                routeResponseCache.clear()
+                result.success(true)
+            }
+            "getRouterStats" -> {
+                result.success(HybridRouter.stats())
+            }
+            "setMilestones" -> {
+                val arguments = call.arguments as? Map<*, *>
+                val global = eventRouter.global
+                global.milestones = MilestoneEngine.Milestone.listFromArguments(arguments?.get("milestones") as? List<*>)
+                result.success(global.milestones.size)
+            }
+            "getRoute" -> {
+                result.success(routeRegistry.routeJson(call.arguments as? Map<*, *>))
+            }
+            "getRouteLegs" -> {
+                result.success(routeRegistry.legsPage(call.arguments as? Map<*, *>))
+            }
+            "getRouteSteps" -> {
+                result.success(routeRegistry.stepsPage(call.arguments as? Map<*, *>))
+            }
+            "getRouteGeometry" -> {
+                result.success(routeRegistry.geometryPage(call.arguments as? Map<*, *>))
+            }
+            "getSimplifiedRouteGeometry" -> {
+                result.success(routeRegistry.simplifiedGeometry(call.arguments as? Map<*, *>))
+            }
             "startFreeDrive" -> {
                 enableFreeDriveMode = true
                 checkPermissionAndBeginNavigation(call)
@@ -191,6 +326,13 @@ class FlutterMapboxNavigationPlugin : FlutterPlugin, MethodCallHandler,
             }
         }
 
+        eventRouter.global.configure(arguments)
+        arguments?.let { configureSharedOptions(it) }
+
+        if (arguments?.containsKey("sessionResume") == true) {
+            sessionResume = SessionSnapshotStore.Config.fromMap(arguments["sessionResume"] as? Map<*, *>)
+        }
+
         mapStyleUrlDay = arguments?.get("mapStyleUrlDay") as? String
         mapStyleUrlNight = arguments?.get("mapStyleUrlNight") as? String
 
@@ -200,6 +342,7 @@ class FlutterMapboxNavigationPlugin : FlutterPlugin, MethodCallHandler,
         }
 
         wayPoints.clear()
+        eventRouter.global.clearReplay()
 
         if (enableFreeDriveMode) {
             checkPermissionAndBeginNavigation(wayPoints)
@@ -215,6 +358,11 @@ class FlutterMapboxNavigationPlugin : FlutterPlugin, MethodCallHandler,
             val isSilent = point["IsSilent"] as Boolean
             wayPoints.add(Waypoint(name, longitude, latitude, isSilent))
         }
+        if (arguments?.get("isOptimized") == true) {
+            val ordered = StopOrderOptimizer.optimize(wayPoints, PluginUtilities.durationMatrix(arguments?.get("durationMatrix")))
+            wayPoints.clear()
+            wayPoints.addAll(ordered)
+        }
         checkPermissionAndBeginNavigation(wayPoints)
     }
 
@@ -246,29 +394,33 @@ class FlutterMapboxNavigationPlugin : FlutterPlugin, MethodCallHandler,
         val arguments = call.arguments as? Map<String, Any>
         val points = arguments?.get("wayPoints") as HashMap<Int, Any>
 
-        for (item in points) {
+        // only the new stops, in order; the activity inserts them after the current position
+        val stops = mutableListOf<Waypoint>()
+        for (item in points.entries.sortedBy { it.key }) {
             val point = item.value as HashMap<*, *>
             val name = point["Name"] as String
             val latitude = point["Latitude"] as Double
             val longitude = point["Longitude"] as Double
             val isSilent = point["IsSilent"] as Boolean
-            wayPoints.add(Waypoint(name, latitude, longitude, isSilent))
+            stops.add(Waypoint(name, longitude, latitude, isSilent))
         }
-        NavigationLauncher.addWayPoints(currentActivity, wayPoints)
+        NavigationLauncher.addWayPoints(currentActivity, stops)
+        result.success(true)
     }
 
     override fun onListen(args: Any?, events: EventChannel.EventSink?) {
-        eventSink = events
+        eventRouter.global.subscribe(this, events)
     }
 
     override fun onCancel(args: Any?) {
-        eventSink = null
+        eventRouter.global.unsubscribe(this)
     }
 
     override fun onDetachedFromEngine(binding: FlutterPlugin.FlutterPluginBinding) {
         currentActivity = null
         channel.setMethodCallHandler(null)
         progressEventChannel.setStreamHandler(null)
+        eventRouter.global.unsubscribe(this)
     }
 
     override fun onDetachedFromActivity() {
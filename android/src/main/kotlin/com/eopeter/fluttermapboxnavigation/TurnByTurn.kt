@@ -10,12 +10,18 @@ import android.util.Log
 import androidx.lifecycle.LifecycleOwner
 import com.eopeter.fluttermapboxnavigation.databinding.NavigationActivityBinding
 import com.eopeter.fluttermapboxnavigation.models.MapBoxEvents
+import com.eopeter.fluttermapboxnavigation.models.MapBoxRouteBuiltPayload
 import com.eopeter.fluttermapboxnavigation.models.MapBoxRouteProgressEvent
 import com.eopeter.fluttermapboxnavigation.models.Waypoint
 import com.eopeter.fluttermapboxnavigation.models.WaypointSet
+import com.eopeter.fluttermapboxnavigation.utilities.CorridorPoiEngine
 import com.eopeter.fluttermapboxnavigation.utilities.CustomInfoPanelEndNavButtonBinder
+import com.eopeter.fluttermapboxnavigation.utilities.EventRouter
+import com.eopeter.fluttermapboxnavigation.utilities.HybridRouter
+import com.eopeter.fluttermapboxnavigation.utilities.MilestoneEngine
 import com.eopeter.fluttermapboxnavigation.utilities.PluginUtilities
-import com.google.gson.Gson
+import com.eopeter.fluttermapboxnavigation.utilities.RouteChunker
+import com.eopeter.fluttermapboxnavigation.utilities.TripMetricsAggregator
 import com.mapbox.maps.Style
 import com.mapbox.api.directions.v5.DirectionsCriteria
 import com.mapbox.api.directions.v5.models.RouteOptions
@@ -96,6 +102,63 @@ open class TurnByTurn(
             "getDurationRemaining" -> {
                 result.success(this.durationRemaining)
             }
+            "getEventPipelineStats" -> {
+                result.success(this.eventRoute.pipeline?.stats())
+            }
+            "getRouteCacheStats" -> {
+                result.success(FlutterMapboxNavigationPlugin.routeResponseCache.stats())
+            }
+            "getRouteRequestStats" -> {
+                result.success(FlutterMapboxNavigationPlugin.routeRequests.stats())
+            }
+            "getRouteRefreshStats" -> {
+                result.success(FlutterMapboxNavigationPlugin.routeRefresh.stats())
+            }
+            "projectOnRoute" -> {
+                result.success(FlutterMapboxNavigationPlugin.routeProjector.project(methodCall.arguments as? Map<*, *>))
+            }
+            "compareRoutes" -> {
+                val navigation = MapboxNavigationApp.current()
+                if (navigation == null) {
+                    result.error("NO_NAVIGATION", "compareRoutes needs the navigation to be attached", null)
+                } else {
+                    FlutterMapboxNavigationPlugin.routeComparison.compare(
+                        this,
+                        navigation,
+                        methodCall.arguments as? Map<*, *>,
+                        this.navigationLanguage,
+                        this.navigationVoiceUnits
+                    ) { result.success(it) }
+                }
+            }
+            "clearRouteCache" -> {
+                FlutterMapboxNavigationPlugin.routeResponseCache.clear()
+                result.success(true)
+            }
+            "getRouterStats" -> {
+                result.success(HybridRouter.stats())
+            }
+            "setMilestones" -> {
+                val arguments = methodCall.arguments as? Map<*, *>
+                this.eventRoute.milestones =
+                    MilestoneEngine.Milestone.listFromArguments(arguments?.get("milestones") as? List<*>)
+                result.success(this.eventRoute.milestones.size)
+            }
+            "getRoute" -> {
+                result.success(FlutterMapboxNavigationPlugin.routeRegistry.routeJson(methodCall.arguments as? Map<*, *>))
+            }
+            "getRouteLegs" -> {
+                result.success(FlutterMapboxNavigationPlugin.routeRegistry.legsPage(methodCall.arguments as? Map<*, *>))
+            }
+            "getRouteSteps" -> {
+                result.success(FlutterMapboxNavigationPlugin.routeRegistry.stepsPage(methodCall.arguments as? Map<*, *>))
+            }
+            "getRouteGeometry" -> {
+                result.success(FlutterMapboxNavigationPlugin.routeRegistry.geometryPage(methodCall.arguments as? Map<*, *>))
+            }
+            "getSimplifiedRouteGeometry" -> {
+                result.success(FlutterMapboxNavigationPlugin.routeRegistry.simplifiedGeometry(methodCall.arguments as? Map<*, *>))
+            }
             else -> result.notImplemented()
         }
     }
@@ -114,12 +177,17 @@ open class TurnByTurn(
             val isSilent = point["IsSilent"] as Boolean
             this.addedWaypoints.add(Waypoint(Point.fromLngLat(longitude, latitude),isSilent))
         }
+        if (this.isOptimized) {
+            this.addedWaypoints.optimize(PluginUtilities.durationMatrix(arguments?.get("durationMatrix")))
+        }
         this.getRoute(this.context)
         result.success(true)
     }
 
     private fun getRoute(context: Context) {
-        MapboxNavigationApp.current()!!.requestRoutes(
+        FlutterMapboxNavigationPlugin.routeRequests.request(
+            this,
+            MapboxNavigationApp.current()!!,
             routeOptions = RouteOptions
                 .builder()
                 .applyDefaultNavigationOptions(navigationMode)
@@ -140,9 +208,16 @@ open class TurnByTurn(
                     routerOrigin: RouterOrigin
                 ) {
                     this@TurnByTurn.currentRoutes = routes
+                    val registry = FlutterMapboxNavigationPlugin.routeRegistry
+                    registry.register(this@TurnByTurn, routes)
                     PluginUtilities.sendEvent(
+                        this@TurnByTurn.eventRoute,
                         MapBoxEvents.ROUTE_BUILT,
-                        Gson().toJson(routes.map { it.directionsRoute.toJson() })
+                        if (this@TurnByTurn.eventRoute.routeBuiltPayload == MapBoxRouteBuiltPayload.HANDLES) {
+                            registry.handles(this@TurnByTurn)
+                        } else {
+                            routes.map { it.directionsRoute.toJson() }
+                        }
                     )
                     this@TurnByTurn.binding.navigationView.api.routeReplayEnabled(
                         this@TurnByTurn.simulateRoute
@@ -150,7 +225,7 @@ open class TurnByTurn(
                     this@TurnByTurn.binding.navigationView.api.startRoutePreview(routes)
                     this@TurnByTurn.binding.navigationView.customizeViewBinders {
                         this.infoPanelEndNavigationButtonBinder =
-                            CustomInfoPanelEndNavButtonBinder(activity)
+                            CustomInfoPanelEndNavButtonBinder(activity, this@TurnByTurn.eventRoute)
                     }
                 }
 
@@ -158,24 +233,25 @@ open class TurnByTurn(
                     reasons: List<RouterFailure>,
                     routeOptions: RouteOptions
                 ) {
-                    PluginUtilities.sendEvent(MapBoxEvents.ROUTE_BUILD_FAILED)
+                    PluginUtilities.sendEvent(this@TurnByTurn.eventRoute, MapBoxEvents.ROUTE_BUILD_FAILED)
                 }
 
                 override fun onCanceled(
                     routeOptions: RouteOptions,
                     routerOrigin: RouterOrigin
                 ) {
-                    PluginUtilities.sendEvent(MapBoxEvents.ROUTE_BUILD_CANCELLED)
+                    PluginUtilities.sendEvent(this@TurnByTurn.eventRoute, MapBoxEvents.ROUTE_BUILD_CANCELLED)
                 }
             }
         )
     }
 
     private fun clearRoute(methodCall: MethodCall, result: MethodChannel.Result) {
+        FlutterMapboxNavigationPlugin.routeRequests.cancel(this)
         this.currentRoutes = null
         val navigation = MapboxNavigationApp.current()
         navigation?.stopTripSession()
-        PluginUtilities.sendEvent(MapBoxEvents.NAVIGATION_CANCELLED)
+        PluginUtilities.sendEvent(this.eventRoute, MapBoxEvents.NAVIGATION_CANCELLED)
     }
 
     private fun startFreeDrive() {
@@ -210,17 +286,19 @@ open class TurnByTurn(
     @SuppressLint("MissingPermission")
     private fun startNavigation() {
         if (this.currentRoutes == null) {
-            PluginUtilities.sendEvent(MapBoxEvents.NAVIGATION_CANCELLED)
+            PluginUtilities.sendEvent(this.eventRoute, MapBoxEvents.NAVIGATION_CANCELLED)
             return
         }
         this.binding.navigationView.api.startActiveGuidance(this.currentRoutes!!)
-        PluginUtilities.sendEvent(MapBoxEvents.NAVIGATION_RUNNING)
+        this.tripMetrics.reset()
+        this.milestones.reset()
+        PluginUtilities.sendEvent(this.eventRoute, MapBoxEvents.NAVIGATION_RUNNING)
     }
 
     private fun finishNavigation(isOffRouted: Boolean = false) {
         MapboxNavigationApp.current()!!.stopTripSession()
         this.isNavigationCanceled = true
-        PluginUtilities.sendEvent(MapBoxEvents.NAVIGATION_CANCELLED)
+        PluginUtilities.sendEvent(this.eventRoute, MapBoxEvents.NAVIGATION_CANCELLED)
     }
 
     private fun setOptions(arguments: Map<*, *>) {
@@ -326,6 +404,14 @@ open class TurnByTurn(
         if (onMapTap != null) {
             this.enableOnMapTapCallback = onMapTap
         }
+
+        this.eventRoute.configure(arguments)
+        FlutterMapboxNavigationPlugin.configureSharedOptions(arguments)
+
+        val refresh = arguments["enableRefresh"] as? Boolean
+        if (refresh != null) {
+            this.enableRefresh = refresh
+        }
     }
 
     open fun registerObservers() {
@@ -337,6 +423,7 @@ open class TurnByTurn(
         MapboxNavigationApp.current()?.registerLocationObserver(this.locationObserver)
         MapboxNavigationApp.current()?.registerRouteProgressObserver(this.routeProgressObserver)
         MapboxNavigationApp.current()?.registerArrivalObserver(this.arrivalObserver)
+        MapboxNavigationApp.current()?.let { FlutterMapboxNavigationPlugin.routeRefresh.attach(this, it, this.context) }
     }
 
     open fun unregisterObservers() {
@@ -348,15 +435,16 @@ open class TurnByTurn(
         MapboxNavigationApp.current()?.unregisterLocationObserver(this.locationObserver)
         MapboxNavigationApp.current()?.unregisterRouteProgressObserver(this.routeProgressObserver)
         MapboxNavigationApp.current()?.unregisterArrivalObserver(this.arrivalObserver)
+        FlutterMapboxNavigationPlugin.routeRefresh.detach(this)
     }
 
     // Flutter stream listener delegate methods
     override fun onListen(arguments: Any?, events: EventChannel.EventSink?) {
-        FlutterMapboxNavigationPlugin.eventSink = events
+        this.eventRoute.subscribe(this, events)
     }
 
     override fun onCancel(arguments: Any?) {
-        FlutterMapboxNavigationPlugin.eventSink = null
+        this.eventRoute.unsubscribe(this)
     }
 
     private val context: Context = ctx
@@ -364,6 +452,11 @@ open class TurnByTurn(
     private val token: String = accessToken
     open var methodChannel: MethodChannel? = null
     open var eventChannel: EventChannel? = null
+
+    /**
+     * Events of this view only go to the subscribers of its own [eventChannel].
+     */
+    val eventRoute: EventRouter.Route = FlutterMapboxNavigationPlugin.eventRouter.openRoute()
     private var lastLocation: Location? = null
 
     /**
@@ -402,6 +495,18 @@ open class TurnByTurn(
     private var currentRoutes: List<NavigationRoute>? = null
     private var isNavigationCanceled = false
 
+    private val tripMetrics = TripMetricsAggregator(this.eventRoute) { summary ->
+        PluginUtilities.sendEvent(this.eventRoute, MapBoxEvents.TRIP_METRICS, summary)
+    }
+
+    private val corridorPois = CorridorPoiEngine(this.eventRoute) { update ->
+        PluginUtilities.sendEvent(this.eventRoute, MapBoxEvents.POI_CORRIDOR, update)
+    }
+
+    private val milestones = MilestoneEngine({ this.eventRoute.milestones }) { milestone ->
+        PluginUtilities.sendEvent(this.eventRoute, MapBoxEvents.MILESTONE_EVENT, milestone.toString())
+    }
+
     /**
      * Bindings to the example layout.
      */
@@ -416,6 +521,7 @@ open class TurnByTurn(
     private val locationObserver = object : LocationObserver {
         override fun onNewLocationMatcherResult(locationMatcherResult: LocationMatcherResult) {
             this@TurnByTurn.lastLocation = locationMatcherResult.enhancedLocation
+            this@TurnByTurn.tripMetrics.onLocation(locationMatcherResult.enhancedLocation)
         }
 
         override fun onNewRawLocation(rawLocation: Location) {
@@ -424,22 +530,25 @@ open class TurnByTurn(
     }
 
     private val bannerInstructionObserver = BannerInstructionsObserver { bannerInstructions ->
-        PluginUtilities.sendEvent(MapBoxEvents.BANNER_INSTRUCTION, bannerInstructions.primary().text())
+        PluginUtilities.sendEvent(this.eventRoute, MapBoxEvents.BANNER_INSTRUCTION, bannerInstructions.primary().text())
     }
 
     private val voiceInstructionObserver = VoiceInstructionsObserver { voiceInstructions ->
-        PluginUtilities.sendEvent(MapBoxEvents.SPEECH_ANNOUNCEMENT, voiceInstructions.announcement().toString())
+        PluginUtilities.sendEvent(this.eventRoute, MapBoxEvents.SPEECH_ANNOUNCEMENT, voiceInstructions.announcement().toString())
     }
 
     private val offRouteObserver = OffRouteObserver { offRoute ->
         if (offRoute) {
-            PluginUtilities.sendEvent(MapBoxEvents.USER_OFF_ROUTE)
+            PluginUtilities.sendEvent(this.eventRoute, MapBoxEvents.USER_OFF_ROUTE)
         }
     }
 
     private val routesObserver = RoutesObserver { routeUpdateResult ->
+        FlutterMapboxNavigationPlugin.routeLegCache.retain(routeUpdateResult.navigationRoutes.map { it.id })
+        FlutterMapboxNavigationPlugin.routeProjector.onRoutesChanged(routeUpdateResult.navigationRoutes)
+        MapboxNavigationApp.current()?.let { RouteChunker.onRoutesChanged(it, routeUpdateResult.navigationRoutes) }
         if (routeUpdateResult.navigationRoutes.isNotEmpty()) {
-            PluginUtilities.sendEvent(MapBoxEvents.REROUTE_ALONG);
+            PluginUtilities.sendEvent(this.eventRoute, MapBoxEvents.REROUTE_ALONG);
         }
     }
 
@@ -455,7 +564,12 @@ open class TurnByTurn(
                 this.durationRemaining = routeProgress.durationRemaining
 
                 val progressEvent = MapBoxRouteProgressEvent(routeProgress)
-                PluginUtilities.sendEvent(progressEvent)
+                PluginUtilities.sendEvent(this.eventRoute, progressEvent)
+                this.tripMetrics.onRouteProgress(routeProgress)
+                FlutterMapboxNavigationPlugin.routeRefresh.onRouteProgress(routeProgress)
+                FlutterMapboxNavigationPlugin.routeProjector.onRouteProgress(routeProgress)
+                this.corridorPois.onRouteProgress(routeProgress)
+                this.milestones.onRouteProgress(routeProgress)
             } catch (_: java.lang.Exception) {
                 // handle this error
             }
@@ -464,7 +578,8 @@ open class TurnByTurn(
 
     private val arrivalObserver: ArrivalObserver = object : ArrivalObserver {
         override fun onFinalDestinationArrival(routeProgress: RouteProgress) {
-            PluginUtilities.sendEvent(MapBoxEvents.ON_ARRIVAL)
+            this@TurnByTurn.tripMetrics.flush()
+            PluginUtilities.sendEvent(this@TurnByTurn.eventRoute, MapBoxEvents.ON_ARRIVAL)
         }
 
         override fun onNextRouteLegStart(routeLegProgress: RouteLegProgress) {
@@ -12,20 +12,27 @@ import com.eopeter.fluttermapboxnavigation.FlutterMapboxNavigationPlugin
 import com.eopeter.fluttermapboxnavigation.R
 import com.eopeter.fluttermapboxnavigation.databinding.NavigationActivityBinding
 import com.eopeter.fluttermapboxnavigation.models.MapBoxEvents
+import com.eopeter.fluttermapboxnavigation.models.MapBoxRouteBuiltPayload
 import com.eopeter.fluttermapboxnavigation.models.MapBoxRouteProgressEvent
 import com.eopeter.fluttermapboxnavigation.models.Waypoint
 import com.eopeter.fluttermapboxnavigation.models.WaypointSet
+import com.eopeter.fluttermapboxnavigation.utilities.CorridorPoiEngine
 import com.eopeter.fluttermapboxnavigation.utilities.CustomInfoPanelEndNavButtonBinder
 import com.eopeter.fluttermapboxnavigation.utilities.IconLoader
 import com.eopeter.fluttermapboxnavigation.utilities.MarkerManager
+import com.eopeter.fluttermapboxnavigation.utilities.MilestoneEngine
 import com.eopeter.fluttermapboxnavigation.utilities.PluginUtilities
+import com.eopeter.fluttermapboxnavigation.utilities.RouteChunker
 import com.eopeter.fluttermapboxnavigation.utilities.PluginUtilities.Companion.sendEvent
+import com.eopeter.fluttermapboxnavigation.utilities.SessionSnapshotStore
+import com.eopeter.fluttermapboxnavigation.utilities.TripMetricsAggregator
+import com.eopeter.fluttermapboxnavigation.utilities.WaypointInserter
 import android.os.Handler
 import android.os.Looper
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
-import com.google.gson.Gson
+import java.io.File
 import com.mapbox.api.directions.v5.models.DirectionsRoute
 import com.mapbox.api.directions.v5.models.RouteOptions
 import com.mapbox.geojson.Point
@@ -50,10 +57,13 @@ import com.mapbox.navigation.core.trip.session.*
 import com.mapbox.navigation.dropin.map.MapViewObserver
 import com.mapbox.navigation.dropin.navigationview.NavigationViewListener
 import com.mapbox.navigation.utils.internal.ifNonNull
-import org.json.JSONObject
 
 class NavigationActivity : AppCompatActivity() {
 
+    companion object {
+        private const val KEY_SESSION_ID = "sessionId"
+    }
+
     private lateinit var binding: NavigationActivityBinding
     private var finishBroadcastReceiver: BroadcastReceiver? = null
     private var addWayPointsBroadcastReceiver: BroadcastReceiver? = null
@@ -62,8 +72,25 @@ class NavigationActivity : AppCompatActivity() {
     private var canResetRoute: Boolean = false
     private var accessToken: String? = null
     private var lastLocation: Location? = null
+    private var lastRouteProgress: RouteProgress? = null
     private var isNavigationInProgress = false
 
+    private val tripMetrics = TripMetricsAggregator(FlutterMapboxNavigationPlugin.eventRouter.global) { summary ->
+        sendEvent(MapBoxEvents.TRIP_METRICS, summary)
+    }
+
+    private val corridorPois = CorridorPoiEngine(FlutterMapboxNavigationPlugin.eventRouter.global) { update ->
+        sendEvent(MapBoxEvents.POI_CORRIDOR, update)
+    }
+
+    private val milestones = MilestoneEngine({ FlutterMapboxNavigationPlugin.eventRouter.global.milestones }) { milestone ->
+        sendEvent(MapBoxEvents.MILESTONE_EVENT, milestone.toString())
+    }
+
+    private val sessionSnapshots by lazy {
+        SessionSnapshotStore(File(applicationContext.noBackupFilesDir, SessionSnapshotStore.DIRECTORY))
+    }
+
     private val addedWaypoints = WaypointSet()
     
     // Marker management
@@ -130,28 +157,15 @@ class NavigationActivity : AppCompatActivity() {
             registerLocationObserver(locationObserver)
             registerRouteProgressObserver(routeProgressObserver)
             registerArrivalObserver(arrivalObserver)
+            FlutterMapboxNavigationPlugin.routeRefresh.attach(this@NavigationActivity, this, this@NavigationActivity)
         }
 
         // Initialize BroadcastReceivers
         initReceivers()
 
         // Set map style and distance units
-        var styleUrlDay = FlutterMapboxNavigationPlugin.mapStyleUrlDay ?: Style.MAPBOX_STREETS
-        var styleUrlNight = FlutterMapboxNavigationPlugin.mapStyleUrlNight ?: Style.DARK
         binding.navigationView.customizeViewStyles {}
-        binding.navigationView.customizeViewOptions {
-            mapStyleUriDay = styleUrlDay
-            mapStyleUriNight = styleUrlNight
-            // Set distance units for UI display based on user preference
-            distanceFormatterOptions = com.mapbox.navigation.base.formatter.DistanceFormatterOptions.Builder(this@NavigationActivity)
-                .unitType(
-                    if (FlutterMapboxNavigationPlugin.navigationVoiceUnits == com.mapbox.api.directions.v5.DirectionsCriteria.IMPERIAL)
-                        com.mapbox.navigation.base.formatter.UnitType.IMPERIAL
-                    else
-                        com.mapbox.navigation.base.formatter.UnitType.METRIC
-                )
-                .build()
-        }
+        applyViewOptions()
         
         // Initialize marker manager when map style loads
         android.util.Log.w("NavigationActivity", "📍 Initializing IconLoader and MapViewObserver for markers")
@@ -196,11 +210,31 @@ class NavigationActivity : AppCompatActivity() {
         val p = intent.getSerializableExtra("waypoints") as? MutableList<Waypoint>
         if (p != null) points = p
         points.map { waypointSet.add(it) }
-        requestRoutes(waypointSet)
+
+        // recreated after the process was killed, or on a configuration change
+        val sessionId = savedInstanceState?.getString(KEY_SESSION_ID)
+        val liveRoutes = MapboxNavigationApp.current()?.getNavigationRoutes().orEmpty()
+        if (sessionId != null && liveRoutes.isNotEmpty()) {
+            // only the activity was recreated, guidance went on without it
+            FlutterMapboxNavigationPlugin.routeRegistry.register(this, liveRoutes)
+            sessionSnapshots.resume(sessionId, liveRoutes.first())
+            enterActiveGuidance()
+        } else if (sessionId != null) {
+            restoreSession(sessionId)
+        } else {
+            requestRoutes(waypointSet)
+        }
+    }
+
+    override fun onSaveInstanceState(outState: Bundle) {
+        super.onSaveInstanceState(outState)
+        sessionSnapshots.sessionId?.let { outState.putString(KEY_SESSION_ID, it) }
     }
 
     override fun onDestroy() {
         super.onDestroy()
+        FlutterMapboxNavigationPlugin.routeRegistry.release(this)
+        FlutterMapboxNavigationPlugin.routeRequests.cancel(this)
 
         // Unregister Map observers
         if (FlutterMapboxNavigationPlugin.longPressDestinationEnabled) {
@@ -221,6 +255,8 @@ class NavigationActivity : AppCompatActivity() {
             unregisterRouteProgressObserver(routeProgressObserver)
             unregisterArrivalObserver(arrivalObserver)
         }
+        FlutterMapboxNavigationPlugin.routeRefresh.detach(this)
+        if (isFinishing) sessionSnapshots.clear()
 
         // Unregister broadcast receivers safely
         try {
@@ -238,6 +274,24 @@ class NavigationActivity : AppCompatActivity() {
         pendingMarkerOperations.clear()
     }
 
+    private fun applyViewOptions() {
+        val styleUrlDay = FlutterMapboxNavigationPlugin.mapStyleUrlDay ?: Style.MAPBOX_STREETS
+        val styleUrlNight = FlutterMapboxNavigationPlugin.mapStyleUrlNight ?: Style.DARK
+        binding.navigationView.customizeViewOptions {
+            mapStyleUriDay = styleUrlDay
+            mapStyleUriNight = styleUrlNight
+            // Set distance units for UI display based on user preference
+            distanceFormatterOptions = com.mapbox.navigation.base.formatter.DistanceFormatterOptions.Builder(this@NavigationActivity)
+                .unitType(
+                    if (FlutterMapboxNavigationPlugin.navigationVoiceUnits == com.mapbox.api.directions.v5.DirectionsCriteria.IMPERIAL)
+                        com.mapbox.navigation.base.formatter.UnitType.IMPERIAL
+                    else
+                        com.mapbox.navigation.base.formatter.UnitType.METRIC
+                )
+                .build()
+        }
+    }
+
     private fun initReceivers() {
         finishBroadcastReceiver = object : BroadcastReceiver() {
             override fun onReceive(context: Context, intent: Intent) {
@@ -254,6 +308,7 @@ class NavigationActivity : AppCompatActivity() {
                         points.addAll(nextIndex, stops)
                     else
                         points.addAll(stops)
+                    insertStops(stops)
                 }
             }
         }
@@ -461,22 +516,28 @@ class NavigationActivity : AppCompatActivity() {
         }
     }
 
+    private fun routeOptions(waypointSet: WaypointSet): RouteOptions {
+        return RouteOptions.builder()
+            .applyDefaultNavigationOptions()
+            // Removed applyLanguageAndVoiceUnitOptions to manually control units
+            .coordinatesList(waypointSet.coordinatesList())
+            .waypointIndicesList(waypointSet.waypointsIndices())
+            .waypointNamesList(waypointSet.waypointsNames())
+            .language(FlutterMapboxNavigationPlugin.navigationLanguage)
+            .alternatives(FlutterMapboxNavigationPlugin.showAlternateRoutes)
+            .voiceUnits(FlutterMapboxNavigationPlugin.navigationVoiceUnits) // Explicitly set units from Flutter
+            .bannerInstructions(FlutterMapboxNavigationPlugin.bannerInstructionsEnabled)
+            .voiceInstructions(FlutterMapboxNavigationPlugin.voiceInstructionsEnabled)
+            .steps(true)
+            .build()
+    }
+
     private fun requestRoutes(waypointSet: WaypointSet) {
         sendEvent(MapBoxEvents.ROUTE_BUILDING)
-        MapboxNavigationApp.current()!!.requestRoutes(
-            routeOptions = RouteOptions.builder()
-                .applyDefaultNavigationOptions()
-                // Removed applyLanguageAndVoiceUnitOptions to manually control units
-                .coordinatesList(waypointSet.coordinatesList())
-                .waypointIndicesList(waypointSet.waypointsIndices())
-                .waypointNamesList(waypointSet.waypointsNames())
-                .language(FlutterMapboxNavigationPlugin.navigationLanguage)
-                .alternatives(FlutterMapboxNavigationPlugin.showAlternateRoutes)
-                .voiceUnits(FlutterMapboxNavigationPlugin.navigationVoiceUnits) // Explicitly set units from Flutter
-                .bannerInstructions(FlutterMapboxNavigationPlugin.bannerInstructionsEnabled)
-                .voiceInstructions(FlutterMapboxNavigationPlugin.voiceInstructionsEnabled)
-                .steps(true)
-                .build(),
+        FlutterMapboxNavigationPlugin.routeRequests.request(
+            this,
+            MapboxNavigationApp.current()!!,
+            routeOptions = routeOptions(waypointSet),
             callback = object : NavigationRouterCallback {
                 override fun onCanceled(routeOptions: RouteOptions, routerOrigin: RouterOrigin) {
                     sendEvent(MapBoxEvents.ROUTE_BUILD_CANCELLED)
@@ -487,34 +548,141 @@ class NavigationActivity : AppCompatActivity() {
                 }
 
                 override fun onRoutesReady(routes: List<NavigationRoute>, routerOrigin: RouterOrigin) {
-                    sendEvent(MapBoxEvents.ROUTE_BUILT, Gson().toJson(routes.map { it.directionsRoute.toJson() }))
-                    if (routes.isEmpty()) {
-                        sendEvent(MapBoxEvents.ROUTE_BUILD_NO_ROUTES_FOUND)
-                        return
-                    }
-                    binding.navigationView.api.routeReplayEnabled(FlutterMapboxNavigationPlugin.simulateRoute)
-                    binding.navigationView.api.startActiveGuidance(routes)
-                    
-                    // CRITICAL: Send navigation_running event to notify Flutter that navigation is ready
-                    android.util.Log.d("NavigationActivity", "🚀 Navigation started, sending NAVIGATION_RUNNING event")
-                    sendEvent(MapBoxEvents.NAVIGATION_RUNNING)
-                    android.util.Log.d("NavigationActivity", "✅ NAVIGATION_RUNNING event sent")
+                    sessionSnapshots.begin()
+                    startGuidance(routes)
                 }
             }
         )
     }
 
+    /**
+     * Starts active guidance on [routes] from the leg [legIndex] and checkpoints the session.
+     */
+    private fun startGuidance(routes: List<NavigationRoute>, legIndex: Int = 0) {
+        val registry = FlutterMapboxNavigationPlugin.routeRegistry
+        registry.register(this@NavigationActivity, routes)
+        if (FlutterMapboxNavigationPlugin.eventRouter.global.routeBuiltPayload == MapBoxRouteBuiltPayload.HANDLES) {
+            sendEvent(MapBoxEvents.ROUTE_BUILT, registry.handles(this@NavigationActivity))
+        } else {
+            sendEvent(MapBoxEvents.ROUTE_BUILT, routes.map { it.directionsRoute.toJson() })
+        }
+        if (routes.isEmpty()) {
+            sendEvent(MapBoxEvents.ROUTE_BUILD_NO_ROUTES_FOUND)
+            return
+        }
+        binding.navigationView.api.routeReplayEnabled(FlutterMapboxNavigationPlugin.simulateRoute)
+        if (legIndex > 0) {
+            // only MapboxNavigation starts routes past their first leg
+            MapboxNavigationApp.current()?.setNavigationRoutes(routes, legIndex)
+            enterActiveGuidance()
+        } else {
+            binding.navigationView.api.startActiveGuidance(routes)
+        }
+        sessionSnapshots.onRoutesChanged(routes)
+        tripMetrics.reset()
+        milestones.reset()
+
+        // CRITICAL: Send navigation_running event to notify Flutter that navigation is ready
+        android.util.Log.d("NavigationActivity", "🚀 Navigation started, sending NAVIGATION_RUNNING event")
+        sendEvent(MapBoxEvents.NAVIGATION_RUNNING)
+        android.util.Log.d("NavigationActivity", "✅ NAVIGATION_RUNNING event sent")
+    }
+
+    /**
+     * Moves the view to active guidance on the routes already set on MapboxNavigation, without setting them
+     * again.
+     */
+    private fun enterActiveGuidance() {
+        binding.navigationView.api.startActiveGuidance()
+        // the view doesn't report its state again when it already was in active guidance
+        isNavigationInProgress = true
+    }
+
+    /**
+     * Resumes guidance from the snapshot of [sessionId] without asking the router, as after the process
+     * was killed mid-trip, or requests the routes of the intent again when there is no usable snapshot.
+     */
+    private fun restoreSession(sessionId: String) {
+        sessionSnapshots.restore(sessionId) { session ->
+            if (isFinishing || isDestroyed) return@restore
+            if (session == null) {
+                requestRoutes(waypointSet)
+                return@restore
+            }
+            session.options.apply()
+            applyViewOptions()
+            sessionSnapshots.resume(session.id, session.route)
+            startGuidance(listOf(session.route), session.legIndex)
+        }
+    }
+
+    /**
+     * Adds [stops] to the trip being navigated, rerouting only the current leg with [WaypointInserter].
+     * Before guidance starts they are only kept in [points].
+     */
+    private fun insertStops(stops: List<Waypoint>) {
+        val navigation = MapboxNavigationApp.current() ?: return
+        val progress = lastRouteProgress ?: return
+        val location = lastLocation ?: return
+        if (!isNavigationInProgress) return
+
+        sendEvent(MapBoxEvents.ROUTE_BUILDING)
+        val callback = object : NavigationRouterCallback {
+            override fun onCanceled(routeOptions: RouteOptions, routerOrigin: RouterOrigin) {
+                sendEvent(MapBoxEvents.ROUTE_BUILD_CANCELLED)
+            }
+
+            override fun onFailure(reasons: List<RouterFailure>, routeOptions: RouteOptions) {
+                sendEvent(MapBoxEvents.ROUTE_BUILD_FAILED)
+            }
+
+            override fun onRoutesReady(routes: List<NavigationRoute>, routerOrigin: RouterOrigin) {
+                if (routes.isEmpty()) {
+                    sendEvent(MapBoxEvents.ROUTE_BUILD_NO_ROUTES_FOUND)
+                    return
+                }
+                val registry = FlutterMapboxNavigationPlugin.routeRegistry
+                registry.register(this@NavigationActivity, routes)
+                if (FlutterMapboxNavigationPlugin.eventRouter.global.routeBuiltPayload == MapBoxRouteBuiltPayload.HANDLES) {
+                    sendEvent(MapBoxEvents.ROUTE_BUILT, registry.handles(this@NavigationActivity))
+                } else {
+                    sendEvent(MapBoxEvents.ROUTE_BUILT, routes.map { it.directionsRoute.toJson() })
+                }
+                // keeps the trip session and its metrics, unlike starting guidance again
+                navigation.setNavigationRoutes(routes)
+            }
+        }
+        if (!WaypointInserter.insert(this, navigation, progress, location, stops, callback)) {
+            val waypointSet = WaypointSet()
+            waypointSet.add(Waypoint(Point.fromLngLat(location.longitude, location.latitude)))
+            // the route is on its last leg or unknown, so the stops go before its destination
+            stops.forEach { waypointSet.add(it) }
+            points.lastOrNull()?.let { waypointSet.add(it) }
+            // the same callback, so this trip session goes on as well
+            FlutterMapboxNavigationPlugin.routeRequests.request(this, navigation, routeOptions(waypointSet), callback)
+        }
+    }
+
     // Observers
     private val routeProgressObserver = RouteProgressObserver { routeProgress ->
+        lastRouteProgress = routeProgress
         val progressEvent = MapBoxRouteProgressEvent(routeProgress)
         FlutterMapboxNavigationPlugin.distanceRemaining = routeProgress.distanceRemaining
         FlutterMapboxNavigationPlugin.durationRemaining = routeProgress.durationRemaining
         sendEvent(progressEvent)
+        tripMetrics.onRouteProgress(routeProgress)
+        FlutterMapboxNavigationPlugin.routeRefresh.onRouteProgress(routeProgress)
+        FlutterMapboxNavigationPlugin.routeProjector.onRouteProgress(routeProgress)
+        corridorPois.onRouteProgress(routeProgress)
+        milestones.onRouteProgress(routeProgress)
+        sessionSnapshots.onRouteProgress(routeProgress)
     }
 
     private val arrivalObserver: ArrivalObserver = object : ArrivalObserver {
         override fun onFinalDestinationArrival(routeProgress: RouteProgress) {
             isNavigationInProgress = false
+            tripMetrics.flush()
+            sessionSnapshots.clear()
             sendEvent(MapBoxEvents.ON_ARRIVAL)
         }
         override fun onNextRouteLegStart(routeLegProgress: RouteLegProgress) {}
@@ -524,6 +692,7 @@ class NavigationActivity : AppCompatActivity() {
     private val locationObserver = object : LocationObserver {
         override fun onNewLocationMatcherResult(locationMatcherResult: LocationMatcherResult) {
             lastLocation = locationMatcherResult.enhancedLocation
+            tripMetrics.onLocation(locationMatcherResult.enhancedLocation)
         }
         override fun onNewRawLocation(rawLocation: Location) {}
     }
@@ -541,6 +710,10 @@ class NavigationActivity : AppCompatActivity() {
     }
 
     private val routesObserver = RoutesObserver { routeUpdateResult ->
+        FlutterMapboxNavigationPlugin.routeLegCache.retain(routeUpdateResult.navigationRoutes.map { it.id })
+        FlutterMapboxNavigationPlugin.routeProjector.onRoutesChanged(routeUpdateResult.navigationRoutes)
+        MapboxNavigationApp.current()?.let { RouteChunker.onRoutesChanged(it, routeUpdateResult.navigationRoutes) }
+        sessionSnapshots.onRoutesChanged(routeUpdateResult.navigationRoutes)
         if (routeUpdateResult.navigationRoutes.isNotEmpty()) sendEvent(MapBoxEvents.REROUTE_ALONG)
     }
 
@@ -574,7 +747,7 @@ class NavigationActivity : AppCompatActivity() {
                 "latitude" to point.latitude().toString(),
                 "longitude" to point.longitude().toString()
             )
-            sendEvent(MapBoxEvents.ON_MAP_TAP, JSONObject(waypoint).toString())
+            sendEvent(MapBoxEvents.ON_MAP_TAP, waypoint)
             return false
         }
     }
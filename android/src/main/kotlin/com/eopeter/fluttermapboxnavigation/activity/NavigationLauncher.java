@@ -26,8 +26,9 @@ public class NavigationLauncher {
     }
 
     public static void addWayPoints(Activity activity, List<Waypoint> wayPoints) {
-        Intent navigationIntent = new Intent(activity, NavigationActivity.class);
+        Intent navigationIntent = new Intent();
         navigationIntent.setAction(KEY_ADD_WAYPOINTS);
+        navigationIntent.setPackage(activity.getPackageName());
         navigationIntent.putExtra("isAddingWayPoints", true);
         navigationIntent.putExtra("waypoints", (Serializable) wayPoints);
         activity.sendBroadcast(navigationIntent);
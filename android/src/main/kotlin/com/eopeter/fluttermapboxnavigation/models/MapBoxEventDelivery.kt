@@ -0,0 +1,25 @@
+package com.eopeter.fluttermapboxnavigation.models
+
+/**
+ * When encoded events are handed to the event sinks.
+ *
+ * [IMMEDIATE] sends every event as its own message. [FRAME] collects the events of a route and
+ * sends them once per display frame as a single list message.
+ *
+ * Ordering contract, the same in both modes:
+ * - events of the same [MapBoxEvents] type are delivered in the order they were sent
+ * - events of different types are delivered in the order they were sent, except types rate limited
+ *   by an event policy, which are delivered when their interval ends but always before a lifecycle
+ *   event such as [MapBoxEvents.ON_ARRIVAL] or [MapBoxEvents.NAVIGATION_CANCELLED]
+ * - a batch holds the events of one route only, in the order they were sent
+ */
+enum class MapBoxEventDelivery(val value: String) {
+    IMMEDIATE("immediate"),
+    FRAME("frame");
+
+    companion object {
+        fun fromValue(value: String?): MapBoxEventDelivery? {
+            return values().firstOrNull { it.value == value }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.eopeter.fluttermapboxnavigation.models
+
+/**
+ * Wire format used for events sent over the navigation event channels.
+ *
+ * [JSON] sends every event as a JSON string (the default).
+ * [BINARY] sends a two element list of the [MapBoxEvents] ordinal and a typed payload,
+ * encoded by the channel's StandardMessageCodec, so neither side builds or parses JSON.
+ */
+enum class MapBoxEventFormat(val value: String) {
+    JSON("json"),
+    BINARY("binary");
+
+    companion object {
+        fun fromValue(value: String?): MapBoxEventFormat? {
+            return values().firstOrNull { it.value == value }
+        }
+    }
+}
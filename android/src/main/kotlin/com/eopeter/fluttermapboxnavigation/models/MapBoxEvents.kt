@@ -1,5 +1,9 @@
 package com.eopeter.fluttermapboxnavigation.models
 
+/**
+ * Events sent to Flutter. Binary events are tagged with the ordinal of the event, so the
+ * order of these entries must match the `MapBoxEvent` enum on the Dart side.
+ */
 enum class MapBoxEvents(val value: String) {
     MAP_READY("map_ready"),
     ROUTE_BUILDING("route_building"),
@@ -19,5 +23,8 @@ enum class MapBoxEvents(val value: String) {
     ON_ARRIVAL("on_arrival"),
     FAILED_TO_REROUTE("failed_to_reroute"),
     REROUTE_ALONG("reroute_along"),
-    ON_MAP_TAP("on_map_tap")
+    ON_MAP_TAP("on_map_tap"),
+    PROGRESS_DELTA("progress_delta"),
+    TRIP_METRICS("trip_metrics"),
+    POI_CORRIDOR("poi_corridor")
 }
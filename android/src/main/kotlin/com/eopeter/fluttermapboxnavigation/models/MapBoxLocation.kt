@@ -1,11 +1,19 @@
 package com.eopeter.fluttermapboxnavigation.models
 
+import com.eopeter.fluttermapboxnavigation.utilities.JsonStreamWriter
+
 class MapBoxLocation(val name: String = "", private val latitude: Double?, private val longitude: Double?) {
     override fun toString(): String {
-        return "{" +
-                "  \"latitude\": $latitude," +
-                "  \"longitude\": $longitude" +
-                "}"
+        val writer = JsonStreamWriter.obtain()
+        writeJson(writer)
+        return writer.toString()
+    }
+
+    fun writeJson(writer: JsonStreamWriter) {
+        writer.beginObject(spaced = true)
+            .name("latitude").value(latitude)
+            .name("longitude").value(longitude)
+            .endObject()
     }
 
-}
\ No newline at end of file
+}
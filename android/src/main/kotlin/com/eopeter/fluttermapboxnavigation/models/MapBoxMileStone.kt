@@ -1,17 +1,34 @@
 package com.eopeter.fluttermapboxnavigation.models
 
+import com.eopeter.fluttermapboxnavigation.utilities.JsonStreamWriter
+
 data class MapBoxMileStone(
     var identifier: Int?,
     val distanceTraveled: Double?,
     var legIndex: Int?,
-    var stepIndex: Int?
+    var stepIndex: Int?,
+    val type: String? = null,
+    val value: Double? = null,
+    val distanceRemaining: Double? = null,
+    val durationRemaining: Double? = null
 ) {
     override fun toString(): String {
-        return "{" +
-                "  \"identifier\": \"$identifier\"," +
-                "  \"distanceTraveled\": $distanceTraveled," +
-                "  \"legIndex\": \"$legIndex\"," +
-                "  \"stepIndex\": \"$stepIndex\"" +
-                "}"
+        val writer = JsonStreamWriter.obtain()
+        writeJson(writer)
+        return writer.toString()
+    }
+
+    fun writeJson(writer: JsonStreamWriter) {
+        // the indexes have always been sent as strings
+        writer.beginObject(spaced = true)
+            .name("identifier").value(identifier.toString())
+            .name("distanceTraveled").value(distanceTraveled)
+            .name("legIndex").value(legIndex.toString())
+            .name("stepIndex").value(stepIndex.toString())
+            .name("type").value(type)
+            .name("value").value(value)
+            .name("distanceRemaining").value(distanceRemaining)
+            .name("durationRemaining").value(durationRemaining)
+            .endObject()
     }
 }
@@ -0,0 +1,21 @@
+package com.eopeter.fluttermapboxnavigation.models
+
+/**
+ * How route progress is streamed to Flutter.
+ *
+ * [FULL] sends the complete progress, including the current leg and its steps, on every update.
+ * [DELTA] sends the complete progress only when the route or leg changes and a
+ * [MapBoxEvents.PROGRESS_DELTA] with just the changed scalar fields in between.
+ * [NONE] sends no progress at all, for listeners that only need milestones and the other events.
+ */
+enum class MapBoxProgressEventMode(val value: String) {
+    FULL("full"),
+    DELTA("delta"),
+    NONE("none");
+
+    companion object {
+        fun fromValue(value: String?): MapBoxProgressEventMode? {
+            return values().firstOrNull { it.value == value }
+        }
+    }
+}
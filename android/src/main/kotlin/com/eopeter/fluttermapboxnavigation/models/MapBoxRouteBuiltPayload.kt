@@ -0,0 +1,18 @@
+package com.eopeter.fluttermapboxnavigation.models
+
+/**
+ * What the data of [MapBoxEvents.ROUTE_BUILT] holds.
+ *
+ * [ROUTES] sends the full DirectionsRoute JSON of every route. [HANDLES] sends a small handle per
+ * route, whose legs, steps and geometry can then be fetched in pages from the route registry.
+ */
+enum class MapBoxRouteBuiltPayload(val value: String) {
+    ROUTES("routes"),
+    HANDLES("handles");
+
+    companion object {
+        fun fromValue(value: String?): MapBoxRouteBuiltPayload? {
+            return values().firstOrNull { it.value == value }
+        }
+    }
+}
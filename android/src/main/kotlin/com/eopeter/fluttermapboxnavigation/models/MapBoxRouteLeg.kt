@@ -1,7 +1,6 @@
 package com.eopeter.fluttermapboxnavigation.models
 
-import com.google.gson.JsonArray
-import com.google.gson.JsonObject
+import com.eopeter.fluttermapboxnavigation.utilities.JsonStreamWriter
 import com.mapbox.api.directions.v5.models.RouteLeg
 
 class MapBoxRouteLeg {
@@ -23,27 +22,45 @@ class MapBoxRouteLeg {
         }
     }
 
-    fun toJsonObject(): JsonObject {
-        val json = JsonObject()
+    fun writeJson(writer: JsonStreamWriter) {
+        writer.beginObject()
 
         if (distance != null) {
-            json.addProperty("distance", distance)
+            writer.name("distance").value(distance)
         }
 
         if (expectedTravelTime != null) {
-            json.addProperty("expectedTravelTime", expectedTravelTime)
+            writer.name("expectedTravelTime").value(expectedTravelTime)
         }
 
         if (steps.isNotEmpty()) {
-            val ls = JsonArray()
+            writer.name("steps").beginArray()
 
             for (step in steps) {
-                ls.add(step.toJsonObject())
+                step.writeJson(writer)
             }
 
-            json.add("steps", ls)
+            writer.endArray()
         }
 
-        return json
+        writer.endObject()
+    }
+
+    fun toMap(): Map<String, Any?> {
+        val map = HashMap<String, Any?>()
+
+        if (distance != null) {
+            map["distance"] = distance
+        }
+
+        if (expectedTravelTime != null) {
+            map["expectedTravelTime"] = expectedTravelTime
+        }
+
+        if (steps.isNotEmpty()) {
+            map["steps"] = steps.map { it.toMap() }
+        }
+
+        return map
     }
 }
@@ -1,82 +1,140 @@
 package com.eopeter.fluttermapboxnavigation.models
 
-import com.google.gson.Gson
-import com.google.gson.JsonObject
+import com.eopeter.fluttermapboxnavigation.FlutterMapboxNavigationPlugin
+import com.eopeter.fluttermapboxnavigation.utilities.JsonStreamWriter
+import com.eopeter.fluttermapboxnavigation.utilities.RouteLegCache
+import com.mapbox.api.directions.v5.models.RouteLeg
 import com.mapbox.navigation.base.trip.model.RouteProgress
 
-class MapBoxRouteProgressEvent(progress: RouteProgress) {
+class MapBoxRouteProgressEvent internal constructor(
+    private val distance: Float?,
+    private val duration: Double?,
+    private val distanceTraveled: Float?,
+    private val legIndex: Int?,
+    private val routeId: String?,
+    private val routeLeg: RouteLeg?,
+    private val currentStepInstruction: String?,
+    private val currentLegDistanceTraveled: Float?,
+    private val currentLegDistanceRemaining: Float?
+) {
 
     var arrived: Boolean? = null
-    private var distance: Float? = null
-    private var duration: Double? = null
-    private var distanceTraveled: Float? = null
-    private var currentLegDistanceTraveled: Float? = null
-    private var currentLegDistanceRemaining: Float? = null
-    private var currentStepInstruction: String? = null
-    private var legIndex: Int? = null
     var stepIndex: Int? = null
-    private var currentLeg: MapBoxRouteLeg? = null
+
+    // converting the leg walks every step, so only do it when the leg is actually sent, and only once per route leg
+    private val currentLeg: RouteLegCache.Entry? by lazy {
+        val leg = routeLeg ?: return@lazy null
+        val id = routeId ?: return@lazy RouteLegCache.Entry(leg)
+        FlutterMapboxNavigationPlugin.routeLegCache.get(id, legIndex ?: 0, leg)
+    }
     var priorLeg: MapBoxRouteLeg? = null
     lateinit var remainingLegs: List<MapBoxRouteLeg>
 
-    init {
-        // val util = RouteUtils()
-        // arrived = util.isArrivalEvent(progress) && util.isLastLeg(progress)
-        distance = progress.distanceRemaining
-        duration = progress.durationRemaining
-        distanceTraveled = progress.distanceTraveled
-        legIndex = progress.currentLegProgress?.legIndex
-        // stepIndex = progress.stepIndex
-        val leg = progress.currentLegProgress?.routeLeg
-        if (leg != null)
-            currentLeg = MapBoxRouteLeg(leg)
-        currentStepInstruction = progress.bannerInstructions?.primary()?.text()
-        currentLegDistanceTraveled = progress.currentLegProgress?.distanceTraveled
+    // val util = RouteUtils()
+    // arrived = util.isArrivalEvent(progress) && util.isLastLeg(progress)
+    // stepIndex = progress.stepIndex
+    constructor(progress: RouteProgress) : this(
+        distance = progress.distanceRemaining,
+        duration = progress.durationRemaining,
+        distanceTraveled = progress.distanceTraveled,
+        legIndex = progress.currentLegProgress?.legIndex,
+        routeId = progress.navigationRoute.id,
+        routeLeg = progress.currentLegProgress?.routeLeg,
+        currentStepInstruction = progress.bannerInstructions?.primary()?.text(),
+        currentLegDistanceTraveled = progress.currentLegProgress?.distanceTraveled,
         currentLegDistanceRemaining = progress.currentLegProgress?.distanceRemaining
-    }
+    )
+
+    /**
+     * What a progress is compared on to drop duplicates: the sent fields that change as the user moves.
+     */
+    internal val duplicateKey: List<Any?>
+        get() = listOf(routeId, legIndex, distance, duration, currentStepInstruction)
 
     fun toJson(): String {
-        return Gson().toJson(toJsonObject())
+        val writer = JsonStreamWriter.obtain()
+        writeJson(writer)
+        return writer.toString()
     }
 
-    private fun toJsonObject(): JsonObject {
-        val json = JsonObject()
-        addProperty(json, "distance", distance)
-        addProperty(json, "duration", duration)
-        addProperty(json, "distanceTraveled", distanceTraveled)
-        addProperty(json, "legIndex", legIndex)
-        addProperty(json, "currentLegDistanceRemaining", currentLegDistanceRemaining)
-        addProperty(json, "currentLegDistanceTraveled", currentLegDistanceTraveled)
-        addProperty(json, "currentStepInstruction", currentStepInstruction)
+    fun writeJson(writer: JsonStreamWriter) {
+        writer.beginObject()
+        writeProperty(writer, "distance", distance)
+        writeProperty(writer, "duration", duration)
+        writeProperty(writer, "distanceTraveled", distanceTraveled)
+        writeProperty(writer, "legIndex", legIndex)
+        writeProperty(writer, "currentLegDistanceRemaining", currentLegDistanceRemaining)
+        writeProperty(writer, "currentLegDistanceTraveled", currentLegDistanceTraveled)
+        if (currentStepInstruction?.isNotEmpty() == true) {
+            writer.name("currentStepInstruction").value(currentStepInstruction)
+        }
 
         if (currentLeg != null) {
-            json.add("currentLeg", currentLeg!!.toJsonObject())
+            writer.name("currentLeg").rawValue(currentLeg!!.json)
         }
 
-        return json
+        writer.endObject()
     }
 
-    private fun addProperty(json: JsonObject, prop: String, value: Double?) {
-        if (value != null) {
-            json.addProperty(prop, value)
+    fun toMap(): Map<String, Any?> {
+        val map = HashMap<String, Any?>()
+        putValue(map, "distance", distance)
+        putValue(map, "duration", duration)
+        putValue(map, "distanceTraveled", distanceTraveled)
+        putValue(map, "legIndex", legIndex)
+        putValue(map, "currentLegDistanceRemaining", currentLegDistanceRemaining)
+        putValue(map, "currentLegDistanceTraveled", currentLegDistanceTraveled)
+        if (currentStepInstruction?.isNotEmpty() == true) {
+            map["currentStepInstruction"] = currentStepInstruction
+        }
+
+        if (currentLeg != null) {
+            map["currentLeg"] = currentLeg!!.map
         }
+
+        return map
     }
 
-    private fun addProperty(json: JsonObject, prop: String, value: Int?) {
-        if (value != null) {
-            json.addProperty(prop, value)
+    /**
+     * Whether [previous] was sent for the same route and leg, so a delta against it is enough.
+     */
+    fun hasSameLeg(previous: MapBoxRouteProgressEvent): Boolean {
+        return routeId == previous.routeId && legIndex == previous.legIndex
+    }
+
+    /**
+     * Returns only the scalar fields that changed since [previous], with null for the ones that were cleared.
+     */
+    fun toDeltaMap(previous: MapBoxRouteProgressEvent): Map<String, Any?> {
+        val map = HashMap<String, Any?>()
+        putChangedValue(map, "distance", distance, previous.distance)
+        putChangedValue(map, "duration", duration, previous.duration)
+        putChangedValue(map, "distanceTraveled", distanceTraveled, previous.distanceTraveled)
+        putChangedValue(map, "currentLegDistanceRemaining", currentLegDistanceRemaining, previous.currentLegDistanceRemaining)
+        putChangedValue(map, "currentLegDistanceTraveled", currentLegDistanceTraveled, previous.currentLegDistanceTraveled)
+        if (currentStepInstruction != previous.currentStepInstruction) {
+            map["currentStepInstruction"] = currentStepInstruction
         }
+
+        return map
     }
 
-    private fun addProperty(json: JsonObject, prop: String, value: String?) {
-        if (value?.isNotEmpty() == true) {
-            json.addProperty(prop, value)
+    private fun putChangedValue(map: MutableMap<String, Any?>, prop: String, value: Number?, previous: Number?) {
+        if (value != previous) {
+            // an explicit null tells the decoder the field is gone
+            map[prop] = value
+        }
+    }
+
+    private fun putValue(map: MutableMap<String, Any?>, prop: String, value: Number?) {
+        if (value != null) {
+            map[prop] = value
         }
     }
 
-    private fun addProperty(json: JsonObject, prop: String, value: Float?) {
+    private fun writeProperty(writer: JsonStreamWriter, prop: String, value: Number?) {
         if (value != null) {
-            json.addProperty(prop, value)
+            writer.name(prop).value(value)
         }
     }
 }
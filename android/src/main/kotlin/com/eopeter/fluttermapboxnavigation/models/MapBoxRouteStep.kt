@@ -1,6 +1,6 @@
 package com.eopeter.fluttermapboxnavigation.models
 
-import com.google.gson.JsonObject
+import com.eopeter.fluttermapboxnavigation.utilities.JsonStreamWriter
 import com.mapbox.api.directions.v5.models.LegStep
 
 class MapBoxRouteStep(private val step: LegStep) {
@@ -9,13 +9,19 @@ class MapBoxRouteStep(private val step: LegStep) {
     private val distance: Double = step.distance()
     private val expectedTravelTime: Double = step.duration()
 
-    fun toJsonObject(): JsonObject {
-        val json = JsonObject()
-
-        json.addProperty("instructions", instructions)
-        json.addProperty("distance", distance)
-        json.addProperty("expectedTravelTime", expectedTravelTime)
+    fun writeJson(writer: JsonStreamWriter) {
+        writer.beginObject()
+            .name("instructions").value(instructions)
+            .name("distance").value(distance)
+            .name("expectedTravelTime").value(expectedTravelTime)
+            .endObject()
+    }
 
-        return json
+    fun toMap(): Map<String, Any?> {
+        return hashMapOf(
+            "instructions" to instructions,
+            "distance" to distance,
+            "expectedTravelTime" to expectedTravelTime
+        )
     }
 }
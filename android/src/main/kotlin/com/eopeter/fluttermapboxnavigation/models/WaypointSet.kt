@@ -1,5 +1,6 @@
 package com.eopeter.fluttermapboxnavigation.models
 
+import com.eopeter.fluttermapboxnavigation.utilities.StopOrderOptimizer
 import com.mapbox.api.directions.v5.models.RouteOptions
 import com.mapbox.geojson.Point
 
@@ -22,6 +23,16 @@ class WaypointSet {
         waypoints.clear()
     }
 
+    /**
+     * Reorders the waypoints with [StopOrderOptimizer]. The first and the last waypoint stay in place and
+     * silent waypoints keep following the stop they follow now.
+     */
+    fun optimize(durations: List<List<Double>>? = null) {
+        val ordered = StopOrderOptimizer.optimize(waypoints, durations)
+        waypoints.clear()
+        waypoints.addAll(ordered)
+    }
+
     /***
      * Silent waypoint isn't really a waypoint.
      * It's just a coordinate that used to build a route.
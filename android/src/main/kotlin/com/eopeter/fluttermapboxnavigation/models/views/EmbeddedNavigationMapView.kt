@@ -3,6 +3,7 @@ package com.eopeter.fluttermapboxnavigation.models.views
 import android.app.Activity
 import android.content.Context
 import android.view.View
+import com.eopeter.fluttermapboxnavigation.FlutterMapboxNavigationPlugin
 import com.eopeter.fluttermapboxnavigation.TurnByTurn
 import com.eopeter.fluttermapboxnavigation.databinding.NavigationActivityBinding
 import com.eopeter.fluttermapboxnavigation.models.MapBoxEvents
@@ -23,7 +24,6 @@ import io.flutter.plugin.common.BinaryMessenger
 import io.flutter.plugin.common.EventChannel
 import io.flutter.plugin.common.MethodChannel
 import io.flutter.plugin.platform.PlatformView
-import org.json.JSONObject
 
 class EmbeddedNavigationMapView(
     context: Context,
@@ -52,6 +52,14 @@ class EmbeddedNavigationMapView(
         initFlutterChannelHandlers()
         initNavigation()
 
+        this.eventRoute.configure(this.arguments)
+        FlutterMapboxNavigationPlugin.configureSharedOptions(this.arguments)
+
+        val refresh = this.arguments["enableRefresh"] as? Boolean
+        if (refresh != null) {
+            this.enableRefresh = refresh
+        }
+
         if(!(this.arguments?.get("longPressDestinationEnabled") as Boolean)) {
             this.binding.navigationView.customizeViewOptions {
                 enableMapLongClickIntercept = false;
@@ -99,6 +107,9 @@ class EmbeddedNavigationMapView(
             "setClusteringOptions" -> {
                 setClusteringOptions(methodCall, result)
             }
+            "projectOnRoute" -> {
+                projectOnRoute(methodCall, result)
+            }
             else -> {
                 super.onMethodCall(methodCall, result)
             }
@@ -176,6 +187,18 @@ class EmbeddedNavigationMapView(
         result.success(true)
     }
 
+    private fun projectOnRoute(methodCall: MethodCall, result: MethodChannel.Result) {
+        val arguments = methodCall.arguments as? Map<*, *>
+        val markers = when {
+            arguments?.get("includeMarkers") == true -> markerManager?.positions()
+            arguments?.containsKey("markerIds") == true -> markerManager?.positions(
+                (arguments["markerIds"] as? List<*>)?.filterIsInstance<String>().orEmpty()
+            )
+            else -> null
+        }
+        result.success(FlutterMapboxNavigationPlugin.routeProjector.project(arguments, markers.orEmpty()))
+    }
+
     override fun getView(): View {
         return binding.root
     }
@@ -185,6 +208,11 @@ class EmbeddedNavigationMapView(
             this.binding.navigationView.unregisterMapObserver(onMapClick)
         }
         unregisterObservers()
+        eventChannel?.setStreamHandler(null)
+        FlutterMapboxNavigationPlugin.eventRouter.closeRoute(eventRoute)
+        FlutterMapboxNavigationPlugin.routeRegistry.release(this)
+        FlutterMapboxNavigationPlugin.routeRequests.cancel(this)
+        FlutterMapboxNavigationPlugin.routeComparison.release(this)
         
         // Cleanup marker manager
         markerManager?.dispose()
@@ -211,7 +239,7 @@ class EmbeddedNavigationMapView(
                 Pair("latitude", point.latitude().toString()),
                 Pair("longitude", point.longitude().toString())
             )
-            PluginUtilities.sendEvent(MapBoxEvents.ON_MAP_TAP, JSONObject(waypoint).toString())
+            PluginUtilities.sendEvent(this@EmbeddedNavigationMapView.eventRoute, MapBoxEvents.ON_MAP_TAP, waypoint)
             return false
         }
     }
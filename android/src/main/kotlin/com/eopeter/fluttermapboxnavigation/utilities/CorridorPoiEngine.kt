@@ -0,0 +1,272 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.Looper
+import android.util.Log
+import com.eopeter.fluttermapboxnavigation.FlutterMapboxNavigationPlugin
+import com.eopeter.fluttermapboxnavigation.models.MapBoxEvents
+import com.mapbox.geojson.Feature
+import com.mapbox.geojson.FeatureCollection
+import com.mapbox.geojson.Point
+import com.mapbox.navigation.base.trip.model.RouteProgress
+import java.io.File
+import kotlin.math.cos
+import kotlin.math.floor
+import kotlin.math.sqrt
+
+/**
+ * Tells which points of interest of a local file lie along the rest of the route, nearest first, and sends
+ * the changes as [MapBoxEvents.POI_CORRIDOR] events while the `poiCorridor` option of the [route] they are
+ * sent to is set:
+ * - `entered`: the points that came within [Config.lookahead] meters ahead of the driver, ordered by their
+ *   distance along the route
+ * - `passed`: the ids of the points the driver went past
+ * - `reset`: set on the first event of a route, when everything sent before no longer applies
+ *
+ * The file is a GeoJSON FeatureCollection of points and is loaded once into a grid of [CELL_METERS] cells.
+ * When the [RouteProjector] has indexed a new route, the cells within [Config.corridorWidth] of it are
+ * looked up, their points projected onto the route and the ones inside the corridor sorted by distance
+ * along it, on a worker thread. On every progress only the points at the two ends of the window move, so
+ * a tick costs nothing when no point enters or leaves it.
+ *
+ * All calls are expected on the main thread, where the observers run.
+ */
+class CorridorPoiEngine(
+    private val route: EventRouter.Route,
+    private val send: (Map<String, Any?>) -> Unit
+) {
+
+    companion object {
+        const val CELL_METERS = 1000.0
+
+        private const val METERS_PER_DEGREE = GeoMath.EARTH_RADIUS * Math.PI / 180
+
+        private val mainHandler = Handler(Looper.getMainLooper())
+        private val worker: Handler by lazy {
+            Handler(HandlerThread("MapboxNavigationCorridorPois").apply { start() }.looper)
+        }
+
+        // loaded files by path, only used on the worker thread
+        private val loaded = HashMap<String, Pair<Long, PoiGrid>>()
+
+        private fun load(file: File): PoiGrid {
+            val modified = file.lastModified()
+            loaded[file.path]?.let { (loadedModified, grid) -> if (loadedModified == modified) return grid }
+            val features = FeatureCollection.fromJson(file.readText()).features().orEmpty()
+            val pois = features.mapIndexedNotNull { index, feature ->
+                val point = feature.geometry() as? Point ?: return@mapIndexedNotNull null
+                Poi(
+                    feature.id() ?: feature.string("id") ?: index.toString(),
+                    feature.string("name"),
+                    feature.string("category"),
+                    point.longitude(),
+                    point.latitude()
+                )
+            }
+            return PoiGrid(pois).also { loaded[file.path] = modified to it }
+        }
+
+        private fun Feature.string(key: String): String? {
+            return if (hasNonNullValueForProperty(key)) getProperty(key).asString else null
+        }
+    }
+
+    data class Config(
+        val file: File,
+        val corridorWidth: Double,
+        val lookahead: Double,
+        val maxUpcoming: Int
+    ) {
+        companion object {
+            /**
+             * Reads `{"file": String, "corridorWidth": Number, "lookahead": Number, "maxUpcoming": Int}`, or
+             * returns null to disable the corridor.
+             */
+            fun fromMap(map: Map<*, *>?): Config? {
+                val path = map?.get("file") as? String ?: return null
+                val width = (map["corridorWidth"] as? Number)?.toDouble()?.coerceIn(1.0, 5000.0) ?: 100.0
+                val lookahead = (map["lookahead"] as? Number)?.toDouble()?.coerceAtLeast(0.0) ?: 5000.0
+                val maxUpcoming = (map["maxUpcoming"] as? Number)?.toInt()?.coerceAtLeast(1) ?: 50
+                return Config(File(path), width, lookahead, maxUpcoming)
+            }
+        }
+    }
+
+    class Poi(
+        val id: String,
+        val name: String?,
+        val category: String?,
+        val longitude: Double,
+        val latitude: Double
+    )
+
+    /**
+     * The points of a file bucketed by cell, with the cells a fixed size in degrees of latitude and, at
+     * the latitude of the cell, in degrees of longitude.
+     */
+    private class PoiGrid(val pois: List<Poi>) {
+        val cellLat = CELL_METERS / METERS_PER_DEGREE
+        val cells = HashMap<Long, IntArray>()
+
+        init {
+            val buckets = HashMap<Long, MutableList<Int>>()
+            pois.forEachIndexed { index, poi ->
+                buckets.getOrPut(key(poi.longitude, poi.latitude)) { mutableListOf() }.add(index)
+            }
+            buckets.forEach { (key, indices) -> cells[key] = indices.toIntArray() }
+        }
+
+        fun key(longitude: Double, latitude: Double): Long {
+            val y = floor(latitude / cellLat).toInt()
+            val x = floor(longitude / cellLng(y)).toInt()
+            return (x.toLong() shl 32) or (y.toLong() and 0xffffffffL)
+        }
+
+        /**
+         * Returns the center of the cell [key] and the distance in meters from it to its corners.
+         */
+        fun center(key: Long): Triple<Double, Double, Double> {
+            val x = (key shr 32).toInt()
+            val y = key.toInt()
+            val cellLng = cellLng(y)
+            val latitude = (y + 0.5) * cellLat
+            val width = cellLng * METERS_PER_DEGREE * cos(Math.toRadians(latitude))
+            return Triple((x + 0.5) * cellLng, latitude, sqrt(width * width + CELL_METERS * CELL_METERS) / 2)
+        }
+
+        private fun cellLng(y: Int): Double {
+            val latitude = ((y + 0.5) * cellLat).coerceIn(-89.0, 89.0)
+            return CELL_METERS / (METERS_PER_DEGREE * cos(Math.toRadians(latitude)))
+        }
+    }
+
+    /**
+     * The points inside the corridor of a route, by distance along it.
+     */
+    private class Corridor(val routeId: String, val pois: List<Poi>, val along: DoubleArray, val crossTrack: DoubleArray)
+
+    private val config: Config?
+        get() = route.poiCorridor
+
+    private var builtConfig: Config? = null
+    private var builtIndex: RouteProjectionIndex? = null
+    private var corridor: Corridor? = null
+    private var generation = 0
+    private var started = false
+
+    // the window is corridor[tail, head): the points entered and not passed yet
+    private var head = 0
+    private var tail = 0
+
+    fun onRouteProgress(progress: RouteProgress) {
+        val config = this.config
+        val projector = FlutterMapboxNavigationPlugin.routeProjector
+        val index = projector.index?.takeIf { progress.navigationRoute.id == projector.routeId }
+        if (config == null || index == null) {
+            if (config == null) reset()
+            return
+        }
+        if (config != builtConfig || index !== builtIndex) {
+            build(config, projector.routeId ?: return, index)
+            return
+        }
+        val corridor = this.corridor ?: return
+        val driver = projector.driverAlong
+
+        val passed = mutableListOf<String>()
+        while (tail < head && corridor.along[tail] < driver) {
+            passed.add(corridor.pois[tail].id)
+            tail++
+        }
+        val entered = mutableListOf<Map<String, Any?>>()
+        while (head < corridor.pois.size && corridor.along[head] <= driver + config.lookahead &&
+            head - tail < config.maxUpcoming
+        ) {
+            if (corridor.along[head] < driver) {
+                // passed before it could enter, as after a jump forward, so the window is empty
+                tail = head + 1
+            } else {
+                entered.add(entry(corridor, head))
+            }
+            head++
+        }
+
+        if (entered.isEmpty() && passed.isEmpty() && started) return
+        send(
+            hashMapOf(
+                "routeId" to corridor.routeId,
+                "driverAlong" to driver,
+                "reset" to !started,
+                "entered" to entered,
+                "passed" to passed
+            )
+        )
+        started = true
+    }
+
+    /**
+     * Forgets the corridor, so the next route starts with a reset.
+     */
+    fun reset() {
+        generation++
+        builtConfig = null
+        builtIndex = null
+        corridor = null
+        started = false
+        head = 0
+        tail = 0
+    }
+
+    private fun build(config: Config, routeId: String, index: RouteProjectionIndex) {
+        reset()
+        builtConfig = config
+        builtIndex = index
+        val generation = this.generation
+        worker.post {
+            val built = try {
+                corridor(load(config.file), routeId, index, config.corridorWidth)
+            } catch (e: Exception) {
+                Log.e("CorridorPoiEngine", "Failed to load the points of ${config.file}", e)
+                null
+            }
+            mainHandler.post {
+                if (this.generation == generation) corridor = built
+            }
+        }
+    }
+
+    private fun corridor(grid: PoiGrid, routeId: String, index: RouteProjectionIndex, width: Double): Corridor {
+        val inside = mutableListOf<Triple<Poi, Double, Double>>()
+        grid.cells.forEach { (key, indices) ->
+            val (longitude, latitude, radius) = grid.center(key)
+            // no point of a cell further than this from the route can be inside the corridor
+            index.project(longitude, latitude, width + radius) ?: return@forEach
+            for (i in indices) {
+                val poi = grid.pois[i]
+                val projection = index.project(poi.longitude, poi.latitude, width) ?: continue
+                inside.add(Triple(poi, projection.along, projection.crossTrack))
+            }
+        }
+        inside.sortBy { it.second }
+        return Corridor(
+            routeId,
+            inside.map { it.first },
+            DoubleArray(inside.size) { inside[it].second },
+            DoubleArray(inside.size) { inside[it].third }
+        )
+    }
+
+    private fun entry(corridor: Corridor, i: Int): Map<String, Any?> {
+        val poi = corridor.pois[i]
+        return hashMapOf(
+            "id" to poi.id,
+            "name" to poi.name,
+            "category" to poi.category,
+            "latitude" to poi.latitude,
+            "longitude" to poi.longitude,
+            "along" to corridor.along[i],
+            "crossTrack" to corridor.crossTrack[i]
+        )
+    }
+}
@@ -2,6 +2,7 @@ package com.eopeter.fluttermapboxnavigation.utilities
 
 import android.app.Activity
 import android.view.ViewGroup
+import com.eopeter.fluttermapboxnavigation.FlutterMapboxNavigationPlugin
 import com.eopeter.fluttermapboxnavigation.activity.NavigationLauncher
 import com.eopeter.fluttermapboxnavigation.models.MapBoxEvents
 import com.mapbox.navigation.core.MapboxNavigation
@@ -13,7 +14,8 @@ import com.mapbox.navigation.ui.base.lifecycle.UIComponent
 import com.mapbox.navigation.ui.base.view.MapboxExtendableButton
 
 class CustomInfoPanelEndNavButtonBinder(
-    val activity: Activity
+    val activity: Activity,
+    private val eventRoute: EventRouter.Route = FlutterMapboxNavigationPlugin.eventRouter.global
 ) : UIBinder {
     override fun bind(viewGroup: ViewGroup): MapboxNavigationObserver {
         val button = MapboxExtendableButton(
@@ -33,7 +35,7 @@ class CustomInfoPanelEndNavButtonBinder(
                 super.onAttached(mapboxNavigation)
                 button.setOnClickListener {
                     mapboxNavigation.stopTripSession()
-                    PluginUtilities.sendEvent(MapBoxEvents.NAVIGATION_CANCELLED)
+                    PluginUtilities.sendEvent(eventRoute, MapBoxEvents.NAVIGATION_CANCELLED)
                     activity.finish()
                 }
             }
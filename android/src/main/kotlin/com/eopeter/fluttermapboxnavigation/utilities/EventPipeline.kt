@@ -0,0 +1,129 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.Looper
+import android.util.Log
+import com.eopeter.fluttermapboxnavigation.models.MapBoxEvents
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReferenceArray
+
+/**
+ * Moves event serialization off the main thread.
+ *
+ * The navigation observers (the single producer, on the main thread) [offer] encode functions
+ * that capture an immutable snapshot of the event. A worker thread drains the bounded ring buffer,
+ * runs the encoders in order and posts only the final delivery to the [EventRouter.Route] sinks back to the main thread.
+ *
+ * When the buffer is full the [OverflowPolicy] decides which event is lost; every loss is
+ * counted in [stats] as `dropped`.
+ */
+class EventPipeline(
+    private val capacity: Int,
+    private val overflowPolicy: OverflowPolicy
+) {
+
+    enum class OverflowPolicy(val value: String) {
+        DROP_NEWEST("dropNewest"),
+        DROP_OLDEST("dropOldest");
+
+        companion object {
+            fun fromValue(value: String?): OverflowPolicy? {
+                return values().firstOrNull { it.value == value }
+            }
+        }
+    }
+
+    private class Task(val route: EventRouter.Route, val event: MapBoxEvents, val encode: () -> Any?)
+
+    private class Encoded(val route: EventRouter.Route, val event: MapBoxEvents, val message: Any)
+
+    private val slots = AtomicReferenceArray<Task?>(capacity)
+
+    // head is advanced by the worker, and by the producer when it drops the oldest event
+    private val head = AtomicLong(0)
+
+    @Volatile
+    private var tail = 0L
+
+    private val drainScheduled = AtomicBoolean(false)
+    private val offered = AtomicLong(0)
+    private val dropped = AtomicLong(0)
+    private val delivered = AtomicLong(0)
+    private val workerThread = HandlerThread("MapboxNavigationEvents").apply { start() }
+    private val worker = Handler(workerThread.looper)
+    private val mainHandler = Handler(Looper.getMainLooper())
+    private val drainRunnable = Runnable { drain() }
+
+    /**
+     * Queues [encode] to run on the worker and its result to be delivered to [route].
+     * Returns false if it was dropped because the buffer is full.
+     */
+    fun offer(route: EventRouter.Route, event: MapBoxEvents, encode: () -> Any?): Boolean {
+        offered.incrementAndGet()
+        val t = tail
+        if (t - head.get() >= capacity) {
+            if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                dropped.incrementAndGet()
+                return false
+            }
+            // if the CAS fails the worker consumed the oldest event, which frees the slot just as well
+            val h = head.get()
+            if (t - h >= capacity && head.compareAndSet(h, h + 1)) {
+                dropped.incrementAndGet()
+            }
+        }
+        slots.set((t % capacity).toInt(), Task(route, event, encode))
+        tail = t + 1
+        if (drainScheduled.compareAndSet(false, true)) {
+            worker.post(drainRunnable)
+        }
+        return true
+    }
+
+    private fun drain() {
+        drainScheduled.set(false)
+        val messages = ArrayList<Encoded>()
+        while (true) {
+            val h = head.get()
+            if (h >= tail) break
+            val task = slots.get((h % capacity).toInt())
+            // lost a race with the producer dropping this event, read the new head again
+            if (!head.compareAndSet(h, h + 1)) continue
+            try {
+                if (task != null) {
+                    task.encode()?.let { messages.add(Encoded(task.route, task.event, it)) }
+                }
+            } catch (e: Exception) {
+                Log.e("EventPipeline", "Failed to serialize event", e)
+            }
+        }
+        if (messages.isEmpty()) return
+
+        mainHandler.post {
+            for (encoded in messages) {
+                encoded.route.deliver(encoded.event, encoded.message)
+            }
+            delivered.addAndGet(messages.size.toLong())
+        }
+    }
+
+    fun stats(): Map<String, Any> {
+        return hashMapOf(
+            "capacity" to capacity,
+            "overflowPolicy" to overflowPolicy.value,
+            "queued" to (tail - head.get()).coerceAtLeast(0),
+            "offered" to offered.get(),
+            "dropped" to dropped.get(),
+            "delivered" to delivered.get()
+        )
+    }
+
+    /**
+     * Stops the worker once the events already queued have been serialized.
+     */
+    fun dispose() {
+        workerThread.quitSafely()
+    }
+}
@@ -0,0 +1,219 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.util.Log
+import com.eopeter.fluttermapboxnavigation.FlutterMapboxNavigationPlugin
+import com.eopeter.fluttermapboxnavigation.models.MapBoxEvents
+import io.flutter.plugin.common.StandardMessageCodec
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.util.EnumMap
+
+/**
+ * Holds the encoded events of an [EventRouter.Route] while nobody listens to it: before `onListen`,
+ * after `onCancel`, or while the engine is detached and the navigation keeps running.
+ * They are handed, in order, to the next sink that subscribes.
+ *
+ * The [Retention] of an event type decides what is kept: every event, only the latest one, or none.
+ * The latest ones stay in memory, so a newer one always replaces them, and don't count against
+ * [Config.capacity]. When more events of the other types are held, the oldest ones are appended to a spill
+ * file in the cache directory if [Config.spillToDisk] is on, and dropped otherwise. Spilled events are
+ * replayed before the ones still in memory, so the order is kept. A full spill file is started over, so
+ * what is replayed is always the newest events without a gap. Nothing is buffered unless the `eventReplay`
+ * option of the route is passed, see [configure].
+ *
+ * All calls are expected on the main thread.
+ */
+class EventReplayBuffer(private val name: String) {
+
+    companion object {
+        const val SPILL_FILE_PREFIX = "mapbox_navigation_events_"
+        private const val MAX_SPILL_BYTES = 4L * 1024 * 1024
+
+        private val DEFAULT_RETENTION: Map<MapBoxEvents, Retention> = EnumMap<MapBoxEvents, Retention>(MapBoxEvents::class.java).apply {
+            put(MapBoxEvents.PROGRESS_CHANGE, Retention.LATEST)
+            put(MapBoxEvents.TRIP_METRICS, Retention.LATEST)
+            put(MapBoxEvents.BANNER_INSTRUCTION, Retention.LATEST)
+            // a delta is meaningless without the progress it was computed against
+            put(MapBoxEvents.PROGRESS_DELTA, Retention.NONE)
+            // an announcement replayed late would be wrong
+            put(MapBoxEvents.SPEECH_ANNOUNCEMENT, Retention.NONE)
+        }
+    }
+
+    enum class Retention(val value: String) {
+        ALL("all"),
+        LATEST("latest"),
+        NONE("none");
+
+        companion object {
+            fun fromValue(value: String?): Retention? {
+                return values().firstOrNull { it.value == value }
+            }
+        }
+    }
+
+    data class Config(
+        val capacity: Int,
+        val spillToDisk: Boolean,
+        val retention: Map<MapBoxEvents, Retention>
+    ) {
+        fun retentionOf(event: MapBoxEvents): Retention {
+            return retention[event] ?: DEFAULT_RETENTION[event] ?: Retention.ALL
+        }
+
+        companion object {
+            val DEFAULT = Config(128, false, emptyMap())
+
+            /**
+             * Reads `{"enabled": Boolean, "capacity": Int, "spillToDisk": Boolean, "retention": {event value: String}}`,
+             * or returns null when buffering is disabled.
+             */
+            fun fromMap(map: Map<*, *>?): Config? {
+                if (map == null || map["enabled"] == false) return null
+                val capacity = (map["capacity"] as? Number)?.toInt()?.coerceAtLeast(1) ?: DEFAULT.capacity
+                val spillToDisk = map["spillToDisk"] as? Boolean ?: DEFAULT.spillToDisk
+                val retention = EnumMap<MapBoxEvents, Retention>(MapBoxEvents::class.java)
+                (map["retention"] as? Map<*, *>)?.forEach { entry ->
+                    val event = MapBoxEvents.values().firstOrNull { it.value == entry.key } ?: return@forEach
+                    val value = Retention.fromValue(entry.value as? String) ?: return@forEach
+                    retention[event] = value
+                }
+                return Config(capacity, spillToDisk, retention)
+            }
+        }
+    }
+
+    private class Entry(val event: MapBoxEvents, val message: Any)
+
+    private val entries = ArrayDeque<Entry>()
+    private var spillOutput: DataOutputStream? = null
+    private var spillBytes = 0L
+
+    private var config: Config? = null
+
+    private val spillFile: File?
+        get() = FlutterMapboxNavigationPlugin.cacheDirectory?.let { File(it, "$SPILL_FILE_PREFIX$name.bin") }
+
+    /**
+     * Enables, resizes or disables the buffer. Disabling it forgets the buffered events.
+     */
+    fun configure(config: Config?) {
+        this.config = config
+        if (config == null) clear()
+    }
+
+    /**
+     * Whether an [event] sent now would be kept.
+     */
+    fun retains(event: MapBoxEvents): Boolean {
+        val config = config ?: return false
+        return config.retentionOf(event) != Retention.NONE
+    }
+
+    fun add(event: MapBoxEvents, message: Any) {
+        val config = config ?: return
+        when (config.retentionOf(event)) {
+            Retention.NONE -> return
+            Retention.LATEST -> entries.removeAll { it.event == event }
+            Retention.ALL -> {}
+        }
+        entries.addLast(Entry(event, message))
+
+        var held = entries.count { config.retentionOf(it.event) == Retention.ALL }
+        val iterator = entries.iterator()
+        while (held > config.capacity && iterator.hasNext()) {
+            val entry = iterator.next()
+            if (config.retentionOf(entry.event) != Retention.ALL) continue
+            iterator.remove()
+            held--
+            if (config.spillToDisk) spill(entry)
+        }
+    }
+
+    /**
+     * Hands every buffered event to [send], oldest first, and empties the buffer.
+     */
+    fun drain(send: (Any) -> Unit) {
+        closeSpill()?.let { file ->
+            readSpill(file, send)
+            file.delete()
+        }
+        while (entries.isNotEmpty()) {
+            send(entries.removeFirst().message)
+        }
+    }
+
+    fun clear() {
+        entries.clear()
+        closeSpill()?.delete()
+    }
+
+    private fun spill(entry: Entry) {
+        try {
+            val encoded = StandardMessageCodec.INSTANCE.encodeMessage(entry.message) ?: return
+            val size = encoded.remaining()
+            if (spillBytes + size + 4 > MAX_SPILL_BYTES) {
+                // older events go rather than this one, so the replay has no gap
+                Log.w("EventReplayBuffer", "Spill file of $name full, dropping the events spilled so far")
+                closeSpill()?.delete()
+                if (size + 4 > MAX_SPILL_BYTES) return
+            }
+
+            val output = spillOutput ?: spillFile?.let {
+                DataOutputStream(BufferedOutputStream(FileOutputStream(it, true)))
+            }?.also { spillOutput = it } ?: return
+            val bytes = ByteArray(size)
+            encoded.get(bytes)
+            output.writeInt(size)
+            output.write(bytes)
+            spillBytes += size + 4
+        } catch (e: IOException) {
+            Log.e("EventReplayBuffer", "Failed to spill event", e)
+        }
+    }
+
+    /**
+     * Closes the spill file and returns it if anything was written to it.
+     */
+    private fun closeSpill(): File? {
+        val output = spillOutput ?: return null
+        spillOutput = null
+        spillBytes = 0
+        try {
+            output.close()
+        } catch (e: IOException) {
+            Log.e("EventReplayBuffer", "Failed to close spill file", e)
+        }
+        return spillFile
+    }
+
+    private fun readSpill(file: File, send: (Any) -> Unit) {
+        try {
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                while (true) {
+                    val size = try {
+                        input.readInt()
+                    } catch (_: EOFException) {
+                        break
+                    }
+                    val bytes = ByteArray(size)
+                    input.readFully(bytes)
+                    val buffer = ByteBuffer.allocateDirect(size)
+                    buffer.put(bytes)
+                    buffer.flip()
+                    StandardMessageCodec.INSTANCE.decodeMessage(buffer)?.let(send)
+                }
+            }
+        } catch (e: IOException) {
+            Log.e("EventReplayBuffer", "Failed to read spill file", e)
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.eopeter.fluttermapboxnavigation.models.MapBoxEventDelivery
+import com.eopeter.fluttermapboxnavigation.models.MapBoxEventFormat
+import com.eopeter.fluttermapboxnavigation.models.MapBoxEvents
+import com.eopeter.fluttermapboxnavigation.models.MapBoxProgressEventMode
+import com.eopeter.fluttermapboxnavigation.models.MapBoxRouteBuiltPayload
+import io.flutter.plugin.common.EventChannel
+
+/**
+ * Keeps the sinks of every event channel and routes each event only to the
+ * subscribers of the component that produced it.
+ *
+ * The full screen navigation uses the [global] route, which the `flutter_mapbox_navigation/events`
+ * channel of every engine the plugin is attached to subscribes to. Every embedded view opens its own
+ * route for its `flutter_mapbox_navigation/{viewId}/events` channel, so several views never push
+ * events into each other's streams, and each route has its own event options, see [Route.configure].
+ *
+ * All calls are expected on the main thread.
+ */
+class EventRouter {
+
+    /**
+     * The subscribers of one event source, with the scheduling, delta and replay state of its events.
+     * An event is encoded once per route and handed to each sink. While nobody listens it goes to the
+     * [replayBuffer] instead, or isn't encoded at all if the buffer wouldn't keep it.
+     */
+    class Route(name: String) {
+
+        // keyed by the stream handler that owns the sink, one per engine or view
+        private val sinks = LinkedHashMap<Any, EventChannel.EventSink>()
+
+        var format = MapBoxEventFormat.JSON
+            private set
+        var progressEventMode = MapBoxProgressEventMode.FULL
+            private set
+        var delivery = MapBoxEventDelivery.IMMEDIATE
+            private set
+        var pipeline: EventPipeline? = null
+            private set
+        var tripMetrics: TripMetricsAggregator.Config? = null
+            private set
+        var routeBuiltPayload = MapBoxRouteBuiltPayload.ROUTES
+            private set
+        var poiCorridor: CorridorPoiEngine.Config? = null
+            private set
+
+        /**
+         * The milestones of the `milestones` option, also replaced by `setMilestones` during a trip.
+         */
+        var milestones: List<MilestoneEngine.Milestone> = emptyList()
+
+        val scheduler = EventScheduler()
+        val progressDeltaEncoder = ProgressDeltaEncoder()
+        private val frameBatcher = FrameEventBatcher { send(it) }
+        private val replayBuffer = EventReplayBuffer(name)
+
+        /**
+         * Changes whenever a sink subscribes, so delta progress starts over with a full snapshot.
+         */
+        @Volatile
+        var generation = 0
+            private set
+
+        val hasSubscribers: Boolean
+            get() = sinks.isNotEmpty()
+
+        fun subscribe(owner: Any, sink: EventChannel.EventSink?) {
+            if (sink == null) {
+                unsubscribe(owner)
+                return
+            }
+            sinks[owner] = sink
+            generation++
+            replayBuffer.drain { send(it) }
+        }
+
+        fun unsubscribe(owner: Any) {
+            sinks.remove(owner)
+        }
+
+        /**
+         * Applies the event options of the navigation options in [arguments] to this route only:
+         * `eventFormat`, `progressEventMode`, `eventPolicies`, `eventPipeline`, `eventDelivery`,
+         * `tripMetrics`, `routeBuiltPayload`, `poiCorridor`, `eventReplay` and `milestones`. Options that
+         * are not in [arguments] are left as they are.
+         */
+        fun configure(arguments: Map<*, *>?) {
+            if (arguments == null) return
+            MapBoxEventFormat.fromValue(arguments["eventFormat"] as? String)?.let { format = it }
+            MapBoxProgressEventMode.fromValue(arguments["progressEventMode"] as? String)?.let { progressEventMode = it }
+            if (arguments.containsKey("eventPolicies")) {
+                scheduler.setPolicies(arguments["eventPolicies"] as? Map<*, *>)
+            }
+            if (arguments.containsKey("eventPipeline")) {
+                configurePipeline(arguments["eventPipeline"] as? Map<*, *>)
+            }
+            MapBoxEventDelivery.fromValue(arguments["eventDelivery"] as? String)?.let { delivery = it }
+            if (arguments.containsKey("tripMetrics")) {
+                tripMetrics = TripMetricsAggregator.Config.fromMap(arguments["tripMetrics"] as? Map<*, *>)
+            }
+            MapBoxRouteBuiltPayload.fromValue(arguments["routeBuiltPayload"] as? String)?.let { routeBuiltPayload = it }
+            if (arguments.containsKey("poiCorridor")) {
+                poiCorridor = CorridorPoiEngine.Config.fromMap(arguments["poiCorridor"] as? Map<*, *>)
+            }
+            if (arguments.containsKey("eventReplay")) {
+                replayBuffer.configure(EventReplayBuffer.Config.fromMap(arguments["eventReplay"] as? Map<*, *>))
+            }
+            if (arguments.containsKey("milestones")) {
+                milestones = MilestoneEngine.Milestone.listFromArguments(arguments["milestones"] as? List<*>)
+            }
+        }
+
+        /**
+         * Enables, resizes or disables background event serialization from the
+         * `{"enabled": Boolean, "capacity": Int, "overflowPolicy": String}` options.
+         */
+        private fun configurePipeline(arguments: Map<*, *>?) {
+            val enabled = arguments?.get("enabled") as? Boolean ?: false
+            val capacity = (arguments?.get("capacity") as? Number)?.toInt()?.coerceAtLeast(1) ?: 256
+            val overflowPolicy = EventPipeline.OverflowPolicy.fromValue(arguments?.get("overflowPolicy") as? String)
+                ?: EventPipeline.OverflowPolicy.DROP_OLDEST
+            pipeline?.dispose()
+            pipeline = if (enabled) EventPipeline(capacity, overflowPolicy) else null
+        }
+
+        /**
+         * Whether an [event] sent now would reach a sink or the replay buffer.
+         */
+        fun accepts(event: MapBoxEvents): Boolean {
+            return sinks.isNotEmpty() || replayBuffer.retains(event)
+        }
+
+        /**
+         * Sends [message] to every sink, or adds it to the batch of the current frame
+         * when [MapBoxEventDelivery.FRAME] is on. Without sinks it is kept for the next one.
+         */
+        fun deliver(event: MapBoxEvents, message: Any) {
+            if (sinks.isEmpty()) {
+                replayBuffer.add(event, message)
+            } else if (delivery == MapBoxEventDelivery.FRAME) {
+                frameBatcher.add(message)
+            } else {
+                // keep the order if the mode changed while a batch was waiting
+                frameBatcher.flush()
+                send(message)
+            }
+        }
+
+        /**
+         * Forgets the buffered events, e.g. of a previous navigation nobody listened to.
+         */
+        fun clearReplay() {
+            replayBuffer.clear()
+        }
+
+        fun close() {
+            scheduler.setPolicies(null)
+            replayBuffer.clear()
+            pipeline?.dispose()
+            pipeline = null
+        }
+
+        private fun send(message: Any) {
+            for (sink in sinks.values.toList()) {
+                sink.success(message)
+            }
+        }
+    }
+
+    private val viewRoutes = mutableSetOf<Route>()
+
+    private var openedRoutes = 0
+
+    val global = Route("global")
+
+    /**
+     * Opens the route of an embedded view, with the default event options until it is configured.
+     * It must be closed with [closeRoute] when the view is disposed.
+     */
+    fun openRoute(): Route {
+        val route = Route("view${++openedRoutes}")
+        viewRoutes.add(route)
+        return route
+    }
+
+    fun closeRoute(route: Route) {
+        viewRoutes.remove(route)
+        route.close()
+    }
+}
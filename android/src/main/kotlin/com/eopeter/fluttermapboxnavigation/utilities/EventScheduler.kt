@@ -0,0 +1,132 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import com.eopeter.fluttermapboxnavigation.models.MapBoxEvents
+import java.util.EnumMap
+import java.util.EnumSet
+
+/**
+ * Applies per event type policies before events reach the event sink:
+ * - rate limited types send at most `maxPerSecond` events, coalescing the events of an
+ *   interval so only the latest one is sent when the interval ends
+ * - types that drop duplicates skip events whose data equals the last one sent
+ *
+ * Lifecycle events in [NEVER_DROP] ignore policies and flush anything pending first,
+ * so a coalesced progress is never delivered after the arrival it led to.
+ * All calls are expected on the main thread, where the navigation observers run.
+ */
+class EventScheduler {
+
+    companion object {
+        private val NEVER_DROP: Set<MapBoxEvents> = EnumSet.of(
+            MapBoxEvents.ROUTE_BUILT,
+            MapBoxEvents.ROUTE_BUILD_FAILED,
+            MapBoxEvents.ROUTE_BUILD_CANCELLED,
+            MapBoxEvents.ROUTE_BUILD_NO_ROUTES_FOUND,
+            MapBoxEvents.NAVIGATION_RUNNING,
+            MapBoxEvents.NAVIGATION_CANCELLED,
+            MapBoxEvents.NAVIGATION_FINISHED,
+            MapBoxEvents.ON_ARRIVAL
+        )
+    }
+
+    /**
+     * Policy for one event type. A [minIntervalMillis] of 0 means not rate limited.
+     */
+    data class EventPolicy(val minIntervalMillis: Long, val dropDuplicates: Boolean) {
+        companion object {
+            fun fromMap(map: Map<*, *>?): EventPolicy? {
+                if (map == null) return null
+                val maxPerSecond = (map["maxPerSecond"] as? Number)?.toDouble()
+                val interval = if (maxPerSecond != null && maxPerSecond > 0) (1000 / maxPerSecond).toLong() else 0L
+                val dropDuplicates = map["dropDuplicates"] as? Boolean ?: false
+                return EventPolicy(interval, dropDuplicates)
+            }
+        }
+    }
+
+    private class PendingEvent(val data: Any?, val send: () -> Unit)
+
+    private val handler = Handler(Looper.getMainLooper())
+    private val policies = EnumMap<MapBoxEvents, EventPolicy>(MapBoxEvents::class.java)
+    private val lastSentAt = EnumMap<MapBoxEvents, Long>(MapBoxEvents::class.java)
+    private val lastSentData = EnumMap<MapBoxEvents, Any?>(MapBoxEvents::class.java)
+    private val pending = EnumMap<MapBoxEvents, PendingEvent>(MapBoxEvents::class.java)
+
+    /**
+     * Replaces the policies with the ones in [arguments], a map of event value to
+     * `{"maxPerSecond": Number, "dropDuplicates": Boolean}`.
+     */
+    fun setPolicies(arguments: Map<*, *>?) {
+        flushPending()
+        policies.clear()
+        lastSentAt.clear()
+        lastSentData.clear()
+        if (arguments == null) return
+
+        for (entry in arguments) {
+            val event = MapBoxEvents.values().firstOrNull { it.value == entry.key } ?: continue
+            if (event in NEVER_DROP) continue
+            val policy = EventPolicy.fromMap(entry.value as? Map<*, *>) ?: continue
+            policies[event] = policy
+        }
+    }
+
+    /**
+     * Runs [send] now, later, or not at all according to the policy of [event].
+     * [data] is only used to detect duplicates.
+     */
+    fun schedule(event: MapBoxEvents, data: Any?, send: () -> Unit) {
+        val policy = policies[event]
+        if (policy == null) {
+            if (event in NEVER_DROP) flushPending()
+            send()
+            return
+        }
+
+        if (policy.minIntervalMillis > 0) {
+            val lastSent = lastSentAt[event]
+            val wait = if (lastSent == null) 0L else lastSent + policy.minIntervalMillis - SystemClock.elapsedRealtime()
+            if (wait > 0) {
+                // latest wins: replace the event waiting for this interval
+                val scheduled = pending.containsKey(event)
+                pending[event] = PendingEvent(data, send)
+                if (!scheduled) {
+                    handler.postDelayed({ sendPending(event) }, wait)
+                }
+                return
+            }
+        }
+
+        dispatch(event, policy, data, send)
+    }
+
+    private fun sendPending(event: MapBoxEvents) {
+        val next = pending.remove(event) ?: return
+        val policy = policies[event]
+        if (policy == null) {
+            next.send()
+        } else {
+            dispatch(event, policy, next.data, next.send)
+        }
+    }
+
+    private fun dispatch(event: MapBoxEvents, policy: EventPolicy, data: Any?, send: () -> Unit) {
+        if (policy.dropDuplicates) {
+            if (lastSentData.containsKey(event) && lastSentData[event] == data) return
+            lastSentData[event] = data
+        }
+        lastSentAt[event] = SystemClock.elapsedRealtime()
+        send()
+    }
+
+    private fun flushPending() {
+        if (pending.isEmpty()) return
+        handler.removeCallbacksAndMessages(null)
+        for (event in pending.keys.toList()) {
+            sendPending(event)
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.os.Handler
+import android.os.Looper
+import android.view.Choreographer
+
+/**
+ * Collects encoded events and hands them to [send] once per frame, aligned to the
+ * Choreographer vsync, so a burst of events costs one platform channel message.
+ *
+ * A frame with a single event sends that event as is, otherwise the events go out as one list in
+ * the order they were added. Choreographer stops calling back while the display is off, so a
+ * batch is also flushed after [MAX_DELAY_MILLIS] without a frame, e.g. when navigating with the
+ * screen locked.
+ *
+ * All calls are expected on the main thread.
+ */
+class FrameEventBatcher(private val send: (Any) -> Unit) {
+
+    companion object {
+        private const val MAX_DELAY_MILLIS = 100L
+    }
+
+    private val batch = ArrayList<Any>()
+    private val handler = Handler(Looper.getMainLooper())
+    private val frameCallback = Choreographer.FrameCallback { flush() }
+    private val fallback = Runnable { flush() }
+
+    fun add(message: Any) {
+        batch.add(message)
+        if (batch.size == 1) {
+            Choreographer.getInstance().postFrameCallback(frameCallback)
+            handler.postDelayed(fallback, MAX_DELAY_MILLIS)
+        }
+    }
+
+    /**
+     * Sends the events collected so far right away.
+     */
+    fun flush() {
+        if (batch.isEmpty()) return
+        Choreographer.getInstance().removeFrameCallback(frameCallback)
+        handler.removeCallbacks(fallback)
+
+        val message: Any = if (batch.size == 1) batch[0] else ArrayList(batch)
+        batch.clear()
+        send(message)
+    }
+}
@@ -0,0 +1,45 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.mapbox.geojson.Point
+import kotlin.math.asin
+import kotlin.math.atan2
+import kotlin.math.cos
+import kotlin.math.sin
+import kotlin.math.sqrt
+
+/**
+ * Great-circle distances and bearings on a sphere of the mean earth radius, close enough for routing
+ * heuristics and for distances along a route.
+ */
+object GeoMath {
+
+    const val EARTH_RADIUS = 6371008.8
+
+    /**
+     * Returns the distance in meters between [a] and [b].
+     */
+    fun distance(a: Point, b: Point): Double {
+        return distance(a.longitude(), a.latitude(), b.longitude(), b.latitude())
+    }
+
+    fun distance(lng1: Double, lat1: Double, lng2: Double, lat2: Double): Double {
+        val phi1 = Math.toRadians(lat1)
+        val phi2 = Math.toRadians(lat2)
+        val dPhi = phi2 - phi1
+        val dLambda = Math.toRadians(lng2 - lng1)
+        val h = sin(dPhi / 2) * sin(dPhi / 2) + cos(phi1) * cos(phi2) * sin(dLambda / 2) * sin(dLambda / 2)
+        return 2 * EARTH_RADIUS * asin(sqrt(h.coerceAtMost(1.0)))
+    }
+
+    /**
+     * Returns the initial bearing from [a] to [b] in degrees, from 0 up to 360 clockwise from north.
+     */
+    fun bearing(a: Point, b: Point): Double {
+        val phi1 = Math.toRadians(a.latitude())
+        val phi2 = Math.toRadians(b.latitude())
+        val dLambda = Math.toRadians(b.longitude() - a.longitude())
+        val y = sin(dLambda) * cos(phi2)
+        val x = cos(phi1) * sin(phi2) - sin(phi1) * cos(phi2) * cos(dLambda)
+        return (Math.toDegrees(atan2(y, x)) + 360) % 360
+    }
+}
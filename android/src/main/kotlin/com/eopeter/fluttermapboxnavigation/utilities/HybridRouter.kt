@@ -0,0 +1,217 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.os.Handler
+import android.os.Looper
+import com.eopeter.fluttermapboxnavigation.FlutterMapboxNavigationPlugin
+import com.mapbox.api.directions.v5.models.RouteOptions
+import com.mapbox.navigation.base.route.NavigationRoute
+import com.mapbox.navigation.base.route.NavigationRouterCallback
+import com.mapbox.navigation.base.route.RouterFailure
+import com.mapbox.navigation.base.route.RouterOrigin
+import com.mapbox.navigation.core.MapboxNavigation
+
+/**
+ * A [PluginRouter] for the `hybridRouter` option that picks where a request is answered from the quality
+ * of the network cached by [NetworkMonitor], so a dead zone doesn't cost a request timeout:
+ * - [NetworkMonitor.Quality.GOOD]: the Navigation SDK answers, as with [MapboxRouter].
+ * - [NetworkMonitor.Quality.MARGINAL]: the SDK and the offline answer race. The SDK wins if it answers
+ *   within [Config.raceDeadlineMillis], and after that the offline answer wins as soon as there is one.
+ * - [NetworkMonitor.Quality.POOR] and [NetworkMonitor.Quality.OFFLINE]: the offline answer, and only when
+ *   there is none, the SDK, which falls back to its onboard router for the regions downloaded with
+ *   `enableOfflineRouting`.
+ *
+ * The offline answer is the last routes the [RouteResponseCache] got for the request, also when they expired
+ * less than [Config.maxStaleAgeMillis] ago, so it needs the `routeCache` option, and comes with
+ * [RouterOrigin.Custom]. It is also used when the SDK fails. Which [RouterOrigin] answered is counted in [stats].
+ *
+ * All calls are expected on the main thread.
+ */
+object HybridRouter : PluginRouter {
+
+    data class Config(val raceDeadlineMillis: Long, val maxStaleAgeMillis: Long) {
+        companion object {
+            val DEFAULT = Config(1500, 86_400_000)
+
+            /**
+             * Reads `{"raceDeadlineMillis": Int, "maxStaleAgeSeconds": Int}`, or returns null to use the
+             * Navigation SDK alone.
+             */
+            fun fromMap(map: Map<*, *>?): Config? {
+                if (map == null || map["enabled"] == false) return null
+                val deadline = (map["raceDeadlineMillis"] as? Number)?.toLong()?.coerceIn(100, 30000)
+                    ?: DEFAULT.raceDeadlineMillis
+                val maxStaleAge = (map["maxStaleAgeSeconds"] as? Number)?.toLong()?.coerceAtLeast(0)?.times(1000)
+                    ?: DEFAULT.maxStaleAgeMillis
+                return Config(deadline, maxStaleAge)
+            }
+        }
+    }
+
+    private enum class Decision { ONLINE, RACED, OFFLINE }
+
+    private class Pending(
+        val navigation: MapboxNavigation,
+        val routeOptions: RouteOptions,
+        val callback: NavigationRouterCallback,
+        val decision: Decision,
+        val maxStaleAgeMillis: Long
+    ) {
+        var sdkRequestId: Long? = null
+        var onlineStarted = false
+        var failure: List<RouterFailure>? = null
+        var lookingUp = false
+        var lookedUp = false
+        var stale: List<NavigationRoute>? = null
+        var deadlinePassed = false
+    }
+
+    private val mainHandler = Handler(Looper.getMainLooper())
+
+    private val pending = HashMap<Long, Pending>()
+    private var nextRequestId = 1L
+
+    private var online = 0L
+    private var raced = 0L
+    private var offline = 0L
+    private var raceOnlineWins = 0L
+    private var raceOfflineWins = 0L
+    private var deadlineHits = 0L
+    private var staleAnswers = 0L
+    private var failures = 0L
+    private val wins = HashMap<String, Long>()
+    private var lastRouterOrigin: String? = null
+
+    override fun requestRoutes(
+        navigation: MapboxNavigation,
+        routeOptions: RouteOptions,
+        callback: NavigationRouterCallback
+    ): Long {
+        val config = FlutterMapboxNavigationPlugin.hybridRouter ?: Config.DEFAULT
+        val decision = when (NetworkMonitor.quality(navigation.navigationOptions.applicationContext)) {
+            NetworkMonitor.Quality.GOOD -> Decision.ONLINE
+            NetworkMonitor.Quality.MARGINAL -> Decision.RACED
+            NetworkMonitor.Quality.POOR, NetworkMonitor.Quality.OFFLINE -> Decision.OFFLINE
+        }
+        val requestId = nextRequestId++
+        val request = Pending(navigation, routeOptions, callback, decision, config.maxStaleAgeMillis)
+        pending[requestId] = request
+
+        when (decision) {
+            Decision.ONLINE -> {
+                online++
+                startOnline(requestId, request)
+            }
+            Decision.RACED -> {
+                raced++
+                startOnline(requestId, request)
+                lookUpStale(requestId, request)
+                mainHandler.postDelayed({
+                    if (pending[requestId] !== request) return@postDelayed
+                    request.deadlinePassed = true
+                    deadlineHits++
+                    settle(requestId)
+                }, config.raceDeadlineMillis)
+            }
+            Decision.OFFLINE -> {
+                offline++
+                lookUpStale(requestId, request)
+            }
+        }
+        return requestId
+    }
+
+    override fun cancelRouteRequest(navigation: MapboxNavigation, requestId: Long) {
+        val request = pending.remove(requestId) ?: return
+        request.sdkRequestId?.let { navigation.cancelRouteRequest(it) }
+        request.callback.onCanceled(request.routeOptions, RouterOrigin.Custom())
+    }
+
+    /**
+     * Returns how many requests went online, raced or offline, how the races ended, how many were answered
+     * with stale routes or failed, the answers per [RouterOrigin] and the current network quality.
+     */
+    fun stats(): Map<String, Any?> {
+        return hashMapOf(
+            "enabled" to (FlutterMapboxNavigationPlugin.hybridRouter != null),
+            "quality" to NetworkMonitor.quality?.value,
+            "online" to online,
+            "raced" to raced,
+            "offline" to offline,
+            "raceOnlineWins" to raceOnlineWins,
+            "raceOfflineWins" to raceOfflineWins,
+            "deadlineHits" to deadlineHits,
+            "staleAnswers" to staleAnswers,
+            "failures" to failures,
+            "winsByOrigin" to HashMap(wins),
+            "lastRouterOrigin" to lastRouterOrigin
+        )
+    }
+
+    private fun startOnline(requestId: Long, request: Pending) {
+        request.onlineStarted = true
+        // the SDK calls back on the main thread, possibly after the request was answered or cancelled here
+        request.sdkRequestId = request.navigation.requestRoutes(request.routeOptions, object : NavigationRouterCallback {
+            override fun onRoutesReady(routes: List<NavigationRoute>, routerOrigin: RouterOrigin) {
+                if (pending[requestId] !== request) return
+                request.sdkRequestId = null
+                finish(requestId, routes, routerOrigin, false)
+            }
+
+            override fun onFailure(reasons: List<RouterFailure>, routeOptions: RouteOptions) {
+                if (pending[requestId] !== request) return
+                request.sdkRequestId = null
+                request.failure = reasons
+                settle(requestId)
+            }
+
+            override fun onCanceled(routeOptions: RouteOptions, routerOrigin: RouterOrigin) {
+                if (pending.remove(requestId) !== request) return
+                request.callback.onCanceled(routeOptions, routerOrigin)
+            }
+        })
+    }
+
+    private fun lookUpStale(requestId: Long, request: Pending) {
+        request.lookingUp = true
+        FlutterMapboxNavigationPlugin.routeResponseCache.stale(request.routeOptions, request.maxStaleAgeMillis) { routes ->
+            request.lookingUp = false
+            request.lookedUp = true
+            request.stale = routes?.takeIf { it.isNotEmpty() }
+            settle(requestId)
+        }
+    }
+
+    /**
+     * Answers [requestId] if what is known so far is enough, or starts what is still missing.
+     */
+    private fun settle(requestId: Long) {
+        val request = pending[requestId] ?: return
+        val stale = request.stale
+        val failure = request.failure
+        when {
+            stale != null && (request.decision != Decision.RACED || request.deadlinePassed || failure != null) ->
+                finish(requestId, stale, RouterOrigin.Custom(), true)
+            failure != null && request.lookedUp -> {
+                pending.remove(requestId)
+                failures++
+                request.callback.onFailure(failure, request.routeOptions)
+            }
+            failure != null && !request.lookingUp -> lookUpStale(requestId, request)
+            request.decision == Decision.OFFLINE && request.lookedUp && !request.onlineStarted ->
+                startOnline(requestId, request)
+        }
+    }
+
+    private fun finish(requestId: Long, routes: List<NavigationRoute>, routerOrigin: RouterOrigin, stale: Boolean) {
+        val request = pending.remove(requestId) ?: return
+        request.sdkRequestId?.let { request.navigation.cancelRouteRequest(it) }
+        if (request.decision == Decision.RACED) {
+            if (stale) raceOfflineWins++ else raceOnlineWins++
+        }
+        if (stale) staleAnswers++
+        val origin = routerOrigin.javaClass.simpleName
+        wins[origin] = (wins[origin] ?: 0L) + 1
+        lastRouterOrigin = origin
+        request.callback.onRoutesReady(routes, routerOrigin)
+    }
+}
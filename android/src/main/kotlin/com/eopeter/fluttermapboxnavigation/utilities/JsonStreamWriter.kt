@@ -0,0 +1,203 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+/**
+ * Writes JSON straight into a reusable [StringBuilder], without building a tree first.
+ *
+ * Output matches what the plugin produced before: compact objects match `Gson().toJson`,
+ * including its HTML safe escaping, and spaced objects match the hand written
+ * `{  "name": value,  "other": value}` format of the event envelope, [com.eopeter.fluttermapboxnavigation.models.MapBoxLocation]
+ * and [com.eopeter.fluttermapboxnavigation.models.MapBoxMileStone]. The one difference is that strings are
+ * always escaped, where the hand written format pasted them in as is.
+ *
+ * Use [obtain] to get the writer of the current thread, so steady state serialization only
+ * allocates the final string.
+ */
+class JsonStreamWriter {
+
+    companion object {
+        private const val MAX_DEPTH = 32
+        private val HEX = "0123456789abcdef".toCharArray()
+
+        private val writers = object : ThreadLocal<JsonStreamWriter>() {
+            override fun initialValue(): JsonStreamWriter = JsonStreamWriter()
+        }
+
+        /**
+         * Returns this thread's writer, emptied.
+         */
+        fun obtain(): JsonStreamWriter = writers.get()!!.reset()
+    }
+
+    private val buffer = StringBuilder(1024)
+    private val isArray = BooleanArray(MAX_DEPTH)
+    private val isSpaced = BooleanArray(MAX_DEPTH)
+    private val isEmpty = BooleanArray(MAX_DEPTH)
+    private var depth = 0
+    private var afterName = false
+
+    fun reset(): JsonStreamWriter {
+        buffer.setLength(0)
+        depth = 0
+        afterName = false
+        return this
+    }
+
+    fun beginObject(spaced: Boolean = false): JsonStreamWriter {
+        beforeValue()
+        buffer.append('{')
+        push(array = false, spaced = spaced)
+        return this
+    }
+
+    fun endObject(): JsonStreamWriter {
+        depth--
+        buffer.append('}')
+        return this
+    }
+
+    fun beginArray(): JsonStreamWriter {
+        beforeValue()
+        buffer.append('[')
+        push(array = true, spaced = false)
+        return this
+    }
+
+    fun endArray(): JsonStreamWriter {
+        depth--
+        buffer.append(']')
+        return this
+    }
+
+    fun name(name: String): JsonStreamWriter {
+        val level = depth - 1
+        if (!isEmpty[level]) buffer.append(',')
+        isEmpty[level] = false
+        if (isSpaced[level]) buffer.append("  ")
+        writeString(name, htmlSafe = true)
+        buffer.append(if (isSpaced[level]) ": " else ":")
+        afterName = true
+        return this
+    }
+
+    /**
+     * Writes [value] as a JSON string, or `null`. [htmlSafe] escapes `<>&='` like Gson does.
+     */
+    fun value(value: String?, htmlSafe: Boolean = true): JsonStreamWriter {
+        beforeValue()
+        if (value == null) buffer.append("null") else writeString(value, htmlSafe)
+        return this
+    }
+
+    /**
+     * Writes [value] with the same digits as its `toString()`, or `null`.
+     */
+    fun value(value: Number?): JsonStreamWriter {
+        beforeValue()
+        when (value) {
+            null -> buffer.append("null")
+            is Float -> buffer.append(value.toFloat())
+            is Double -> buffer.append(value.toDouble())
+            is Int -> buffer.append(value.toInt())
+            is Long -> buffer.append(value.toLong())
+            else -> buffer.append(value.toString())
+        }
+        return this
+    }
+
+    fun value(value: Boolean): JsonStreamWriter {
+        beforeValue()
+        buffer.append(value)
+        return this
+    }
+
+    /**
+     * Writes maps, lists, strings, numbers, booleans and null.
+     */
+    fun value(value: Any?): JsonStreamWriter {
+        when (value) {
+            null -> nullValue()
+            is String -> value(value)
+            is Number -> value(value)
+            is Boolean -> value(value)
+            is Map<*, *> -> {
+                beginObject()
+                for (entry in value) {
+                    name(entry.key.toString()).value(entry.value)
+                }
+                endObject()
+            }
+            is Iterable<*> -> {
+                beginArray()
+                for (item in value) {
+                    value(item)
+                }
+                endArray()
+            }
+            else -> value(value.toString())
+        }
+        return this
+    }
+
+    fun nullValue(): JsonStreamWriter {
+        beforeValue()
+        buffer.append("null")
+        return this
+    }
+
+    /**
+     * Writes [json] as is. It must already be valid JSON.
+     */
+    fun rawValue(json: String): JsonStreamWriter {
+        beforeValue()
+        buffer.append(json)
+        return this
+    }
+
+    override fun toString(): String = buffer.toString()
+
+    private fun push(array: Boolean, spaced: Boolean) {
+        isArray[depth] = array
+        isSpaced[depth] = spaced
+        isEmpty[depth] = true
+        depth++
+    }
+
+    private fun beforeValue() {
+        if (afterName) {
+            afterName = false
+            return
+        }
+        if (depth > 0 && isArray[depth - 1]) {
+            if (!isEmpty[depth - 1]) buffer.append(',')
+            isEmpty[depth - 1] = false
+        }
+    }
+
+    private fun writeString(value: String, htmlSafe: Boolean) {
+        buffer.append('"')
+        for (c in value) {
+            when {
+                c == '"' -> buffer.append("\\\"")
+                c == '\\' -> buffer.append("\\\\")
+                c == '\t' -> buffer.append("\\t")
+                c == '\b' -> buffer.append("\\b")
+                c == '\n' -> buffer.append("\\n")
+                c == '\r' -> buffer.append("\\r")
+                c == '\u000c' -> buffer.append("\\f")
+                c < ' ' || c == '\u2028' || c == '\u2029' -> appendUnicodeEscape(c)
+                htmlSafe && (c == '<' || c == '>' || c == '&' || c == '=' || c == '\'') -> appendUnicodeEscape(c)
+                else -> buffer.append(c)
+            }
+        }
+        buffer.append('"')
+    }
+
+    private fun appendUnicodeEscape(c: Char) {
+        val code = c.code
+        buffer.append("\\u")
+            .append(HEX[(code shr 12) and 0xf])
+            .append(HEX[(code shr 8) and 0xf])
+            .append(HEX[(code shr 4) and 0xf])
+            .append(HEX[code and 0xf])
+    }
+}
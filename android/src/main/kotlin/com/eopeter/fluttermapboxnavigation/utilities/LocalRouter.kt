@@ -0,0 +1,252 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.Looper
+import android.os.SystemClock
+import android.util.Log
+import com.eopeter.fluttermapboxnavigation.FlutterMapboxNavigationPlugin
+import com.mapbox.api.directions.v5.DirectionsCriteria
+import com.mapbox.api.directions.v5.models.DirectionsResponse
+import com.mapbox.api.directions.v5.models.DirectionsRoute
+import com.mapbox.api.directions.v5.models.DirectionsWaypoint
+import com.mapbox.api.directions.v5.models.LegStep
+import com.mapbox.api.directions.v5.models.RouteLeg
+import com.mapbox.api.directions.v5.models.RouteOptions
+import com.mapbox.api.directions.v5.models.StepIntersection
+import com.mapbox.api.directions.v5.models.StepManeuver
+import com.mapbox.geojson.Point
+import com.mapbox.geojson.utils.PolylineUtils
+import com.mapbox.navigation.base.route.NavigationRoute
+import com.mapbox.navigation.base.route.NavigationRouterCallback
+import com.mapbox.navigation.base.route.RouterOrigin
+import com.mapbox.navigation.core.MapboxNavigation
+import java.io.File
+import java.security.MessageDigest
+import java.util.Locale
+import kotlin.random.Random
+
+/**
+ * A [PluginRouter] that never touches the network, for the `localRouter` option, so route heavy flows
+ * can be tested and benchmarked offline.
+ *
+ * A request is answered with a recorded directions response from [Config.fixtureDirectory] if there is
+ * one for it, and otherwise with a route generated from the coordinates alone: straight lines between
+ * them, one leg per regular waypoint, a depart and an arrive step per leg and a constant speed per profile.
+ * Both are deterministic. Every answer waits [Config.latencyMillis] plus up to [Config.jitterMillis] from
+ * the request, with the jitter drawn from [Config.seed], to stand in for the network.
+ *
+ * All calls are expected on the main thread; files are read and routes built on a worker thread.
+ */
+object LocalRouter : PluginRouter {
+
+    data class Config(
+        val latencyMillis: Long,
+        val jitterMillis: Long,
+        val fixtureDirectory: File?,
+        val seed: Long
+    ) {
+        companion object {
+            /**
+             * Reads `{"latencyMillis": Int, "jitterMillis": Int, "fixtureDirectory": String, "seed": Int}`,
+             * or returns null to use the Navigation SDK.
+             */
+            fun fromMap(map: Map<*, *>?): Config? {
+                if (map == null || map["enabled"] == false) return null
+                val latency = (map["latencyMillis"] as? Number)?.toLong()?.coerceAtLeast(0) ?: 0L
+                val jitter = (map["jitterMillis"] as? Number)?.toLong()?.coerceAtLeast(0) ?: 0L
+                val directory = (map["fixtureDirectory"] as? String)?.let { File(it) }
+                val seed = (map["seed"] as? Number)?.toLong() ?: 0L
+                return Config(latency, jitter, directory, seed)
+            }
+        }
+    }
+
+    private class Pending(val routeOptions: RouteOptions, val callback: NavigationRouterCallback)
+
+    // meters per second
+    private const val WALKING_SPEED = 1.4
+    private const val CYCLING_SPEED = 4.5
+    private const val DRIVING_SPEED = 13.9
+
+    private val mainHandler = Handler(Looper.getMainLooper())
+    private val worker: Handler by lazy {
+        Handler(HandlerThread("MapboxNavigationLocalRouter").apply { start() }.looper)
+    }
+
+    private val pending = HashMap<Long, Pending>()
+    private var nextRequestId = 1L
+    private var random: Random? = null
+    private var randomSeed = 0L
+
+    override fun requestRoutes(
+        navigation: MapboxNavigation,
+        routeOptions: RouteOptions,
+        callback: NavigationRouterCallback
+    ): Long {
+        val config = FlutterMapboxNavigationPlugin.localRouter ?: Config(0, 0, null, 0)
+        val requestId = nextRequestId++
+        pending[requestId] = Pending(routeOptions, callback)
+        val answerAt = SystemClock.uptimeMillis() + config.latencyMillis + jitter(config)
+
+        worker.post {
+            val routes = try {
+                fixture(config, routeOptions) ?: generate(routeOptions)
+            } catch (e: Exception) {
+                Log.e("LocalRouter", "Failed to build a local route", e)
+                null
+            }
+            mainHandler.postAtTime({
+                val request = pending.remove(requestId) ?: return@postAtTime
+                if (routes == null) {
+                    request.callback.onFailure(emptyList(), routeOptions)
+                } else {
+                    request.callback.onRoutesReady(routes, RouterOrigin.Custom())
+                }
+            }, answerAt)
+        }
+        return requestId
+    }
+
+    override fun cancelRouteRequest(navigation: MapboxNavigation, requestId: Long) {
+        val request = pending.remove(requestId) ?: return
+        request.callback.onCanceled(request.routeOptions, RouterOrigin.Custom())
+    }
+
+    /**
+     * Returns the name of the fixture file answering [routeOptions]: the SHA-1, in hex, of the profile and
+     * the coordinates with 5 decimals, as in `driving-traffic/13.38886,52.51704;13.39763,52.52941`.
+     */
+    fun fixtureName(routeOptions: RouteOptions): String {
+        val coordinates = routeOptions.coordinatesList().joinToString(";") {
+            String.format(Locale.US, "%.5f,%.5f", it.longitude(), it.latitude())
+        }
+        val digest = MessageDigest.getInstance("SHA-1").digest("${routeOptions.profile()}/$coordinates".toByteArray())
+        return digest.joinToString("") { "%02x".format(it) } + ".json"
+    }
+
+    private fun jitter(config: Config): Long {
+        if (config.jitterMillis <= 0) return 0
+        val random = random?.takeIf { randomSeed == config.seed } ?: Random(config.seed).also {
+            random = it
+            randomSeed = config.seed
+        }
+        return random.nextLong(config.jitterMillis + 1)
+    }
+
+    private fun fixture(config: Config, routeOptions: RouteOptions): List<NavigationRoute>? {
+        val file = config.fixtureDirectory?.let { File(it, fixtureName(routeOptions)) } ?: return null
+        if (!file.exists()) return null
+        return NavigationRoute.create(file.readText(), routeOptions.toUrl("").toString(), RouterOrigin.Custom())
+    }
+
+    private fun generate(routeOptions: RouteOptions): List<NavigationRoute> {
+        val coordinates = routeOptions.coordinatesList()
+        val indices = routeOptions.waypointIndicesList() ?: coordinates.indices.toList()
+        val names = routeOptions.waypointNamesList()
+        val precision = RouteStitcher.precision(routeOptions)
+        val speed = when (routeOptions.profile()) {
+            DirectionsCriteria.PROFILE_WALKING -> WALKING_SPEED
+            DirectionsCriteria.PROFILE_CYCLING -> CYCLING_SPEED
+            else -> DRIVING_SPEED
+        }
+        val mode = when (routeOptions.profile()) {
+            DirectionsCriteria.PROFILE_WALKING -> "walking"
+            DirectionsCriteria.PROFILE_CYCLING -> "cycling"
+            else -> "driving"
+        }
+
+        val legs = indices.zipWithNext().map { (from, to) ->
+            val points = coordinates.subList(from, to + 1)
+            val distance = points.zipWithNext().sumOf { (a, b) -> GeoMath.distance(a, b) }
+            val duration = distance / speed
+            val name = names?.getOrNull(indices.indexOf(to)).orEmpty()
+            RouteLeg.builder()
+                .distance(distance)
+                .duration(duration)
+                .summary(name)
+                .steps(
+                    listOf(
+                        step(points, StepManeuver.DEPART, "Head to $name".trim(), mode, precision, speed),
+                        // a zero length step at the destination, like the Directions API ends every leg
+                        step(
+                            listOf(points.last(), points.last()),
+                            StepManeuver.ARRIVE,
+                            "Arrive at $name".trim(),
+                            mode,
+                            precision,
+                            speed
+                        )
+                    )
+                )
+                .build()
+        }
+
+        val route = DirectionsRoute.builder()
+            .distance(legs.sumOf { it.distance() ?: 0.0 })
+            .duration(legs.sumOf { it.duration() ?: 0.0 })
+            .weight(legs.sumOf { it.duration() ?: 0.0 })
+            .weightName("auto")
+            .geometry(PolylineUtils.encode(coordinates, precision))
+            .legs(legs)
+            .routeIndex("0")
+            .routeOptions(routeOptions)
+            .build()
+        val response = DirectionsResponse.builder()
+            .code("Ok")
+            .routes(listOf(route))
+            .waypoints(
+                indices.mapIndexed { index, coordinate ->
+                    val point = coordinates[coordinate]
+                    DirectionsWaypoint.builder()
+                        .name(names?.getOrNull(index).orEmpty())
+                        .rawLocation(doubleArrayOf(point.longitude(), point.latitude()))
+                        .build()
+                }
+            )
+            .build()
+        return NavigationRoute.create(response.toJson(), routeOptions.toUrl("").toString(), RouterOrigin.Custom())
+    }
+
+    private fun step(
+        points: List<Point>,
+        type: String,
+        instruction: String,
+        mode: String,
+        precision: Int,
+        speed: Double
+    ): LegStep {
+        val start = points.first()
+        val bearing = if (points.size > 1 && points[0] != points[1]) GeoMath.bearing(points[0], points[1]) else 0.0
+        val distance = points.zipWithNext().sumOf { (a, b) -> GeoMath.distance(a, b) }
+        val location = doubleArrayOf(start.longitude(), start.latitude())
+        return LegStep.builder()
+            .distance(distance)
+            .duration(distance / speed)
+            .weight(distance / speed)
+            .geometry(PolylineUtils.encode(points, precision))
+            .name("")
+            .mode(mode)
+            .drivingSide("right")
+            .maneuver(
+                StepManeuver.builder()
+                    .rawLocation(location)
+                    .type(type)
+                    .instruction(instruction)
+                    .bearingBefore(if (type == StepManeuver.DEPART) 0.0 else bearing)
+                    .bearingAfter(if (type == StepManeuver.ARRIVE) 0.0 else bearing)
+                    .build()
+            )
+            .intersections(
+                listOf(
+                    StepIntersection.builder()
+                        .rawLocation(location)
+                        .bearings(listOf(bearing.toInt()))
+                        .entry(listOf(true))
+                        .apply { if (type == StepManeuver.ARRIVE) `in`(0) else out(0) }
+                        .build()
+                )
+            )
+            .build()
+    }
+}
@@ -0,0 +1,23 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.mapbox.api.directions.v5.models.RouteOptions
+import com.mapbox.navigation.base.route.NavigationRouterCallback
+import com.mapbox.navigation.core.MapboxNavigation
+
+/**
+ * The [PluginRouter] of the Navigation SDK, onboard or offboard depending on its configuration.
+ */
+object MapboxRouter : PluginRouter {
+
+    override fun requestRoutes(
+        navigation: MapboxNavigation,
+        routeOptions: RouteOptions,
+        callback: NavigationRouterCallback
+    ): Long {
+        return navigation.requestRoutes(routeOptions, callback)
+    }
+
+    override fun cancelRouteRequest(navigation: MapboxNavigation, requestId: Long) {
+        navigation.cancelRouteRequest(requestId)
+    }
+}
@@ -855,6 +855,16 @@ class MarkerManager(
         }
     }
     
+    /**
+     * Positions of the markers with [markerIds], or of all markers when null
+     */
+    fun positions(markerIds: List<String>? = null): Map<String, Point> {
+        val ids = markerIds ?: markers.keys.toList()
+        val positions = LinkedHashMap<String, Point>(ids.size)
+        ids.forEach { id -> markers[id]?.let { positions[id] = it.point } }
+        return positions
+    }
+    
     /**
      * Clear all markers
      */
@@ -0,0 +1,200 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.eopeter.fluttermapboxnavigation.models.MapBoxEvents
+import com.eopeter.fluttermapboxnavigation.models.MapBoxMileStone
+import com.mapbox.navigation.base.trip.model.RouteProgress
+import java.util.EnumMap
+
+/**
+ * Sends a [MapBoxEvents.MILESTONE_EVENT] when the route progress crosses one of the milestones of
+ * [milestonesSource], set with the `milestones` option or `setMilestones` of the view or the full screen
+ * navigation it belongs to, so listeners don't have to watch every progress for them.
+ *
+ * The thresholds of every [Metric] are kept sorted, with the ones of decreasing metrics negated so all of
+ * them grow as the trip goes on. Every progress only looks for the thresholds between the furthest value
+ * seen so far and the new one, with two binary searches, and moves that mark forward. A milestone therefore
+ * fires once, when it is crossed, and not again when the value goes back and forth across it, as the time
+ * remaining does with traffic. The first progress only sets the marks, so a trip resumed halfway doesn't
+ * fire the milestones already behind it. The marks of [Metric.perLeg] metrics start over on every leg, and
+ * the distance traveled adds up over reroutes, which start their own count from zero.
+ *
+ * All calls are expected on the main thread, where the observers run.
+ */
+class MilestoneEngine(
+    private val milestonesSource: () -> List<Milestone>,
+    private val send: (MapBoxMileStone) -> Unit
+) {
+
+    companion object {
+        /**
+         * Returns the index of the first key greater than [value], or the size of [keys] if there is none.
+         */
+        internal fun upperBound(keys: DoubleArray, value: Double): Int {
+            var low = 0
+            var high = keys.size
+            while (low < high) {
+                val middle = (low + high) ushr 1
+                if (keys[middle] <= value) low = middle + 1 else high = middle
+            }
+            return low
+        }
+    }
+
+    enum class Metric(val value: String, val perLeg: Boolean, private val sign: Double) {
+        DISTANCE_TRAVELED("distanceTraveled", false, 1.0),
+        DISTANCE_REMAINING("distanceRemaining", false, -1.0),
+        DURATION_REMAINING("durationRemaining", false, -1.0),
+        LEG_INDEX("legIndex", false, 1.0),
+        STEP_INDEX("stepIndex", true, 1.0),
+        LEG_FRACTION("legFraction", true, 1.0);
+
+        /**
+         * Returns [value] as a key that grows as the trip goes on.
+         */
+        fun key(value: Double): Double = value * sign
+
+        companion object {
+            fun fromValue(value: String?): Metric? {
+                return values().firstOrNull { it.value == value }
+            }
+        }
+    }
+
+    data class Milestone(val identifier: Int, val metric: Metric, val value: Double) {
+        companion object {
+            /**
+             * Reads `[{"identifier": Int, "type": String, "value": Number}]`, skipping invalid entries.
+             */
+            fun listFromArguments(list: List<*>?): List<Milestone> {
+                return list.orEmpty().mapNotNull { item ->
+                    val map = item as? Map<*, *> ?: return@mapNotNull null
+                    val identifier = (map["identifier"] as? Number)?.toInt() ?: return@mapNotNull null
+                    val metric = Metric.fromValue(map["type"] as? String) ?: return@mapNotNull null
+                    val value = (map["value"] as? Number)?.toDouble() ?: return@mapNotNull null
+                    Milestone(identifier, metric, value)
+                }
+            }
+        }
+    }
+
+    /**
+     * The values of a route progress the milestones are checked against.
+     */
+    internal class Progress(
+        val routeId: String,
+        val legIndex: Int?,
+        val stepIndex: Int?,
+        val legFraction: Double?,
+        val distanceTraveled: Double,
+        val distanceRemaining: Double,
+        val durationRemaining: Double
+    )
+
+    private class Thresholds(val keys: DoubleArray, val milestones: List<Milestone>)
+
+    private var compiledFrom: List<Milestone>? = null
+    private val thresholds = EnumMap<Metric, Thresholds>(Metric::class.java)
+
+    // the furthest key seen per metric, absent until the first progress of its scope
+    private val marks = EnumMap<Metric, Double>(Metric::class.java)
+
+    private var routeId: String? = null
+    private var legIndex = -1
+    private var traveledBefore = 0.0
+    private var lastTraveled = 0.0
+
+    /**
+     * Starts a new trip, so the next progress sets the marks again.
+     */
+    fun reset() {
+        marks.clear()
+        routeId = null
+        legIndex = -1
+        traveledBefore = 0.0
+        lastTraveled = 0.0
+    }
+
+    fun onRouteProgress(progress: RouteProgress) {
+        val legProgress = progress.currentLegProgress
+        onProgress(
+            Progress(
+                progress.navigationRoute.id,
+                legProgress?.legIndex,
+                legProgress?.currentStepProgress?.stepIndex,
+                legProgress?.fractionTraveled?.toDouble(),
+                progress.distanceTraveled.toDouble(),
+                progress.distanceRemaining.toDouble(),
+                progress.durationRemaining
+            )
+        )
+    }
+
+    internal fun onProgress(progress: Progress) {
+        val milestones = milestonesSource()
+        if (milestones !== compiledFrom) compile(milestones)
+        if (thresholds.isEmpty()) return
+
+        val id = progress.routeId
+        if (id != routeId) {
+            // a reroute counts the distance from where it started
+            if (routeId != null) traveledBefore += lastTraveled
+            routeId = id
+        }
+        lastTraveled = progress.distanceTraveled
+        val leg = progress.legIndex ?: 0
+        if (leg != legIndex) {
+            legIndex = leg
+            Metric.values().filter { it.perLeg }.forEach { marks.remove(it) }
+        }
+
+        for ((metric, thresholds) in thresholds) {
+            val value = value(metric, progress) ?: continue
+            val key = metric.key(value)
+            val mark = marks[metric]
+            if (mark == null || key <= mark) {
+                if (mark == null) marks[metric] = key
+                continue
+            }
+            marks[metric] = key
+            // the thresholds in (mark, key]
+            val from = upperBound(thresholds.keys, mark)
+            val to = upperBound(thresholds.keys, key)
+            for (i in from until to) {
+                send(milestone(thresholds.milestones[i], progress))
+            }
+        }
+    }
+
+    private fun compile(milestones: List<Milestone>) {
+        compiledFrom = milestones
+        thresholds.clear()
+        milestones.groupBy { it.metric }.forEach { (metric, list) ->
+            val sorted = list.sortedBy { metric.key(it.value) }
+            thresholds[metric] = Thresholds(DoubleArray(sorted.size) { metric.key(sorted[it].value) }, sorted)
+        }
+    }
+
+    private fun value(metric: Metric, progress: Progress): Double? {
+        return when (metric) {
+            Metric.DISTANCE_TRAVELED -> traveledBefore + progress.distanceTraveled
+            Metric.DISTANCE_REMAINING -> progress.distanceRemaining
+            Metric.DURATION_REMAINING -> progress.durationRemaining
+            Metric.LEG_INDEX -> progress.legIndex?.toDouble()
+            Metric.STEP_INDEX -> progress.stepIndex?.toDouble()
+            Metric.LEG_FRACTION -> progress.legFraction
+        }
+    }
+
+    private fun milestone(milestone: Milestone, progress: Progress): MapBoxMileStone {
+        return MapBoxMileStone(
+            milestone.identifier,
+            traveledBefore + progress.distanceTraveled,
+            progress.legIndex,
+            progress.stepIndex,
+            milestone.metric.value,
+            milestone.value,
+            progress.distanceRemaining,
+            progress.durationRemaining
+        )
+    }
+}
@@ -0,0 +1,145 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.content.Context
+import android.net.ConnectivityManager
+import android.net.Network
+import android.net.NetworkCapabilities
+import android.net.NetworkRequest
+import android.os.Build
+import android.util.Log
+
+/**
+ * Keeps the quality of the default network up to date from [ConnectivityManager] callbacks, so it can be
+ * read on every route request and progress without asking the system each time.
+ *
+ * A network without internet, or one the system couldn't validate yet, as in a dead zone, is [Quality.OFFLINE]
+ * or [Quality.POOR]. Otherwise the downstream bandwidth the link reports tells [Quality.POOR] from
+ * [Quality.MARGINAL] and [Quality.GOOD]. The callbacks run on a system thread; [quality] can be read from any.
+ *
+ * From Android N the default network is followed, so the capabilities handed to the callbacks are the ones
+ * classified, and losing it is [Quality.OFFLINE]. Before, any network with internet is followed, and every
+ * callback asks the system for the default network again, as another one may still be up.
+ */
+object NetworkMonitor {
+
+    // downstream bandwidth in kbps
+    const val POOR_KBPS = 150
+    const val MARGINAL_KBPS = 1000
+
+    enum class Quality(val value: String) {
+        OFFLINE("offline"),
+        POOR("poor"),
+        MARGINAL("marginal"),
+        GOOD("good")
+    }
+
+    /**
+     * The quality last seen, or null before [start].
+     */
+    @Volatile
+    var quality: Quality? = null
+        private set
+
+    @Volatile
+    var changedAt = 0L
+        private set
+
+    private var connectivityManager: ConnectivityManager? = null
+
+    private val defaultNetworkCallback = object : ConnectivityManager.NetworkCallback() {
+        override fun onAvailable(network: Network) = refresh()
+
+        override fun onLost(network: Network) = update(Quality.OFFLINE)
+
+        override fun onCapabilitiesChanged(network: Network, capabilities: NetworkCapabilities) =
+            update(classify(capabilities))
+    }
+
+    private val anyNetworkCallback = object : ConnectivityManager.NetworkCallback() {
+        override fun onAvailable(network: Network) = refresh()
+
+        override fun onLost(network: Network) = refresh()
+
+        override fun onCapabilitiesChanged(network: Network, capabilities: NetworkCapabilities) = refresh()
+    }
+
+    /**
+     * Starts following the network, unless already done, with a first quality asked to the system before
+     * returning. Only the first call needs a [context].
+     */
+    @Synchronized
+    fun start(context: Context) {
+        if (connectivityManager != null) return
+        val manager = context.applicationContext.getSystemService(Context.CONNECTIVITY_SERVICE) as ConnectivityManager
+        connectivityManager = manager
+        refresh()
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                manager.registerDefaultNetworkCallback(defaultNetworkCallback)
+            } else {
+                val request = NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build()
+                manager.registerNetworkCallback(request, anyNetworkCallback)
+            }
+        } catch (e: RuntimeException) {
+            // too many callbacks registered by the app, the state then only comes from start
+            Log.e("NetworkMonitor", "Failed to follow the network", e)
+        }
+    }
+
+    /**
+     * Returns the current quality, starting to follow the network first if needed.
+     */
+    fun quality(context: Context): Quality {
+        start(context)
+        return quality ?: Quality.GOOD
+    }
+
+    fun isAvailable(context: Context): Boolean {
+        return quality(context) != Quality.OFFLINE
+    }
+
+    private fun refresh() {
+        val manager = connectivityManager ?: return
+        val quality = try {
+            query(manager)
+        } catch (e: SecurityException) {
+            // without ACCESS_NETWORK_STATE nothing is known, so nothing is skipped
+            Quality.GOOD
+        }
+        update(quality)
+    }
+
+    private fun update(quality: Quality) {
+        if (quality != this.quality) {
+            this.quality = quality
+            changedAt = System.currentTimeMillis()
+        }
+    }
+
+    private fun query(manager: ConnectivityManager): Quality {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            val info = manager.activeNetworkInfo ?: return Quality.OFFLINE
+            return if (info.isConnected) Quality.GOOD else Quality.OFFLINE
+        }
+        val network = manager.activeNetwork ?: return Quality.OFFLINE
+        val capabilities = manager.getNetworkCapabilities(network) ?: return Quality.OFFLINE
+        return classify(capabilities)
+    }
+
+    private fun classify(capabilities: NetworkCapabilities): Quality {
+        if (!capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)) return Quality.OFFLINE
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M &&
+            !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)
+        ) {
+            return Quality.POOR
+        }
+        val bandwidth = capabilities.linkDownstreamBandwidthKbps
+        return when {
+            bandwidth in 1 until POOR_KBPS -> Quality.POOR
+            bandwidth in POOR_KBPS until MARGINAL_KBPS -> Quality.MARGINAL
+            else -> Quality.GOOD
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.mapbox.api.directions.v5.models.RouteOptions
+import com.mapbox.navigation.base.route.NavigationRouterCallback
+import com.mapbox.navigation.core.MapboxNavigation
+
+/**
+ * Where the route requests of the plugin end up, below [RouteRequestCoordinator], [RouteChunker] and
+ * the [RouteResponseCache]. [MapboxRouter] asks the Navigation SDK, [LocalRouter] answers without a network
+ * and [HybridRouter] picks between the SDK and cached routes from the quality of the network.
+ *
+ * Callbacks are called on the main thread, like the ones of [MapboxNavigation.requestRoutes].
+ */
+interface PluginRouter {
+
+    /**
+     * Requests the routes for [routeOptions] and returns an id to cancel the request with.
+     */
+    fun requestRoutes(
+        navigation: MapboxNavigation,
+        routeOptions: RouteOptions,
+        callback: NavigationRouterCallback
+    ): Long
+
+    /**
+     * Cancels a request, whose callback then gets `onCanceled` if it hasn't been answered yet.
+     */
+    fun cancelRouteRequest(navigation: MapboxNavigation, requestId: Long)
+}
@@ -2,11 +2,11 @@ package com.eopeter.fluttermapboxnavigation.utilities
 
 import android.app.Activity
 import android.content.Context
-import android.net.ConnectivityManager
-import android.net.NetworkCapabilities
 import android.os.Build
 import com.eopeter.fluttermapboxnavigation.FlutterMapboxNavigationPlugin
+import com.eopeter.fluttermapboxnavigation.models.MapBoxEventFormat
 import com.eopeter.fluttermapboxnavigation.models.MapBoxEvents
+import com.eopeter.fluttermapboxnavigation.models.MapBoxProgressEventMode
 import com.eopeter.fluttermapboxnavigation.models.MapBoxRouteProgressEvent
 import io.flutter.plugin.common.MethodCall
 import java.io.ByteArrayInputStream
@@ -33,25 +33,146 @@ class PluginUtilities {
             return context.getString(stringRes)
         }
 
+        private val globalRoute: EventRouter.Route
+            get() = FlutterMapboxNavigationPlugin.eventRouter.global
+
         fun sendEvent(event: MapBoxRouteProgressEvent) {
-            val dataString = event.toJson()
-            val jsonString = "{" +
-                    "  \"eventType\": \"${MapBoxEvents.PROGRESS_CHANGE.value}\"," +
-                    "  \"data\": $dataString" +
-                    "}"
-            FlutterMapboxNavigationPlugin.eventSink?.success(jsonString)
+            sendEvent(globalRoute, event)
         }
 
         fun sendEvent(event: MapBoxEvents, data: String = "") {
-            val jsonString =
-                if (MapBoxEvents.MILESTONE_EVENT == event || event == MapBoxEvents.USER_OFF_ROUTE || event == MapBoxEvents.ROUTE_BUILT || event == MapBoxEvents.ON_MAP_TAP) "{" +
-                        "  \"eventType\": \"${event.value}\"," +
-                        "  \"data\": $data" +
-                        "}" else "{" +
-                        "  \"eventType\": \"${event.value}\"," +
-                        "  \"data\": \"$data\"" +
-                        "}"
-            FlutterMapboxNavigationPlugin.eventSink?.success(jsonString)
+            sendEvent(globalRoute, event, data)
+        }
+
+        /**
+         * Sends an event whose data is a JSON object, e.g. the tapped point of [MapBoxEvents.ON_MAP_TAP].
+         */
+        fun sendEvent(event: MapBoxEvents, data: Map<String, Any?>) {
+            sendEvent(globalRoute, event, data)
+        }
+
+        /**
+         * Sends an event whose data is a JSON array, e.g. the routes of [MapBoxEvents.ROUTE_BUILT].
+         */
+        fun sendEvent(event: MapBoxEvents, data: List<Any?>) {
+            sendEvent(globalRoute, event, data)
+        }
+
+        fun sendEvent(route: EventRouter.Route, event: MapBoxRouteProgressEvent) {
+            if (route.progressEventMode == MapBoxProgressEventMode.NONE) return
+            route.scheduler.schedule(MapBoxEvents.PROGRESS_CHANGE, event.duplicateKey) {
+                // buffered progress must be a full snapshot, the delta state belongs to the sinks
+                val subscribed = route.hasSubscribers
+                emit(route, MapBoxEvents.PROGRESS_CHANGE) { encodeEvent(route, event, allowDelta = subscribed) }
+            }
+        }
+
+        fun sendEvent(route: EventRouter.Route, event: MapBoxEvents, data: String = "") {
+            route.scheduler.schedule(event, data) {
+                emit(route, event) { encodeEvent(route, event, data) }
+            }
+        }
+
+        fun sendEvent(route: EventRouter.Route, event: MapBoxEvents, data: Map<String, Any?>) {
+            route.scheduler.schedule(event, data) {
+                emit(route, event) { encodeEvent(route, event, data) }
+            }
+        }
+
+        fun sendEvent(route: EventRouter.Route, event: MapBoxEvents, data: List<Any?>) {
+            route.scheduler.schedule(event, data) {
+                emit(route, event) { encodeEvent(route, event, data) }
+            }
+        }
+
+        /**
+         * Encodes the event on the [EventPipeline] worker of the route when it has one, or right away otherwise.
+         * Nothing is encoded while the route has no subscribers and wouldn't buffer the event.
+         */
+        private fun emit(route: EventRouter.Route, event: MapBoxEvents, encode: () -> Any?) {
+            if (!route.accepts(event)) return
+            val pipeline = route.pipeline
+            if (pipeline != null) {
+                pipeline.offer(route, event, encode)
+            } else {
+                encode()?.let { route.deliver(event, it) }
+            }
+        }
+
+        private fun encodeEvent(route: EventRouter.Route, event: MapBoxRouteProgressEvent, allowDelta: Boolean): Any? {
+            if (allowDelta && route.progressEventMode == MapBoxProgressEventMode.DELTA) {
+                val delta = route.progressDeltaEncoder.delta(event, route.generation)
+                if (delta != null) {
+                    return if (delta.isNotEmpty()) encodeEvent(route, MapBoxEvents.PROGRESS_DELTA, delta) else null
+                }
+            }
+            if (isBinaryEventFormat(route)) {
+                return binaryEvent(MapBoxEvents.PROGRESS_CHANGE, event.toMap())
+            }
+            val writer = beginJsonEvent(MapBoxEvents.PROGRESS_CHANGE)
+            event.writeJson(writer)
+            return writer.endObject().toString()
+        }
+
+        private fun encodeEvent(route: EventRouter.Route, event: MapBoxEvents, data: String): Any {
+            if (isBinaryEventFormat(route)) {
+                return binaryEvent(event, data)
+            }
+            return jsonEvent(event, data)
+        }
+
+        /**
+         * Builds the JSON envelope of an event with string [data].
+         *
+         * Plain text data used to be pasted between quotes as is, which broke the envelope as soon as it held
+         * a quote, a backslash or a line break, e.g. in some error messages. It is escaped now, but not HTML
+         * safe escaped, so text without those characters is sent byte for byte as before.
+         */
+        internal fun jsonEvent(event: MapBoxEvents, data: String): String {
+            val writer = beginJsonEvent(event)
+            if (MapBoxEvents.MILESTONE_EVENT == event || event == MapBoxEvents.USER_OFF_ROUTE || event == MapBoxEvents.ROUTE_BUILT || event == MapBoxEvents.ON_MAP_TAP) {
+                // these events carry JSON, but are sent without data at times
+                if (data.isEmpty()) writer.value(data) else writer.rawValue(data)
+            } else {
+                writer.value(data, htmlSafe = false)
+            }
+            return writer.endObject().toString()
+        }
+
+        private fun encodeEvent(route: EventRouter.Route, event: MapBoxEvents, data: Map<String, Any?>): Any {
+            if (isBinaryEventFormat(route)) {
+                return binaryEvent(event, data)
+            }
+            return beginJsonEvent(event).value(data).endObject().toString()
+        }
+
+        private fun encodeEvent(route: EventRouter.Route, event: MapBoxEvents, data: List<Any?>): Any {
+            if (isBinaryEventFormat(route)) {
+                return binaryEvent(event, data)
+            }
+            return beginJsonEvent(event).value(data).endObject().toString()
+        }
+
+        /**
+         * Starts the `{"eventType": ..., "data": ...}` envelope of a JSON event, ready for the data to be written.
+         */
+        private fun beginJsonEvent(event: MapBoxEvents): JsonStreamWriter {
+            return JsonStreamWriter.obtain()
+                .beginObject(spaced = true)
+                .name("eventType").value(event.value)
+                .name("data")
+        }
+
+        private fun isBinaryEventFormat(route: EventRouter.Route): Boolean {
+            return route.format == MapBoxEventFormat.BINARY
+        }
+
+        /**
+         * Binary events are a two element list of the event ordinal and its payload,
+         * which the channel's StandardMessageCodec writes as typed values.
+         */
+        private fun binaryEvent(event: MapBoxEvents, payload: Any?): Any {
+            return listOf(event.ordinal, payload)
         }
 
         fun getListOfStringById(key: String, call: MethodCall): ArrayList<String> {
@@ -115,27 +236,23 @@ class PluginUtilities {
             }
         }
 
-        fun isNetworkAvailable(context: Context): Boolean {
-            val connectivityManager =
-                context.getSystemService(Context.CONNECTIVITY_SERVICE) as ConnectivityManager
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                val nw = connectivityManager.activeNetwork ?: return false
-                val actNw = connectivityManager.getNetworkCapabilities(nw) ?: return false
-                return when {
-                    actNw.hasTransport(NetworkCapabilities.TRANSPORT_WIFI) -> true
-                    actNw.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR) -> true
-                    // for other device how are able to connect with Ethernet
-                    actNw.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET) -> true
-                    // for check internet over Bluetooth
-                    actNw.hasTransport(NetworkCapabilities.TRANSPORT_BLUETOOTH) -> true
-                    else -> false
-                }
-            } else {
-                val nwInfo = connectivityManager.activeNetworkInfo ?: return false
-                return nwInfo.isConnected
+        /**
+         * Reads a matrix of travel times sent as a list of lists of numbers, or returns null.
+         */
+        fun durationMatrix(value: Any?): List<List<Double>>? {
+            val rows = value as? List<*> ?: return null
+            return rows.map { row ->
+                (row as? List<*>)?.map { (it as? Number)?.toDouble() ?: return null } ?: return null
             }
         }
 
+        /**
+         * Tells whether there is a network with internet, from the state cached by [NetworkMonitor].
+         */
+        fun isNetworkAvailable(context: Context): Boolean {
+            return NetworkMonitor.isAvailable(context)
+        }
+
         fun <T : Serializable?> getSerializable(
             activity: Activity,
             name: String,
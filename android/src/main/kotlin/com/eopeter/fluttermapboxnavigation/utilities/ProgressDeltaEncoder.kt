@@ -0,0 +1,35 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.eopeter.fluttermapboxnavigation.models.MapBoxRouteProgressEvent
+
+/**
+ * Tracks the last progress sent on a route and decides whether the next one
+ * can go out as a delta or needs a full snapshot.
+ *
+ * A full snapshot is required for the first progress, whenever a new sink subscribed
+ * to the [EventRouter.Route] (a new generation) and whenever the route or the leg index changes.
+ */
+class ProgressDeltaEncoder {
+
+    private var lastEvent: MapBoxRouteProgressEvent? = null
+    private var lastGeneration = -1
+
+    /**
+     * Returns the changed fields of [event] to send as a delta, or null when a full snapshot must be sent.
+     * An empty map means nothing changed since the last progress.
+     */
+    fun delta(event: MapBoxRouteProgressEvent, generation: Int): Map<String, Any?>? {
+        val previous = lastEvent
+        if (previous == null || generation != lastGeneration || !event.hasSameLeg(previous)) {
+            lastEvent = event
+            lastGeneration = generation
+            return null
+        }
+
+        val delta = event.toDeltaMap(previous)
+        if (delta.isNotEmpty()) {
+            lastEvent = event
+        }
+        return delta
+    }
+}
@@ -0,0 +1,163 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.eopeter.fluttermapboxnavigation.FlutterMapboxNavigationPlugin
+import com.mapbox.api.directions.v5.models.RouteOptions
+import com.mapbox.navigation.base.route.NavigationRoute
+import com.mapbox.navigation.base.route.NavigationRouterCallback
+import com.mapbox.navigation.base.route.RouterFailure
+import com.mapbox.navigation.base.route.RouterOrigin
+import com.mapbox.navigation.core.MapboxNavigation
+import com.mapbox.navigation.core.reroute.NavigationRerouteController
+
+/**
+ * Requests routes through more waypoints than the Directions API takes in one request.
+ *
+ * The coordinates are split into segments of at most [MAX_COORDINATES] that share their end points.
+ * Segments end on regular waypoints, so silent waypoints stay silent and every leg of the original
+ * request is a leg of exactly one segment. The segments are requested at the same time, through
+ * [FlutterMapboxNavigationPlugin.routeResponseCache], and their legs are stitched into one route by [RouteStitcher]
+ * with the original options, so progress is reported per leg as if it had been one request.
+ *
+ * A stitched route has no alternatives and doesn't refresh, since no single response backs it.
+ * The SDK would reroute it with the options of the whole route, which the Directions API refuses, so
+ * [onRoutesChanged] turns rerouting off while such a route is active: going off route only sends
+ * `user_off_route`, and the app builds a new route if it wants one.
+ *
+ * Requests that fit in one are passed through unchanged. All calls are expected on the main thread.
+ */
+object RouteChunker {
+
+    const val MAX_COORDINATES = 25
+
+    // the reroute controller set aside while a chunked route is active
+    private var rerouteController: NavigationRerouteController? = null
+    private var rerouteDisabled = false
+
+    /**
+     * Turns the reroute of [navigation] off while the primary route of [routes] has more coordinates than
+     * one request takes, and back on once it is replaced. Called from the `RoutesObserver`s.
+     */
+    fun onRoutesChanged(navigation: MapboxNavigation, routes: List<NavigationRoute>) {
+        val chunked = (routes.firstOrNull()?.routeOptions?.coordinatesList()?.size ?: 0) > MAX_COORDINATES
+        if (chunked == rerouteDisabled) return
+        rerouteDisabled = chunked
+        if (chunked) {
+            rerouteController = navigation.getRerouteController()
+            val none: NavigationRerouteController? = null
+            navigation.setRerouteController(none)
+        } else {
+            navigation.setRerouteController(rerouteController)
+            rerouteController = null
+        }
+    }
+
+    /**
+     * Requests the routes for [routeOptions] and returns the requests in flight, to cancel them.
+     */
+    fun requestRoutes(
+        navigation: MapboxNavigation,
+        routeOptions: RouteOptions,
+        callback: NavigationRouterCallback
+    ): List<RouteResponseCache.Request> {
+        val cache = FlutterMapboxNavigationPlugin.routeResponseCache
+        if (routeOptions.coordinatesList().size <= MAX_COORDINATES) {
+            return listOf(cache.requestRoutes(navigation, routeOptions, callback))
+        }
+
+        val (segments, options) = split(routeOptions)
+        val results = arrayOfNulls<NavigationRoute>(segments.size)
+        var remaining = segments.size
+        var done = false
+        val requests = mutableListOf<RouteResponseCache.Request>()
+
+        fun fail(report: () -> Unit) {
+            if (done) return
+            done = true
+            requests.forEach { it.cancel() }
+            report()
+        }
+
+        segments.forEachIndexed { index, segment ->
+            requests.add(cache.requestRoutes(navigation, segment, object : NavigationRouterCallback {
+                override fun onRoutesReady(routes: List<NavigationRoute>, routerOrigin: RouterOrigin) {
+                    if (done) return
+                    val route = routes.firstOrNull()
+                    if (route == null) {
+                        fail { callback.onRoutesReady(emptyList(), routerOrigin) }
+                        return
+                    }
+                    results[index] = route
+                    if (--remaining > 0) return
+                    done = true
+                    val parts = results.map { it!! }
+                    RouteStitcher.stitchAsync(parts.first(), options, { parts.map { RouteStitcher.piece(it) } }) {
+                        if (requests.any { r -> r.isCancelled }) return@stitchAsync
+                        if (it == null) {
+                            callback.onFailure(emptyList(), routeOptions)
+                        } else {
+                            callback.onRoutesReady(it, RouterOrigin.Custom())
+                        }
+                    }
+                }
+
+                override fun onFailure(reasons: List<RouterFailure>, routeOptions: RouteOptions) {
+                    fail { callback.onFailure(reasons, options) }
+                }
+
+                override fun onCanceled(routeOptions: RouteOptions, routerOrigin: RouterOrigin) {
+                    fail { callback.onCanceled(options, routerOrigin) }
+                }
+            }))
+        }
+        return requests
+    }
+
+    /**
+     * Splits [routeOptions] into segments that end on regular waypoints where possible, and returns them with
+     * the options of the whole route. A segment that has to end on a silent waypoint makes it a regular one.
+     */
+    internal fun split(routeOptions: RouteOptions): Pair<List<RouteOptions>, RouteOptions> {
+        val coordinates = routeOptions.coordinatesList()
+        val last = coordinates.size - 1
+        val indices = routeOptions.waypointIndicesList() ?: (0..last).toList()
+        val regular = indices.toSortedSet()
+        regular.add(0)
+        regular.add(last)
+        val names = routeOptions.waypointNamesList()?.let { list ->
+            indices.zip(list).toMap().toMutableMap()
+        }
+
+        val bounds = mutableListOf<Pair<Int, Int>>()
+        var from = 0
+        while (from < last) {
+            val limit = minOf(from + MAX_COORDINATES - 1, last)
+            var to = limit
+            if (to < last) {
+                to = (limit downTo from + 1).firstOrNull { it in regular } ?: limit
+            }
+            if (regular.add(to)) names?.put(to, "")
+            bounds.add(from to to)
+            from = to
+        }
+
+        val segments = bounds.map { (start, end) ->
+            val segmentIndices = regular.filter { it in start..end }
+            val builder = routeOptions.toBuilder()
+                .coordinatesList(coordinates.subList(start, end + 1))
+                .waypointIndicesList(segmentIndices.map { it - start })
+                .alternatives(false)
+            names?.let { map -> builder.waypointNamesList(segmentIndices.map { map[it] ?: "" }) }
+            routeOptions.bearingsList()?.let { builder.bearingsList(it.subList(start, end + 1)) }
+            routeOptions.radiusesList()?.let { builder.radiusesList(it.subList(start, end + 1)) }
+            routeOptions.approachesList()?.let { builder.approachesList(it.subList(start, end + 1)) }
+            builder.build()
+        }
+
+        val whole = routeOptions.toBuilder()
+            .waypointIndicesList(regular.toList())
+            .alternatives(false)
+            .enableRefresh(false)
+        names?.let { map -> whole.waypointNamesList(regular.map { map[it] ?: "" }) }
+        return Pair(segments, whole.build())
+    }
+}
@@ -0,0 +1,196 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import com.eopeter.fluttermapboxnavigation.FlutterMapboxNavigationPlugin
+import com.eopeter.fluttermapboxnavigation.models.Waypoint
+import com.eopeter.fluttermapboxnavigation.models.WaypointSet
+import com.mapbox.api.directions.v5.DirectionsCriteria
+import com.mapbox.api.directions.v5.models.RouteOptions
+import com.mapbox.geojson.Point
+import com.mapbox.navigation.base.extensions.applyDefaultNavigationOptions
+import com.mapbox.navigation.base.route.NavigationRoute
+import com.mapbox.navigation.base.route.NavigationRouterCallback
+import com.mapbox.navigation.base.route.RouterFailure
+import com.mapbox.navigation.base.route.RouterOrigin
+import com.mapbox.navigation.core.MapboxNavigation
+
+/**
+ * Requests the same trip for several profiles at once, for the `compareRoutes` method.
+ *
+ * Every profile is requested at the same time through [RouteChunker] and the route cache, so comparing
+ * three modes takes as long as the slowest of them instead of all three in a row. Whatever hasn't
+ * answered when the deadline passes is cancelled and reported as `timeout`. The navigation mode of the
+ * view is left alone.
+ *
+ * The best route of every profile is kept in the [RouteRegistry], under the comparisons of the owner,
+ * so its handle can be used with `getRoute`, `getRouteLegs` and the other route methods.
+ * All calls are expected on the main thread.
+ */
+class RouteComparison {
+
+    companion object {
+        const val DEFAULT_TIMEOUT_MILLIS = 8000L
+        val DEFAULT_PROFILES = listOf("drivingWithTraffic", "cycling", "walking")
+
+        /**
+         * Returns the Directions API profile of a `MapBoxNavigationMode` name, or null for an unknown one.
+         */
+        fun profile(mode: String?): String? {
+            return when (mode) {
+                "walking" -> DirectionsCriteria.PROFILE_WALKING
+                "cycling" -> DirectionsCriteria.PROFILE_CYCLING
+                "driving" -> DirectionsCriteria.PROFILE_DRIVING
+                "drivingWithTraffic" -> DirectionsCriteria.PROFILE_DRIVING_TRAFFIC
+                else -> null
+            }
+        }
+    }
+
+    // the routes of a comparison don't replace the routes built for navigation
+    private data class Key(val owner: Any)
+
+    private class Outcome(val mode: String) {
+        var status = "timeout"
+        var route: NavigationRoute? = null
+        var routerOrigin: RouterOrigin? = null
+        var millis = 0L
+    }
+
+    private val handler = Handler(Looper.getMainLooper())
+    private val inFlight = HashMap<Any, () -> Unit>()
+
+    /**
+     * Compares the routes through the `wayPoints` of [arguments] for the `profiles` and reports, within
+     * `timeoutMillis`, one summary per profile to [onDone]:
+     * `{"profiles": [{"mode", "status", "routeId", "distance", "duration", "routerOrigin", "millis"}], "elapsedMillis"}`.
+     * A newer comparison of the same [owner] cancels the previous one, which then reports nothing.
+     */
+    fun compare(
+        owner: Any,
+        navigation: MapboxNavigation,
+        arguments: Map<*, *>?,
+        language: String,
+        voiceUnits: String,
+        onDone: (Map<String, Any?>) -> Unit
+    ) {
+        cancel(owner)
+        val startedAt = SystemClock.elapsedRealtime()
+        val waypoints = waypoints(arguments?.get("wayPoints") as? Map<*, *>)
+        val modes = (arguments?.get("profiles") as? List<*>)?.mapNotNull { it as? String }?.distinct()
+            ?: DEFAULT_PROFILES
+        val timeout = (arguments?.get("timeoutMillis") as? Number)?.toLong()?.coerceAtLeast(0)
+            ?: DEFAULT_TIMEOUT_MILLIS
+
+        val outcomes = modes.map { Outcome(it) }
+        val requests = mutableListOf<RouteResponseCache.Request>()
+        var remaining = outcomes.size
+        var done = false
+
+        fun finish() {
+            if (done) return
+            done = true
+            inFlight.remove(owner)
+            handler.removeCallbacksAndMessages(owner)
+            requests.forEach { if (!it.isCancelled) it.cancel() }
+            val routes = outcomes.mapNotNull { it.route }
+            FlutterMapboxNavigationPlugin.routeRegistry.register(Key(owner), routes)
+            onDone(summary(outcomes, SystemClock.elapsedRealtime() - startedAt))
+        }
+
+        inFlight[owner] = {
+            done = true
+            handler.removeCallbacksAndMessages(owner)
+            requests.forEach { it.cancel() }
+        }
+        handler.postAtTime({ finish() }, owner, SystemClock.uptimeMillis() + timeout)
+
+        for (outcome in outcomes) {
+            val profile = profile(outcome.mode)
+            if (waypoints.coordinatesList().size < 2 || profile == null) {
+                outcome.status = "invalid"
+                remaining--
+                continue
+            }
+            val routeOptions = RouteOptions.builder()
+                .applyDefaultNavigationOptions(profile)
+                .coordinatesList(waypoints.coordinatesList())
+                .waypointIndicesList(waypoints.waypointsIndices())
+                .waypointNamesList(waypoints.waypointsNames())
+                .language(language)
+                .voiceUnits(voiceUnits)
+                .alternatives(false)
+                .steps(true)
+                .build()
+            requests.addAll(RouteChunker.requestRoutes(navigation, routeOptions, object : NavigationRouterCallback {
+                override fun onRoutesReady(routes: List<NavigationRoute>, routerOrigin: RouterOrigin) {
+                    val route = routes.firstOrNull()
+                    outcome.route = route
+                    outcome.routerOrigin = routerOrigin
+                    answer(if (route == null) "noRoute" else "ok")
+                }
+
+                override fun onFailure(reasons: List<RouterFailure>, routeOptions: RouteOptions) {
+                    answer("failed")
+                }
+
+                override fun onCanceled(routeOptions: RouteOptions, routerOrigin: RouterOrigin) {
+                    answer("cancelled")
+                }
+
+                private fun answer(status: String) {
+                    if (done) return
+                    outcome.status = status
+                    outcome.millis = SystemClock.elapsedRealtime() - startedAt
+                    if (--remaining == 0) finish()
+                }
+            }))
+        }
+        if (remaining == 0) finish()
+    }
+
+    /**
+     * Cancels the comparison of [owner] in flight, if any.
+     */
+    fun cancel(owner: Any) {
+        inFlight.remove(owner)?.invoke()
+    }
+
+    fun release(owner: Any) {
+        cancel(owner)
+        FlutterMapboxNavigationPlugin.routeRegistry.release(Key(owner))
+    }
+
+    private fun summary(outcomes: List<Outcome>, elapsedMillis: Long): Map<String, Any?> {
+        return hashMapOf(
+            "profiles" to outcomes.map { outcome ->
+                val route = outcome.route
+                hashMapOf(
+                    "mode" to outcome.mode,
+                    "status" to outcome.status,
+                    "routeId" to route?.id,
+                    "distance" to route?.directionsRoute?.distance(),
+                    "duration" to route?.directionsRoute?.duration(),
+                    "routerOrigin" to outcome.routerOrigin?.javaClass?.simpleName,
+                    "millis" to outcome.millis
+                )
+            },
+            "elapsedMillis" to elapsedMillis
+        )
+    }
+
+    private fun waypoints(points: Map<*, *>?): WaypointSet {
+        val waypoints = WaypointSet()
+        val entries = points?.entries?.sortedBy { (it.key as? Number)?.toInt() ?: 0 }.orEmpty()
+        for (item in entries) {
+            val point = item.value as? Map<*, *> ?: continue
+            val latitude = point["Latitude"] as? Double ?: continue
+            val longitude = point["Longitude"] as? Double ?: continue
+            val name = point["Name"] as? String ?: ""
+            val isSilent = point["IsSilent"] as? Boolean ?: false
+            waypoints.add(Waypoint(name, Point.fromLngLat(longitude, latitude), isSilent))
+        }
+        return waypoints
+    }
+}
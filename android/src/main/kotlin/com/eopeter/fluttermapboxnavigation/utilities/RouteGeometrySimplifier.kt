@@ -0,0 +1,134 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.mapbox.geojson.Point
+import kotlin.math.PI
+import kotlin.math.cos
+import kotlin.math.pow
+import kotlin.math.sqrt
+
+/**
+ * Simplifies a route geometry for display at a given zoom level with Douglas-Peucker.
+ *
+ * A single Douglas-Peucker pass records for every point the tolerance, in meters, below which it is
+ * kept. The simplification for any tolerance is then a filter over these values, and the
+ * simplifications for the integer zoom levels, the LOD pyramid, are cached as they are requested.
+ *
+ * Distances use an equirectangular projection around the middle of the route, which is accurate
+ * enough for the tolerances of a map display.
+ */
+class RouteGeometrySimplifier(private val points: List<Point>) {
+
+    companion object {
+        const val MAX_ZOOM = 22
+        const val DEFAULT_PIXEL_TOLERANCE = 1.0
+
+        private const val EARTH_RADIUS = 6378137.0
+        private const val EARTH_CIRCUMFERENCE = 2 * PI * EARTH_RADIUS
+        private const val TILE_SIZE = 512
+    }
+
+    private val xs = DoubleArray(points.size)
+    private val ys = DoubleArray(points.size)
+    private val significance = DoubleArray(points.size)
+    private val midLatitude: Double
+    private val pyramid = arrayOfNulls<IntArray>(MAX_ZOOM + 1)
+
+    init {
+        midLatitude = if (points.isEmpty()) 0.0 else points[points.size / 2].latitude()
+        val metersPerDegree = EARTH_RADIUS * PI / 180
+        val lngScale = metersPerDegree * cos(Math.toRadians(midLatitude))
+        for (i in points.indices) {
+            xs[i] = points[i].longitude() * lngScale
+            ys[i] = points[i].latitude() * metersPerDegree
+        }
+        computeSignificance()
+    }
+
+    val size: Int
+        get() = points.size
+
+    /**
+     * Meters covered by one screen pixel at [zoom] around this route.
+     */
+    fun metersPerPixel(zoom: Double): Double {
+        return EARTH_CIRCUMFERENCE * cos(Math.toRadians(midLatitude)) / (TILE_SIZE * 2.0.pow(zoom))
+    }
+
+    /**
+     * Returns the points to draw at [zoom], dropping the ones closer than [pixelTolerance] pixels to the
+     * simplified line. Integer zoom levels with the default tolerance come from the cached pyramid.
+     */
+    fun simplify(zoom: Double, pixelTolerance: Double = DEFAULT_PIXEL_TOLERANCE): List<Point> {
+        val clampedZoom = zoom.coerceIn(0.0, MAX_ZOOM.toDouble())
+        val level = clampedZoom.toInt()
+        val indices = if (pixelTolerance == DEFAULT_PIXEL_TOLERANCE && level.toDouble() == clampedZoom) {
+            pyramid[level] ?: indices(metersPerPixel(clampedZoom) * pixelTolerance).also { pyramid[level] = it }
+        } else {
+            indices(metersPerPixel(clampedZoom) * pixelTolerance)
+        }
+        return indices.map { points[it] }
+    }
+
+    private fun indices(tolerance: Double): IntArray {
+        var count = 0
+        for (value in significance) {
+            if (value >= tolerance) count++
+        }
+        val result = IntArray(count)
+        var next = 0
+        for (i in significance.indices) {
+            if (significance[i] >= tolerance) result[next++] = i
+        }
+        return result
+    }
+
+    /**
+     * Iterative Douglas-Peucker that never stops splitting, recording the distance at which every point
+     * was chosen. A point can't outlive the point that split its segment, so the value is capped by it.
+     */
+    private fun computeSignificance() {
+        val last = points.size - 1
+        if (last < 0) return
+        significance[0] = Double.MAX_VALUE
+        significance[last] = Double.MAX_VALUE
+        if (last < 2) return
+
+        val stack = ArrayDeque<IntArray>()
+        stack.addLast(intArrayOf(0, last))
+        while (stack.isNotEmpty()) {
+            val (start, end) = stack.removeLast().let { it[0] to it[1] }
+            if (end - start < 2) continue
+
+            var farthest = -1
+            var maxDistance = -1.0
+            for (i in start + 1 until end) {
+                val distance = segmentDistance(i, start, end)
+                if (distance > maxDistance) {
+                    maxDistance = distance
+                    farthest = i
+                }
+            }
+
+            val cap = minOf(
+                if (start == 0) Double.MAX_VALUE else significance[start],
+                if (end == last) Double.MAX_VALUE else significance[end]
+            )
+            significance[farthest] = minOf(maxDistance, cap)
+            stack.addLast(intArrayOf(start, farthest))
+            stack.addLast(intArrayOf(farthest, end))
+        }
+    }
+
+    private fun segmentDistance(i: Int, start: Int, end: Int): Double {
+        val dx = xs[end] - xs[start]
+        val dy = ys[end] - ys[start]
+        val lengthSquared = dx * dx + dy * dy
+        if (lengthSquared == 0.0) {
+            return distance(xs[i] - xs[start], ys[i] - ys[start])
+        }
+        val t = (((xs[i] - xs[start]) * dx + (ys[i] - ys[start]) * dy) / lengthSquared).coerceIn(0.0, 1.0)
+        return distance(xs[i] - (xs[start] + t * dx), ys[i] - (ys[start] + t * dy))
+    }
+
+    private fun distance(dx: Double, dy: Double): Double = sqrt(dx * dx + dy * dy)
+}
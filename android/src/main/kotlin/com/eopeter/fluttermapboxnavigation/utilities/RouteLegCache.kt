@@ -0,0 +1,63 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.eopeter.fluttermapboxnavigation.models.MapBoxRouteLeg
+import com.mapbox.api.directions.v5.models.RouteLeg
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Remembers the converted and serialized form of route legs, keyed by navigation route id and leg index,
+ * so a progress update doesn't walk the steps of a leg that was already sent.
+ *
+ * A [RouteLeg] is immutable, but a refreshed route keeps its id while getting new legs, so an entry
+ * is only reused for the very leg instance it was built from. [retain] drops the legs of routes that
+ * are gone and is called from the `RoutesObserver`s.
+ *
+ * Lookups happen on the main thread or on the [EventPipeline] worker.
+ */
+class RouteLegCache {
+
+    private data class Key(val routeId: String, val legIndex: Int)
+
+    /**
+     * A converted leg with its JSON and binary payloads, each built the first time it is needed.
+     */
+    class Entry(val source: RouteLeg) {
+        val leg = MapBoxRouteLeg(source)
+
+        val json: String by lazy {
+            // not the thread's shared writer, which may be busy with the progress event embedding this leg
+            val writer = JsonStreamWriter()
+            leg.writeJson(writer)
+            writer.toString()
+        }
+
+        val map: Map<String, Any?> by lazy {
+            leg.toMap()
+        }
+    }
+
+    private val entries = ConcurrentHashMap<Key, Entry>()
+
+    fun get(routeId: String, legIndex: Int, leg: RouteLeg): Entry {
+        val key = Key(routeId, legIndex)
+        val cached = entries[key]
+        if (cached != null && cached.source === leg) {
+            return cached
+        }
+
+        val entry = Entry(leg)
+        entries[key] = entry
+        return entry
+    }
+
+    /**
+     * Drops the legs of every route not in [routeIds].
+     */
+    fun retain(routeIds: Collection<String>) {
+        entries.keys.removeAll { it.routeId !in routeIds }
+    }
+
+    fun clear() {
+        entries.clear()
+    }
+}
@@ -0,0 +1,187 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.mapbox.geojson.Point
+import kotlin.math.abs
+import kotlin.math.ceil
+import kotlin.math.cos
+import kotlin.math.floor
+import kotlin.math.max
+import kotlin.math.sqrt
+
+/**
+ * Projects positions onto the line of a route: the nearest point of the route, the distance to it and
+ * the distance along the route up to it.
+ *
+ * The segments of the line are bucketed in a grid of [CELL_METERS] cells when the index is built, so a
+ * query only looks at the segments of the cells around it instead of the whole line, and the distance
+ * along the route is read from the cumulated segment lengths. Near a point the earth is taken as flat, in
+ * meters east and north of it. The index never changes once built and can be read from any thread.
+ */
+class RouteProjectionIndex(private val points: List<Point>) {
+
+    companion object {
+        const val CELL_METERS = 250.0
+
+        private const val METERS_PER_DEGREE = GeoMath.EARTH_RADIUS * Math.PI / 180
+    }
+
+    /**
+     * The projection of a position on the route. [crossTrack] is the distance in meters from the position
+     * to the route, positive when the position is to the right of the direction of travel and negative
+     * when it is to the left. [along] is the distance in meters from the start of the route to [nearest].
+     */
+    data class Projection(
+        val segment: Int,
+        val along: Double,
+        val crossTrack: Double,
+        val nearest: Point
+    )
+
+    /**
+     * The distance in meters from the start of the route to every point.
+     */
+    private val cumulative = DoubleArray(points.size)
+
+    val length: Double
+
+    private val cellLat = CELL_METERS / METERS_PER_DEGREE
+    private val cellLng: Double
+    private val cells = HashMap<Long, IntArray>()
+
+    init {
+        var total = 0.0
+        var maxLatitude = 0.0
+        for (i in points.indices) {
+            if (i > 0) total += GeoMath.distance(points[i - 1], points[i])
+            cumulative[i] = total
+            maxLatitude = max(maxLatitude, abs(points[i].latitude()))
+        }
+        length = total
+        // sized for the highest latitude, so no cell is narrower than CELL_METERS
+        cellLng = CELL_METERS / (METERS_PER_DEGREE * cos(Math.toRadians(maxLatitude.coerceAtMost(89.0))))
+
+        val buckets = HashMap<Long, MutableList<Int>>()
+        for (segment in 0 until points.size - 1) {
+            val a = points[segment]
+            val b = points[segment + 1]
+            val dx = (b.longitude() - a.longitude()) / cellLng
+            val dy = (b.latitude() - a.latitude()) / cellLat
+            // samples at most half a cell apart, so every cell the segment crosses is a neighbour of one
+            val samples = ceil(max(abs(dx), abs(dy)) * 2).toInt().coerceAtLeast(1)
+            var last = Long.MIN_VALUE
+            for (s in 0..samples) {
+                val t = s.toDouble() / samples
+                val key = key(
+                    cellX(a.longitude() + (b.longitude() - a.longitude()) * t),
+                    cellY(a.latitude() + (b.latitude() - a.latitude()) * t)
+                )
+                if (key == last) continue
+                last = key
+                val bucket = buckets.getOrPut(key) { mutableListOf() }
+                if (bucket.lastOrNull() != segment) bucket.add(segment)
+            }
+        }
+        buckets.forEach { (key, segments) -> cells[key] = segments.toIntArray() }
+    }
+
+    /**
+     * Returns the projection of the position at [longitude] and [latitude], or null if the route is
+     * further than [maxDistance] meters from it.
+     */
+    fun project(longitude: Double, latitude: Double, maxDistance: Double): Projection? {
+        if (points.size < 2) return null
+        val cosLat = cos(Math.toRadians(latitude))
+        val cx = cellX(longitude)
+        val cy = cellY(latitude)
+        val maxRing = ceil(maxDistance / CELL_METERS).toInt() + 2
+
+        var best = Double.MAX_VALUE
+        var bestSegment = -1
+        var bestT = 0.0
+        var bestCross = 0.0
+        for (ring in 0..maxRing) {
+            forEachCellOfRing(cx, cy, ring) { segments ->
+                for (segment in segments) {
+                    val a = points[segment]
+                    val b = points[segment + 1]
+                    // meters east and north of the position
+                    val ax = (a.longitude() - longitude) * cosLat * METERS_PER_DEGREE
+                    val ay = (a.latitude() - latitude) * METERS_PER_DEGREE
+                    val bx = (b.longitude() - longitude) * cosLat * METERS_PER_DEGREE
+                    val by = (b.latitude() - latitude) * METERS_PER_DEGREE
+                    val sx = bx - ax
+                    val sy = by - ay
+                    val lengthSquared = sx * sx + sy * sy
+                    val t = if (lengthSquared > 0) ((-ax * sx - ay * sy) / lengthSquared).coerceIn(0.0, 1.0) else 0.0
+                    val px = ax + sx * t
+                    val py = ay + sy * t
+                    val distance = sqrt(px * px + py * py)
+                    if (distance < best) {
+                        best = distance
+                        bestSegment = segment
+                        bestT = t
+                        // the position is on the right when the segment turns clockwise to it
+                        bestCross = if (sx * -ay - sy * -ax < 0) distance else -distance
+                    }
+                }
+            }
+            // a segment nearer than best is registered at most two rings further than its distance
+            if (best <= (ring - 1) * CELL_METERS) break
+        }
+        if (bestSegment < 0 || best > maxDistance) return null
+
+        val a = points[bestSegment]
+        val b = points[bestSegment + 1]
+        val segmentLength = cumulative[bestSegment + 1] - cumulative[bestSegment]
+        return Projection(
+            bestSegment,
+            cumulative[bestSegment] + segmentLength * bestT,
+            bestCross,
+            Point.fromLngLat(
+                a.longitude() + (b.longitude() - a.longitude()) * bestT,
+                a.latitude() + (b.latitude() - a.latitude()) * bestT
+            )
+        )
+    }
+
+    /**
+     * Projects the positions packed as longitude and latitude pairs in [coordinates]. Returns the distance
+     * along the route, the signed cross track distance and the longitude and latitude of the nearest point
+     * of every position in three arrays, with NaN for the positions further than [maxDistance] meters.
+     */
+    fun projectAll(coordinates: DoubleArray, maxDistance: Double): Array<DoubleArray> {
+        val count = coordinates.size / 2
+        val along = DoubleArray(count)
+        val crossTrack = DoubleArray(count)
+        val nearest = DoubleArray(count * 2)
+        for (i in 0 until count) {
+            val projection = project(coordinates[i * 2], coordinates[i * 2 + 1], maxDistance)
+            along[i] = projection?.along ?: Double.NaN
+            crossTrack[i] = projection?.crossTrack ?: Double.NaN
+            nearest[i * 2] = projection?.nearest?.longitude() ?: Double.NaN
+            nearest[i * 2 + 1] = projection?.nearest?.latitude() ?: Double.NaN
+        }
+        return arrayOf(along, crossTrack, nearest)
+    }
+
+    private inline fun forEachCellOfRing(cx: Int, cy: Int, ring: Int, action: (IntArray) -> Unit) {
+        if (ring == 0) {
+            cells[key(cx, cy)]?.let(action)
+            return
+        }
+        for (x in cx - ring..cx + ring) {
+            cells[key(x, cy - ring)]?.let(action)
+            cells[key(x, cy + ring)]?.let(action)
+        }
+        for (y in cy - ring + 1 until cy + ring) {
+            cells[key(cx - ring, y)]?.let(action)
+            cells[key(cx + ring, y)]?.let(action)
+        }
+    }
+
+    private fun cellX(longitude: Double): Int = floor(longitude / cellLng).toInt()
+
+    private fun cellY(latitude: Double): Int = floor(latitude / cellLat).toInt()
+
+    private fun key(x: Int, y: Int): Long = (x.toLong() shl 32) or (y.toLong() and 0xffffffffL)
+}
@@ -0,0 +1,127 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.Looper
+import android.util.Log
+import com.mapbox.geojson.Point
+import com.mapbox.geojson.utils.PolylineUtils
+import com.mapbox.navigation.base.route.NavigationRoute
+import com.mapbox.navigation.base.trip.model.RouteProgress
+
+/**
+ * Keeps a [RouteProjectionIndex] of the active route and tells how far ahead of or behind the driver, along
+ * the route, other positions are, such as the members of a convoy shown with markers.
+ *
+ * The index is built on a worker thread once per routes update, so a batch of thousands of positions
+ * costs a few grid lookups each. Until the index of a new route is ready, positions are not projected.
+ * All calls are expected on the main thread.
+ */
+class RouteProjector {
+
+    companion object {
+        const val DEFAULT_MAX_DISTANCE = 500.0
+    }
+
+    private val mainHandler = Handler(Looper.getMainLooper())
+    private val worker: Handler by lazy {
+        Handler(HandlerThread("MapboxNavigationRouteProjector").apply { start() }.looper)
+    }
+
+    var routeId: String? = null
+        private set
+
+    /**
+     * The index of the route [routeId], or null while it is built.
+     */
+    var index: RouteProjectionIndex? = null
+        private set
+
+    private var fractionTraveled = 0.0
+
+    /**
+     * The distance in meters from the start of the indexed route to the driver.
+     */
+    val driverAlong: Double
+        get() = (index?.length ?: 0.0) * fractionTraveled
+
+    /**
+     * Indexes the primary route of [routes], unless it is already indexed.
+     */
+    fun onRoutesChanged(routes: List<NavigationRoute>) {
+        val route = routes.firstOrNull()
+        if (route?.id == routeId) return
+        routeId = route?.id
+        index = null
+        fractionTraveled = 0.0
+        if (route == null) return
+
+        val id = route.id
+        worker.post {
+            val built = try {
+                val geometry = route.directionsRoute.geometry()
+                val points = if (geometry == null) {
+                    emptyList()
+                } else {
+                    PolylineUtils.decode(geometry, RouteStitcher.precision(route.routeOptions))
+                }
+                RouteProjectionIndex(points)
+            } catch (e: Exception) {
+                Log.e("RouteProjector", "Failed to index route $id", e)
+                null
+            }
+            mainHandler.post {
+                // the route may have changed while it was indexed
+                if (routeId == id) index = built
+            }
+        }
+    }
+
+    fun onRouteProgress(progress: RouteProgress) {
+        if (progress.navigationRoute.id != routeId) return
+        val total = progress.distanceTraveled + progress.distanceRemaining
+        fractionTraveled = if (total > 0) (progress.distanceTraveled / total).toDouble() else 0.0
+    }
+
+    /**
+     * Projects the positions of the `coordinates` argument, longitude and latitude pairs, and of
+     * [markers] onto the active route. Positions further than the `maxDistance` argument in meters from
+     * the route are not projected.
+     *
+     * Returns the route id, its length and the distance along it of the driver, with arrays holding for
+     * every position, the ones of [markers] last: `along`, the distance from the start of the route,
+     * `ahead`, the distance in front of the driver, negative behind, `crossTrack`, the signed distance to
+     * the route, and `nearest`, the longitude and latitude of the nearest point of the route. Positions
+     * that weren't projected have NaN. Returns null while there is no indexed route.
+     */
+    fun project(arguments: Map<*, *>?, markers: Map<String, Point> = emptyMap()): Map<String, Any?>? {
+        val index = this.index ?: return null
+        val maxDistance = (arguments?.get("maxDistance") as? Number)?.toDouble() ?: DEFAULT_MAX_DISTANCE
+        val given = when (val value = arguments?.get("coordinates")) {
+            is DoubleArray -> value
+            is List<*> -> DoubleArray(value.size) { (value[it] as? Number)?.toDouble() ?: Double.NaN }
+            else -> DoubleArray(0)
+        }
+        val ids = markers.keys.toList()
+        val coordinates = given.copyOf(given.size - given.size % 2 + ids.size * 2)
+        var offset = given.size - given.size % 2
+        for (id in ids) {
+            val point = markers.getValue(id)
+            coordinates[offset++] = point.longitude()
+            coordinates[offset++] = point.latitude()
+        }
+
+        val (along, crossTrack, nearest) = index.projectAll(coordinates, maxDistance)
+        val driver = driverAlong
+        return hashMapOf(
+            "routeId" to routeId,
+            "length" to index.length,
+            "driverAlong" to driver,
+            "along" to along,
+            "ahead" to DoubleArray(along.size) { along[it] - driver },
+            "crossTrack" to crossTrack,
+            "nearest" to nearest,
+            "markerIds" to ids
+        )
+    }
+}
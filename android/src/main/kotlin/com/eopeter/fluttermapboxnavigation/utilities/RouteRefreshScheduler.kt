@@ -0,0 +1,224 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.content.Context
+import android.os.SystemClock
+import com.eopeter.fluttermapboxnavigation.FlutterMapboxNavigationPlugin
+import com.mapbox.navigation.base.ExperimentalPreviewMapboxNavigationAPI
+import com.mapbox.navigation.base.trip.model.RouteProgress
+import com.mapbox.navigation.core.MapboxNavigation
+import com.mapbox.navigation.core.routerefresh.RouteRefreshExtra
+import com.mapbox.navigation.core.routerefresh.RouteRefreshStatesObserver
+import kotlin.math.abs
+
+/**
+ * Refreshes the traffic annotations and ETA of the active route as often as they are likely to matter,
+ * while the `enableRefresh` option is set, instead of at the fixed interval of the SDK.
+ *
+ * The interval starts at an eighth of the remaining duration, between [MIN_INTERVAL_MILLIS] and
+ * [MAX_INTERVAL_MILLIS], so a long trip isn't refreshed every few minutes for hours. It is halved where
+ * the next [LOOKAHEAD_METERS] have many maneuvers, as in cities, and doubled where they have almost none,
+ * as on motorways. It is halved again while the ETA has drifted from the one of the last refresh, since
+ * traffic is then changing. No refresh is made within [MIN_DISTANCE_REMAINING] of the destination, or
+ * without a network, in which case the next one is tried after [MIN_INTERVAL_MILLIS].
+ *
+ * The planned refreshes of the SDK are paused while attached and every refresh is requested here, so
+ * the outcomes counted by [stats] are the ones of this schedule. The full screen navigation and every
+ * embedded view share the one navigation instance, so each of them attaches as its own owner and the
+ * navigation is only let go when the last one detaches. All calls are expected on the main thread.
+ */
+@OptIn(ExperimentalPreviewMapboxNavigationAPI::class)
+class RouteRefreshScheduler {
+
+    companion object {
+        const val MIN_INTERVAL_MILLIS = 60_000L
+        const val MAX_INTERVAL_MILLIS = 900_000L
+        const val LOOKAHEAD_METERS = 5000.0
+        const val MIN_DISTANCE_REMAINING = 1000f
+
+        // maneuvers per kilometer ahead
+        private const val DENSE_STEPS_PER_KM = 2.0
+        private const val SPARSE_STEPS_PER_KM = 0.4
+
+        private const val MIN_DRIFT_SECONDS = 60.0
+        private const val DRIFT_FRACTION = 0.05
+    }
+
+    private var navigation: MapboxNavigation? = null
+    private var context: Context? = null
+    private val owners = mutableSetOf<Any>()
+    private var enabled = false
+    // whether the immediate refresh requested here hasn't finished yet
+    private var refreshing = false
+
+    private var routeId: String? = null
+    private var lastRefreshAt = 0L
+    private var refreshStartedAt = 0L
+    // elapsed realtime at which the last refresh expected to arrive, in milliseconds
+    private var baselineArrival: Long? = null
+    private var lastInterval = 0L
+    private var lastReason = ""
+
+    private var requested = 0L
+    private var succeeded = 0L
+    private var failed = 0L
+    private var expired = 0L
+    private var cancelled = 0L
+    private var skippedOffline = 0L
+    private var refreshMillisTotal = 0L
+
+    private val refreshStatesObserver = RouteRefreshStatesObserver { result ->
+        val now = SystemClock.elapsedRealtime()
+        when (result.state) {
+            RouteRefreshExtra.REFRESH_STATE_STARTED -> refreshStartedAt = now
+            RouteRefreshExtra.REFRESH_STATE_FINISHED_SUCCESS -> {
+                succeeded++
+                if (refreshStartedAt > 0) refreshMillisTotal += now - refreshStartedAt
+                // the refreshed durations are the new reference for the drift
+                baselineArrival = null
+            }
+            RouteRefreshExtra.REFRESH_STATE_FINISHED_FAILED -> failed++
+            RouteRefreshExtra.REFRESH_STATE_CLEARED_EXPIRED -> expired++
+            RouteRefreshExtra.REFRESH_STATE_CANCELED -> cancelled++
+        }
+        if (result.state != RouteRefreshExtra.REFRESH_STATE_STARTED && refreshing) {
+            refreshing = false
+            // an immediate refresh resumes the planned ones, which are only meant to run when not scheduled here
+            if (enabled) navigation?.let { it.routeRefreshController.pauseRouteRefreshes() }
+        }
+    }
+
+    /**
+     * Observes the refreshes of [navigation] for [owner]. They are scheduled here while
+     * [FlutterMapboxNavigationPlugin.enableRefresh] is set and left to the SDK otherwise.
+     */
+    fun attach(owner: Any, navigation: MapboxNavigation, context: Context) {
+        if (this.navigation !== navigation) {
+            release()
+            this.navigation = navigation
+            this.context = context.applicationContext
+            navigation.routeRefreshController.registerRouteRefreshStateObserver(refreshStatesObserver)
+            lastRefreshAt = SystemClock.elapsedRealtime()
+            baselineArrival = null
+        }
+        owners.add(owner)
+    }
+
+    /**
+     * Stops observing for [owner], and gives the refreshes back to the SDK once no owner is left.
+     */
+    fun detach(owner: Any) {
+        if (!owners.remove(owner) || owners.isNotEmpty()) return
+        release()
+    }
+
+    private fun release() {
+        owners.clear()
+        val navigation = this.navigation ?: return
+        navigation.routeRefreshController.unregisterRouteRefreshStateObserver(refreshStatesObserver)
+        setEnabled(navigation, false)
+        this.navigation = null
+        this.context = null
+        routeId = null
+        refreshing = false
+    }
+
+    fun onRouteProgress(progress: RouteProgress) {
+        val navigation = this.navigation ?: return
+        setEnabled(navigation, FlutterMapboxNavigationPlugin.enableRefresh)
+        if (!enabled) return
+        val now = SystemClock.elapsedRealtime()
+        if (progress.navigationRoute.id != routeId) {
+            // a new or rerouted route comes with fresh annotations
+            routeId = progress.navigationRoute.id
+            lastRefreshAt = now
+            baselineArrival = null
+        }
+        val arrival = now + (progress.durationRemaining * 1000).toLong()
+        val baseline = baselineArrival ?: arrival.also { baselineArrival = it }
+        val sinceLast = now - lastRefreshAt
+        if (sinceLast < MIN_INTERVAL_MILLIS) return
+        if (progress.distanceRemaining < MIN_DISTANCE_REMAINING) return
+
+        val interval = interval(progress, abs(arrival - baseline) / 1000.0)
+        lastInterval = interval
+        if (sinceLast < interval) return
+
+        lastRefreshAt = now
+        if (context?.let { PluginUtilities.isNetworkAvailable(it) } == false) {
+            skippedOffline++
+            lastReason = "offline"
+            return
+        }
+        requested++
+        refreshing = true
+        navigation.routeRefreshController.requestImmediateRouteRefresh()
+    }
+
+    /**
+     * Returns the refresh counters, the last interval in seconds with the reason for it, and the average
+     * time in milliseconds from the start to the success of a refresh.
+     */
+    fun stats(): Map<String, Any> {
+        return hashMapOf(
+            "enabled" to enabled,
+            "requested" to requested,
+            "succeeded" to succeeded,
+            "failed" to failed,
+            "expired" to expired,
+            "cancelled" to cancelled,
+            "skippedOffline" to skippedOffline,
+            "lastIntervalSeconds" to lastInterval / 1000,
+            "lastReason" to lastReason,
+            "averageRefreshMillis" to if (succeeded > 0) refreshMillisTotal.toDouble() / succeeded else 0.0
+        )
+    }
+
+    private fun setEnabled(navigation: MapboxNavigation, enabled: Boolean) {
+        if (this.enabled == enabled) return
+        this.enabled = enabled
+        if (enabled) {
+            navigation.routeRefreshController.pauseRouteRefreshes()
+        } else {
+            navigation.routeRefreshController.resumeRouteRefreshes()
+        }
+    }
+
+    private fun interval(progress: RouteProgress, driftSeconds: Double): Long {
+        var interval = (progress.durationRemaining * 1000 / 8).toLong()
+        val reasons = mutableListOf("remaining")
+
+        val density = stepsPerKilometer(progress)
+        if (density >= DENSE_STEPS_PER_KM) {
+            interval /= 2
+            reasons.add("junctions")
+        } else if (density <= SPARSE_STEPS_PER_KM) {
+            interval *= 2
+            reasons.add("motorway")
+        }
+        if (driftSeconds > maxOf(MIN_DRIFT_SECONDS, progress.durationRemaining * DRIFT_FRACTION)) {
+            interval /= 2
+            reasons.add("drift")
+        }
+        lastReason = reasons.joinToString("+")
+        return interval.coerceIn(MIN_INTERVAL_MILLIS, MAX_INTERVAL_MILLIS)
+    }
+
+    /**
+     * Returns the number of maneuvers in the next [LOOKAHEAD_METERS] of the route, per kilometer.
+     */
+    private fun stepsPerKilometer(progress: RouteProgress): Double {
+        val legProgress = progress.currentLegProgress ?: return 0.0
+        val steps = legProgress.routeLeg?.steps().orEmpty()
+        val stepProgress = legProgress.currentStepProgress ?: return 0.0
+        var distance = stepProgress.distanceRemaining.toDouble()
+        var count = 0
+        var index = stepProgress.stepIndex + 1
+        while (index < steps.size && distance < LOOKAHEAD_METERS) {
+            count++
+            distance += steps[index].distance()
+            index++
+        }
+        val lookahead = minOf(LOOKAHEAD_METERS, progress.distanceRemaining.toDouble())
+        return if (lookahead > 0) count / (lookahead / 1000) else 0.0
+    }
+}
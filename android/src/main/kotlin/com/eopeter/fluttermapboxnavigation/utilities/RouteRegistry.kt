@@ -0,0 +1,214 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.mapbox.api.directions.v5.DirectionsCriteria
+import com.mapbox.core.constants.Constants
+import com.mapbox.geojson.Point
+import com.mapbox.geojson.utils.PolylineUtils
+import com.mapbox.navigation.base.route.NavigationRoute
+
+/**
+ * Keeps the routes of the last route request of every navigation view, so `route_built` can send
+ * lightweight handles and Flutter fetches legs, steps and geometry of one route, page by page,
+ * only when it needs them.
+ *
+ * All calls are expected on the main thread.
+ */
+class RouteRegistry {
+
+    companion object {
+        const val DEFAULT_PAGE_SIZE = 20
+        const val DEFAULT_GEOMETRY_PAGE_SIZE = 1000
+    }
+
+    private class Entry(val index: Int, val route: NavigationRoute) {
+        val precision: Int
+            get() = if (route.directionsRoute.routeOptions()?.geometries() == DirectionsCriteria.GEOMETRY_POLYLINE) {
+                Constants.PRECISION_5
+            } else {
+                Constants.PRECISION_6
+            }
+
+        // decoding walks the whole polyline, so only do it once per route
+        val points: List<Point> by lazy {
+            val geometry = route.directionsRoute.geometry()
+            if (geometry == null) emptyList() else PolylineUtils.decode(geometry, precision)
+        }
+
+        // the LOD pyramid, built on the first simplified geometry request for this route
+        val simplifier: RouteGeometrySimplifier by lazy {
+            RouteGeometrySimplifier(points)
+        }
+    }
+
+    // keyed by the component that requested the routes, so views don't replace each other's routes
+    private val entriesByOwner = HashMap<Any, List<Entry>>()
+
+    /**
+     * Replaces the routes of [owner] with [routes].
+     */
+    fun register(owner: Any, routes: List<NavigationRoute>) {
+        entriesByOwner[owner] = routes.mapIndexed { index, route -> Entry(index, route) }
+    }
+
+    fun release(owner: Any) {
+        entriesByOwner.remove(owner)
+    }
+
+    /**
+     * Returns the handles of the routes of [owner]: their id, index, summary, distance, duration,
+     * number of legs and bounding box.
+     */
+    fun handles(owner: Any): List<Map<String, Any?>> {
+        return entriesByOwner[owner].orEmpty().map { handle(it) }
+    }
+
+    /**
+     * Returns the DirectionsRoute JSON of a route, for callers that need all of it.
+     */
+    fun routeJson(arguments: Map<*, *>?): String? {
+        return find(arguments?.get("routeId") as? String)?.route?.directionsRoute?.toJson()
+    }
+
+    /**
+     * Returns `{"total": Int, "offset": Int, "items": [leg]}` for the `routeId`, `offset` and `limit` arguments.
+     */
+    fun legsPage(arguments: Map<*, *>?): Map<String, Any?>? {
+        val entry = find(arguments?.get("routeId") as? String) ?: return null
+        val legs = entry.route.directionsRoute.legs().orEmpty()
+        return page(arguments, legs.size, DEFAULT_PAGE_SIZE) { from, to ->
+            legs.subList(from, to).map { leg ->
+                hashMapOf(
+                    "name" to leg.summary(),
+                    "distance" to leg.distance(),
+                    "expectedTravelTime" to leg.duration(),
+                    "stepCount" to (leg.steps()?.size ?: 0)
+                )
+            }
+        }
+    }
+
+    /**
+     * Returns `{"total": Int, "offset": Int, "items": [step]}` for the `routeId`, `legIndex`, `offset` and `limit` arguments.
+     */
+    fun stepsPage(arguments: Map<*, *>?): Map<String, Any?>? {
+        val entry = find(arguments?.get("routeId") as? String) ?: return null
+        val legIndex = (arguments?.get("legIndex") as? Number)?.toInt() ?: 0
+        val steps = entry.route.directionsRoute.legs()?.getOrNull(legIndex)?.steps() ?: return null
+        return page(arguments, steps.size, DEFAULT_PAGE_SIZE) { from, to ->
+            steps.subList(from, to).map { step ->
+                hashMapOf(
+                    "name" to step.name(),
+                    "instructions" to step.maneuver().instruction(),
+                    "maneuverType" to step.maneuver().type(),
+                    "distance" to step.distance(),
+                    "expectedTravelTime" to step.duration()
+                )
+            }
+        }
+    }
+
+    /**
+     * Returns `{"total": Int, "offset": Int, "geometry": String, "precision": Int}` for the `routeId`, `offset`
+     * and `limit` arguments, where `geometry` is the encoded polyline of the points in the page.
+     */
+    fun geometryPage(arguments: Map<*, *>?): Map<String, Any?>? {
+        val entry = find(arguments?.get("routeId") as? String) ?: return null
+        val points = entry.points
+        val precision = entry.precision
+        val page = page(arguments, points.size, DEFAULT_GEOMETRY_PAGE_SIZE) { from, to ->
+            PolylineUtils.encode(points.subList(from, to), precision)
+        }
+        val geometry = page.remove("items")
+        page["geometry"] = geometry
+        page["precision"] = precision
+        return page
+    }
+
+    /**
+     * Returns `{"zoom": Double, "total": Int, "count": Int, "format": String, "geometry": String or FloatArray}`
+     * for the `routeId`, `zoom`, `tolerance` (in pixels) and `format` arguments. The geometry is simplified for
+     * the zoom level and is either a polyline6 string or, for the `float32` format, packed longitude and latitude
+     * pairs, which arrive in Flutter as a Float32List.
+     */
+    fun simplifiedGeometry(arguments: Map<*, *>?): Map<String, Any?>? {
+        val entry = find(arguments?.get("routeId") as? String) ?: return null
+        val zoom = (arguments?.get("zoom") as? Number)?.toDouble() ?: RouteGeometrySimplifier.MAX_ZOOM.toDouble()
+        val tolerance = (arguments?.get("tolerance") as? Number)?.toDouble()?.coerceAtLeast(0.0)
+            ?: RouteGeometrySimplifier.DEFAULT_PIXEL_TOLERANCE
+        val format = arguments?.get("format") as? String ?: "polyline6"
+        val points = entry.simplifier.simplify(zoom, tolerance)
+        val geometry: Any = if (format == "float32") {
+            val packed = FloatArray(points.size * 2)
+            points.forEachIndexed { i, point ->
+                packed[i * 2] = point.longitude().toFloat()
+                packed[i * 2 + 1] = point.latitude().toFloat()
+            }
+            packed
+        } else {
+            PolylineUtils.encode(points, Constants.PRECISION_6)
+        }
+        return hashMapOf(
+            "zoom" to zoom,
+            "total" to entry.simplifier.size,
+            "count" to points.size,
+            "format" to if (format == "float32") format else "polyline6",
+            "geometry" to geometry
+        )
+    }
+
+    private fun find(routeId: String?): Entry? {
+        if (routeId == null) return null
+        for (entries in entriesByOwner.values) {
+            entries.firstOrNull { it.route.id == routeId }?.let { return it }
+        }
+        return null
+    }
+
+    private fun page(
+        arguments: Map<*, *>?,
+        total: Int,
+        defaultLimit: Int,
+        items: (from: Int, to: Int) -> Any?
+    ): HashMap<String, Any?> {
+        val offset = ((arguments?.get("offset") as? Number)?.toInt() ?: 0).coerceIn(0, total)
+        val limit = ((arguments?.get("limit") as? Number)?.toInt() ?: defaultLimit).coerceAtLeast(1)
+        val end = minOf(total, offset + limit)
+        return hashMapOf(
+            "total" to total,
+            "offset" to offset,
+            "items" to items(offset, end)
+        )
+    }
+
+    private fun handle(entry: Entry): Map<String, Any?> {
+        val route = entry.route.directionsRoute
+        val legs = route.legs().orEmpty()
+        return hashMapOf(
+            "id" to entry.route.id,
+            "index" to entry.index,
+            "summary" to legs.mapNotNull { it.summary()?.takeIf { summary -> summary.isNotEmpty() } }.joinToString(" / "),
+            "distance" to route.distance(),
+            "duration" to route.duration(),
+            "legCount" to legs.size,
+            "bbox" to boundingBox(entry.points)
+        )
+    }
+
+    /**
+     * Returns `[west, south, east, north]`, or null for a route without geometry.
+     */
+    private fun boundingBox(points: List<Point>): List<Double>? {
+        if (points.isEmpty()) return null
+        var west = Double.MAX_VALUE
+        var south = Double.MAX_VALUE
+        var east = -Double.MAX_VALUE
+        var north = -Double.MAX_VALUE
+        for (point in points) {
+            west = minOf(west, point.longitude())
+            east = maxOf(east, point.longitude())
+            south = minOf(south, point.latitude())
+            north = maxOf(north, point.latitude())
+        }
+        return listOf(west, south, east, north)
+    }
+}
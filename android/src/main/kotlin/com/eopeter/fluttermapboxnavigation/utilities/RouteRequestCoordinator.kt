@@ -0,0 +1,173 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import com.eopeter.fluttermapboxnavigation.FlutterMapboxNavigationPlugin
+import com.mapbox.api.directions.v5.models.RouteOptions
+import com.mapbox.navigation.base.route.NavigationRoute
+import com.mapbox.navigation.base.route.NavigationRouterCallback
+import com.mapbox.navigation.base.route.RouterFailure
+import com.mapbox.navigation.base.route.RouterOrigin
+import com.mapbox.navigation.core.MapboxNavigation
+
+/**
+ * Sends the route requests of every navigation view so that only the newest one of a view counts.
+ *
+ * A request made within [FlutterMapboxNavigationPlugin.routeRequestDebounceMillis] of the previous one
+ * waits for the end of that window and replaces any other request still waiting, so a burst of
+ * long-presses or `buildRoute` calls costs at most two requests. The window is 0, so every request is
+ * sent right away, unless the app sets the `routeRequestDebounceMillis` option. Sending a request cancels the one
+ * still in flight for the same view, and the callback of a request that was superseded is never called,
+ * so stale routes can't start guidance.
+ *
+ * Requests go through [RouteChunker] and the [FlutterMapboxNavigationPlugin.routeResponseCache].
+ * All calls are expected on the main thread.
+ */
+class RouteRequestCoordinator {
+
+    private class Pending(
+        val navigation: MapboxNavigation,
+        val routeOptions: RouteOptions,
+        val callback: NavigationRouterCallback,
+        val requestedAt: Long
+    )
+
+    private class Slot {
+        var generation = 0
+        var pending: Pending? = null
+        var inFlight: List<RouteResponseCache.Request>? = null
+        var lastSentAt = 0L
+        var sendRunnable: Runnable? = null
+    }
+
+    // keyed by the component that makes the requests, like RouteRegistry
+    private val slots = HashMap<Any, Slot>()
+    private val handler = Handler(Looper.getMainLooper())
+
+    private var requested = 0L
+    private var coalesced = 0L
+    private var superseded = 0L
+    private var completed = 0L
+    private var failed = 0L
+    private var latencyTotal = 0L
+    private var latencyMax = 0L
+    private var lastLatency = 0L
+
+    /**
+     * Requests routes for [owner], superseding its earlier requests. [callback] is called on the main thread,
+     * unless a newer request of [owner] or [cancel] comes first.
+     */
+    fun request(
+        owner: Any,
+        navigation: MapboxNavigation,
+        routeOptions: RouteOptions,
+        callback: NavigationRouterCallback
+    ) {
+        requested++
+        val slot = slots.getOrPut(owner) { Slot() }
+        slot.generation++
+        if (slot.pending != null) coalesced++
+        // its answer would be dropped anyway
+        cancelInFlight(slot)
+        val now = SystemClock.elapsedRealtime()
+        slot.pending = Pending(navigation, routeOptions, callback, now)
+        slot.sendRunnable?.let { handler.removeCallbacks(it) }
+
+        val wait = slot.lastSentAt + FlutterMapboxNavigationPlugin.routeRequestDebounceMillis - now
+        if (slot.lastSentAt == 0L || wait <= 0) {
+            send(slot)
+        } else {
+            val runnable = Runnable { send(slot) }
+            slot.sendRunnable = runnable
+            handler.postDelayed(runnable, wait)
+        }
+    }
+
+    /**
+     * Drops the waiting request of [owner] and cancels the one in flight, e.g. when its view goes away.
+     */
+    fun cancel(owner: Any) {
+        val slot = slots.remove(owner) ?: return
+        slot.generation++
+        slot.sendRunnable?.let { handler.removeCallbacks(it) }
+        slot.pending = null
+        cancelInFlight(slot)
+    }
+
+    /**
+     * Returns the request counters, the number of requests waiting or in flight as `queueDepth`, and the
+     * latency in milliseconds from the request to its routes.
+     */
+    fun stats(): Map<String, Any> {
+        var queueDepth = 0
+        for (slot in slots.values) {
+            if (slot.pending != null) queueDepth++
+            if (slot.inFlight != null) queueDepth++
+        }
+        return hashMapOf(
+            "queueDepth" to queueDepth,
+            "requested" to requested,
+            "coalesced" to coalesced,
+            "superseded" to superseded,
+            "completed" to completed,
+            "failed" to failed,
+            "lastLatencyMillis" to lastLatency,
+            "maxLatencyMillis" to latencyMax,
+            "averageLatencyMillis" to if (completed > 0) latencyTotal.toDouble() / completed else 0.0
+        )
+    }
+
+    private fun send(slot: Slot) {
+        val pending = slot.pending ?: return
+        slot.pending = null
+        slot.sendRunnable = null
+        slot.lastSentAt = SystemClock.elapsedRealtime()
+
+        val generation = slot.generation
+        var answered = false
+        val takeAnswer = {
+            val current = !answered && slot.generation == generation
+            if (current) {
+                answered = true
+                slot.inFlight = null
+            }
+            current
+        }
+        val requests = RouteChunker.requestRoutes(
+            pending.navigation,
+            pending.routeOptions,
+            object : NavigationRouterCallback {
+                override fun onRoutesReady(routes: List<NavigationRoute>, routerOrigin: RouterOrigin) {
+                    if (!takeAnswer()) return
+                    val latency = SystemClock.elapsedRealtime() - pending.requestedAt
+                    completed++
+                    latencyTotal += latency
+                    latencyMax = maxOf(latencyMax, latency)
+                    lastLatency = latency
+                    pending.callback.onRoutesReady(routes, routerOrigin)
+                }
+
+                override fun onFailure(reasons: List<RouterFailure>, routeOptions: RouteOptions) {
+                    if (!takeAnswer()) return
+                    failed++
+                    pending.callback.onFailure(reasons, routeOptions)
+                }
+
+                override fun onCanceled(routeOptions: RouteOptions, routerOrigin: RouterOrigin) {
+                    // only report cancellations that didn't come from a newer request
+                    if (!takeAnswer()) return
+                    pending.callback.onCanceled(routeOptions, routerOrigin)
+                }
+            }
+        )
+        if (!answered) slot.inFlight = requests
+    }
+
+    private fun cancelInFlight(slot: Slot) {
+        val requests = slot.inFlight ?: return
+        slot.inFlight = null
+        requests.forEach { it.cancel() }
+        superseded++
+    }
+}
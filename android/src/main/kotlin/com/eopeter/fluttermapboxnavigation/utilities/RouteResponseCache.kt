@@ -0,0 +1,363 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.Looper
+import android.os.SystemClock
+import android.util.Log
+import com.eopeter.fluttermapboxnavigation.FlutterMapboxNavigationPlugin
+import com.mapbox.api.directions.v5.models.RouteOptions
+import com.mapbox.navigation.base.route.NavigationRoute
+import com.mapbox.navigation.base.route.NavigationRouterCallback
+import com.mapbox.navigation.base.route.RouterFailure
+import com.mapbox.navigation.base.route.RouterOrigin
+import com.mapbox.navigation.core.MapboxNavigation
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.security.MessageDigest
+import kotlin.math.pow
+import kotlin.math.roundToLong
+
+/**
+ * Answers route requests that were made before from memory, or from disk if [Config.persistToDisk] is on,
+ * instead of asking the [FlutterMapboxNavigationPlugin.router] again.
+ *
+ * Requests are keyed by their normalized [RouteOptions]: the profile, the coordinates rounded to
+ * [Config.coordinatePrecision] decimals, the waypoint indices and names, the language, the units and the
+ * requested annotations. Entries expire [Config.ttlMillis] after the routes were fetched, and the least
+ * recently used entry is evicted beyond [Config.maxEntries].
+ *
+ * The cached [NavigationRoute]s are handed out again as they are, so they can start active guidance.
+ * Routes read from disk are rebuilt from the directions response and the request URL. Expired entries are
+ * refetched but kept until replaced or evicted, so the [HybridRouter] can still answer with them through
+ * [stale] when the network can't. A file read more than the `maxStaleAgeSeconds` of the hybrid router past
+ * its expiry, or right at it without the hybrid router, is deleted.
+ *
+ * All calls are expected on the main thread; the disk is only touched on a worker thread.
+ */
+class RouteResponseCache {
+
+    /**
+     * A request answered from the cache or by the router. Once cancelled, its callback is only called
+     * with `onCanceled`, by the router, or not at all.
+     */
+    class Request internal constructor(
+        private val navigation: MapboxNavigation,
+        private val router: PluginRouter
+    ) {
+        var isCancelled = false
+            private set
+
+        internal var routerRequestId: Long? = null
+
+        fun cancel() {
+            if (isCancelled) return
+            isCancelled = true
+            routerRequestId?.let { router.cancelRouteRequest(navigation, it) }
+        }
+    }
+
+    companion object {
+        const val DIRECTORY = "mapbox_route_cache"
+    }
+
+    data class Config(
+        val ttlMillis: Long,
+        val maxEntries: Int,
+        val coordinatePrecision: Int,
+        val persistToDisk: Boolean
+    ) {
+        companion object {
+            /**
+             * Reads `{"ttlSeconds": Number, "maxEntries": Int, "coordinatePrecision": Int, "persistToDisk": Boolean}`,
+             * or returns null to disable the cache.
+             */
+            fun fromMap(map: Map<*, *>?): Config? {
+                if (map == null || map["enabled"] == false) return null
+                val ttl = (map["ttlSeconds"] as? Number)?.toDouble()?.coerceAtLeast(1.0) ?: 600.0
+                val maxEntries = (map["maxEntries"] as? Number)?.toInt()?.coerceAtLeast(1) ?: 32
+                val precision = (map["coordinatePrecision"] as? Number)?.toInt()?.coerceIn(0, 7) ?: 5
+                val persistToDisk = map["persistToDisk"] as? Boolean ?: false
+                return Config((ttl * 1000).toLong(), maxEntries, precision, persistToDisk)
+            }
+        }
+    }
+
+    private class Entry(
+        val routes: List<NavigationRoute>,
+        val routerOrigin: RouterOrigin,
+        // wall clock time, so it stays meaningful for entries read back by another process
+        val expiresAt: Long
+    )
+
+    private val config: Config?
+        get() = FlutterMapboxNavigationPlugin.routeCache
+
+    private val entries = object : LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Entry>?): Boolean {
+            val evict = size > (config?.maxEntries ?: 0)
+            if (evict) evictions++
+            return evict
+        }
+    }
+
+    private var hits = 0L
+    private var diskHits = 0L
+    private var misses = 0L
+    private var evictions = 0L
+    private var expirations = 0L
+    private var fetchMillis = 0L
+
+    private val mainHandler = Handler(Looper.getMainLooper())
+    private val worker: Handler by lazy {
+        Handler(HandlerThread("MapboxNavigationRouteCache").apply { start() }.looper)
+    }
+
+    private val directory: File?
+        get() = FlutterMapboxNavigationPlugin.cacheDirectory?.let { File(it, DIRECTORY) }
+
+    // how long expired files stay useful, to the hybrid router only
+    private val staleRetentionMillis: Long
+        get() = FlutterMapboxNavigationPlugin.hybridRouter?.maxStaleAgeMillis ?: 0L
+
+    /**
+     * Hands [callback] the cached routes for [routeOptions], or requests them from [navigation] and
+     * caches them. A cached answer is delivered asynchronously, like the router's.
+     */
+    fun requestRoutes(
+        navigation: MapboxNavigation,
+        routeOptions: RouteOptions,
+        callback: NavigationRouterCallback
+    ): Request {
+        val router = FlutterMapboxNavigationPlugin.router
+        val request = Request(navigation, router)
+        val config = config
+        // local routes are cheap and the injected latency should apply to every request
+        if (config == null || router === LocalRouter) {
+            request.routerRequestId = router.requestRoutes(navigation, routeOptions, callback)
+            return request
+        }
+
+        val key = key(routeOptions, config.coordinatePrecision)
+        val cached = entries[key]
+        if (cached != null) {
+            if (cached.expiresAt > System.currentTimeMillis()) {
+                hits++
+                mainHandler.post {
+                    if (!request.isCancelled) callback.onRoutesReady(cached.routes, cached.routerOrigin)
+                }
+                return request
+            }
+            expirations++
+        }
+
+        val file = if (config.persistToDisk) fileOf(key) else null
+        if (file == null) {
+            fetch(navigation, router, routeOptions, key, request, callback)
+            return request
+        }
+        val retention = staleRetentionMillis
+        worker.post {
+            val routes = read(file, retention)?.takeIf { it.first > System.currentTimeMillis() }
+            mainHandler.post {
+                if (request.isCancelled) return@post
+                if (routes == null) {
+                    fetch(navigation, router, routeOptions, key, request, callback)
+                } else {
+                    diskHits++
+                    val entry = Entry(routes.second, RouterOrigin.Custom(), routes.first)
+                    entries[key] = entry
+                    callback.onRoutesReady(entry.routes, entry.routerOrigin)
+                }
+            }
+        }
+        return request
+    }
+
+    /**
+     * Hands [onDone] the last routes cached for [routeOptions], unless they expired more than [maxStaleMillis]
+     * ago, or null if there are none, asynchronously and without asking the router.
+     */
+    fun stale(routeOptions: RouteOptions, maxStaleMillis: Long, onDone: (List<NavigationRoute>?) -> Unit) {
+        val config = config
+        if (config == null) {
+            mainHandler.post { onDone(null) }
+            return
+        }
+        val key = key(routeOptions, config.coordinatePrecision)
+        val cached = entries[key]?.takeIf { it.expiresAt + maxStaleMillis > System.currentTimeMillis() }
+        val file = if (config.persistToDisk) fileOf(key) else null
+        if (cached != null || file == null) {
+            mainHandler.post { onDone(cached?.routes) }
+            return
+        }
+        worker.post {
+            val routes = read(file, maxStaleMillis)?.second
+            mainHandler.post { onDone(routes) }
+        }
+    }
+
+    /**
+     * Returns the hit, disk hit, miss, eviction and expiration counters, the number of entries in memory
+     * and the average time in milliseconds of the requests that went to the router.
+     */
+    fun stats(): Map<String, Any> {
+        val requests = hits + diskHits + misses
+        return hashMapOf(
+            "enabled" to (config != null),
+            "entries" to entries.size,
+            "hits" to hits,
+            "diskHits" to diskHits,
+            "misses" to misses,
+            "evictions" to evictions,
+            "expirations" to expirations,
+            "hitRate" to if (requests > 0) (hits + diskHits).toDouble() / requests else 0.0,
+            "averageFetchMillis" to if (misses > 0) fetchMillis.toDouble() / misses else 0.0
+        )
+    }
+
+    /**
+     * Forgets every cached route, in memory and on disk.
+     */
+    fun clear() {
+        entries.clear()
+        val directory = directory ?: return
+        worker.post { directory.listFiles()?.forEach { it.delete() } }
+    }
+
+    private fun fetch(
+        navigation: MapboxNavigation,
+        router: PluginRouter,
+        routeOptions: RouteOptions,
+        key: String,
+        request: Request,
+        callback: NavigationRouterCallback
+    ) {
+        misses++
+        val startedAt = SystemClock.elapsedRealtime()
+        request.routerRequestId = router.requestRoutes(navigation, routeOptions, object : NavigationRouterCallback {
+            override fun onRoutesReady(routes: List<NavigationRoute>, routerOrigin: RouterOrigin) {
+                fetchMillis += SystemClock.elapsedRealtime() - startedAt
+                // custom routes came from this cache through the hybrid router and keep their expiry
+                if (routerOrigin !is RouterOrigin.Custom) store(key, routes, routerOrigin)
+                callback.onRoutesReady(routes, routerOrigin)
+            }
+
+            override fun onFailure(reasons: List<RouterFailure>, routeOptions: RouteOptions) {
+                fetchMillis += SystemClock.elapsedRealtime() - startedAt
+                callback.onFailure(reasons, routeOptions)
+            }
+
+            override fun onCanceled(routeOptions: RouteOptions, routerOrigin: RouterOrigin) {
+                callback.onCanceled(routeOptions, routerOrigin)
+            }
+        })
+    }
+
+    private fun store(key: String, routes: List<NavigationRoute>, routerOrigin: RouterOrigin) {
+        val config = config ?: return
+        if (routes.isEmpty()) return
+        val expiresAt = System.currentTimeMillis() + config.ttlMillis
+        entries[key] = Entry(routes, routerOrigin, expiresAt)
+
+        val file = if (config.persistToDisk) fileOf(key) else null
+        if (file != null) {
+            val route = routes.first()
+            worker.post { write(file, expiresAt, route, config.maxEntries) }
+        }
+    }
+
+    private fun key(options: RouteOptions, precision: Int): String {
+        val scale = 10.0.pow(precision)
+        val key = StringBuilder()
+        key.append(options.profile())
+        for (point in options.coordinatesList()) {
+            key.append('|')
+                .append((point.longitude() * scale).roundToLong())
+                .append(',')
+                .append((point.latitude() * scale).roundToLong())
+        }
+        key.append('|').append(options.waypointIndices())
+            .append('|').append(options.waypointNames())
+            .append('|').append(options.language())
+            .append('|').append(options.voiceUnits())
+            .append('|').append(options.alternatives())
+            .append('|').append(options.steps())
+            .append('|').append(options.bannerInstructions())
+            .append('|').append(options.voiceInstructions())
+            .append('|').append(options.annotations())
+            .append('|').append(options.exclude())
+        return key.toString()
+    }
+
+    private fun fileOf(key: String): File? {
+        val directory = directory ?: return null
+        val digest = MessageDigest.getInstance("SHA-1").digest(key.toByteArray())
+        return File(directory, digest.joinToString("") { "%02x".format(it) })
+    }
+
+    // worker thread
+
+    private fun write(file: File, expiresAt: Long, route: NavigationRoute, maxEntries: Int) {
+        try {
+            file.parentFile?.mkdirs()
+            DataOutputStream(BufferedOutputStream(FileOutputStream(file))).use { output ->
+                output.writeLong(expiresAt)
+                writeString(output, route.routeOptions.toUrl("").toString())
+                writeString(output, route.directionsResponse.toJson())
+            }
+            trim(file.parentFile, maxEntries)
+        } catch (e: IOException) {
+            Log.e("RouteResponseCache", "Failed to write routes", e)
+            file.delete()
+        }
+    }
+
+    /**
+     * Returns the expiry and the routes of [file], also when they expired less than [retentionMillis] ago.
+     * Older files are deleted.
+     */
+    private fun read(file: File, retentionMillis: Long): Pair<Long, List<NavigationRoute>>? {
+        if (!file.exists()) return null
+        return try {
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                val expiresAt = input.readLong()
+                if (expiresAt + retentionMillis <= System.currentTimeMillis()) {
+                    file.delete()
+                    return null
+                }
+                val url = readString(input)
+                val response = readString(input)
+                Pair(expiresAt, NavigationRoute.create(response, url, RouterOrigin.Custom()))
+            }
+        } catch (e: Exception) {
+            Log.e("RouteResponseCache", "Failed to read routes", e)
+            file.delete()
+            null
+        }
+    }
+
+    private fun trim(directory: File?, maxEntries: Int) {
+        val files = directory?.listFiles() ?: return
+        if (files.size <= maxEntries) return
+        files.sortedBy { it.lastModified() }.take(files.size - maxEntries).forEach { it.delete() }
+    }
+
+    private fun writeString(output: DataOutputStream, value: String) {
+        val bytes = value.toByteArray(Charsets.UTF_8)
+        output.writeInt(bytes.size)
+        output.write(bytes)
+    }
+
+    private fun readString(input: DataInputStream): String {
+        val bytes = ByteArray(input.readInt())
+        input.readFully(bytes)
+        return String(bytes, Charsets.UTF_8)
+    }
+}
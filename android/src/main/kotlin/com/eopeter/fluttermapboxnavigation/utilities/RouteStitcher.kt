@@ -0,0 +1,216 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.Looper
+import android.util.Log
+import com.mapbox.api.directions.v5.DirectionsCriteria
+import com.mapbox.api.directions.v5.models.DirectionsResponse
+import com.mapbox.api.directions.v5.models.DirectionsRoute
+import com.mapbox.api.directions.v5.models.DirectionsWaypoint
+import com.mapbox.api.directions.v5.models.RouteLeg
+import com.mapbox.api.directions.v5.models.RouteOptions
+import com.mapbox.core.constants.Constants
+import com.mapbox.geojson.Point
+import com.mapbox.geojson.utils.PolylineUtils
+import com.mapbox.navigation.base.route.NavigationRoute
+import com.mapbox.navigation.base.route.RouterOrigin
+
+/**
+ * Joins consecutive legs of different routes into one [NavigationRoute], for [RouteChunker] and
+ * [WaypointInserter]. Every [Piece] must start where the previous one ends.
+ *
+ * Decoding and encoding the geometries is slow for long routes, so [stitchAsync] does it on a worker thread.
+ */
+object RouteStitcher {
+
+    private val mainHandler: Handler by lazy { Handler(Looper.getMainLooper()) }
+    private val worker: Handler by lazy {
+        Handler(HandlerThread("MapboxNavigationRouteStitcher").apply { start() }.looper)
+    }
+
+    /**
+     * Consecutive legs of a route with their geometry and waypoints. The via waypoints of the legs
+     * refer to this geometry and these waypoints.
+     */
+    class Piece(
+        val legs: List<RouteLeg>,
+        val geometry: List<Point>,
+        val waypoints: List<DirectionsWaypoint>,
+        val distance: Double,
+        val duration: Double,
+        val weight: Double
+    )
+
+    fun precision(options: RouteOptions): Int {
+        return if (options.geometries() == DirectionsCriteria.GEOMETRY_POLYLINE) {
+            Constants.PRECISION_5
+        } else {
+            Constants.PRECISION_6
+        }
+    }
+
+    /**
+     * Returns the legs of [route] from [fromLeg] on.
+     */
+    fun piece(route: NavigationRoute, fromLeg: Int = 0): Piece {
+        return piece(route.directionsRoute, route.directionsResponse.waypoints().orEmpty(), route.routeOptions, fromLeg)
+    }
+
+    /**
+     * Returns the legs of [directionsRoute], requested with [options] and answered with [waypoints],
+     * from [fromLeg] on.
+     */
+    internal fun piece(
+        directionsRoute: DirectionsRoute,
+        waypoints: List<DirectionsWaypoint>,
+        options: RouteOptions,
+        fromLeg: Int
+    ): Piece {
+        val precision = precision(options)
+        val legs = directionsRoute.legs().orEmpty()
+        val geometry = directionsRoute.geometry()?.let { PolylineUtils.decode(it, precision) }.orEmpty()
+        if (fromLeg <= 0) {
+            return Piece(
+                legs,
+                geometry,
+                waypoints,
+                directionsRoute.distance(),
+                directionsRoute.duration(),
+                directionsRoute.weight() ?: 0.0
+            )
+        }
+
+        // the steps of a leg share their end points, and so do the legs of a route
+        var start = 0
+        for (leg in legs.take(fromLeg)) {
+            for (step in leg.steps().orEmpty()) {
+                val points = step.geometry()?.let { PolylineUtils.decode(it, precision).size } ?: 0
+                start += (points - 1).coerceAtLeast(0)
+            }
+        }
+        // waypoints are either every coordinate or only the regular ones
+        val coordinates = options.coordinatesList().size
+        val droppedWaypoints = if (waypoints.size == coordinates) {
+            options.waypointIndicesList()?.getOrNull(fromLeg) ?: fromLeg
+        } else {
+            fromLeg
+        }
+
+        val tail = legs.drop(fromLeg)
+        val distance = tail.sumOf { it.distance() ?: 0.0 }
+        val duration = tail.sumOf { it.duration() ?: 0.0 }
+        val weight = (directionsRoute.weight() ?: 0.0) * if (directionsRoute.duration() > 0) {
+            duration / directionsRoute.duration()
+        } else {
+            0.0
+        }
+        return Piece(
+            shift(tail, -droppedWaypoints, -start),
+            geometry.subList(start.coerceAtMost(geometry.size), geometry.size),
+            waypoints.drop(droppedWaypoints),
+            distance,
+            duration,
+            weight
+        )
+    }
+
+    /**
+     * Joins the [pieces] into a route built like [template], with [options] describing the whole route.
+     * Returns null if the pieces or the result can't be read.
+     *
+     * No single directions response backs the result, so it has no request UUID, not the one of [template],
+     * and refresh is turned off in its options: a refresh would ask the Directions API about a route it
+     * never returned. The options can list more coordinates than one request takes, see [RouteChunker]
+     * for how rerouting such a route is handled.
+     */
+    fun stitch(template: NavigationRoute, options: RouteOptions, pieces: () -> List<Piece>): List<NavigationRoute>? {
+        return try {
+            val response = stitchResponse(template.directionsResponse, template.directionsRoute, options, pieces())
+            val stitchedOptions = response.routes().first().routeOptions()!!
+            NavigationRoute.create(response.toJson(), stitchedOptions.toUrl("").toString(), RouterOrigin.Custom())
+        } catch (e: Exception) {
+            Log.e("RouteStitcher", "Failed to stitch routes", e)
+            null
+        }
+    }
+
+    /**
+     * Returns the directions response of [stitch]: [templateRoute] of [templateResponse] with the legs,
+     * geometry and waypoints of the [pieces].
+     */
+    internal fun stitchResponse(
+        templateResponse: DirectionsResponse,
+        templateRoute: DirectionsRoute,
+        options: RouteOptions,
+        pieces: List<Piece>
+    ): DirectionsResponse {
+        val stitchedOptions = options.toBuilder().enableRefresh(false).build()
+        val precision = precision(stitchedOptions)
+        val points = mutableListOf<Point>()
+        val legs = mutableListOf<RouteLeg>()
+        val waypoints = mutableListOf<DirectionsWaypoint>()
+        var distance = 0.0
+        var duration = 0.0
+        var weight = 0.0
+
+        pieces.forEachIndexed { index, piece ->
+            // the first point and waypoint of a piece are the last ones of the previous piece
+            val geometryOffset = if (index == 0) 0 else points.size - 1
+            val waypointOffset = if (index == 0) 0 else waypoints.size - 1
+            points.addAll(if (index == 0) piece.geometry else piece.geometry.drop(1))
+            waypoints.addAll(if (index == 0) piece.waypoints else piece.waypoints.drop(1))
+            legs.addAll(shift(piece.legs, waypointOffset, geometryOffset))
+            distance += piece.distance
+            duration += piece.duration
+            weight += piece.weight
+        }
+
+        val route = templateRoute.toBuilder()
+            .legs(legs)
+            .geometry(PolylineUtils.encode(points, precision))
+            .distance(distance)
+            .duration(duration)
+            .durationTypical(null)
+            .weight(weight)
+            .routeIndex("0")
+            .requestUuid(null)
+            .routeOptions(stitchedOptions)
+            .build()
+        return templateResponse.toBuilder()
+            .uuid(null)
+            .routes(listOf(route))
+            .waypoints(waypoints)
+            .build()
+    }
+
+    /**
+     * Like [stitch], but on a worker thread. [onDone] is called on the main thread.
+     */
+    fun stitchAsync(
+        template: NavigationRoute,
+        options: RouteOptions,
+        pieces: () -> List<Piece>,
+        onDone: (List<NavigationRoute>?) -> Unit
+    ) {
+        worker.post {
+            val stitched = stitch(template, options, pieces)
+            mainHandler.post { onDone(stitched) }
+        }
+    }
+
+    private fun shift(legs: List<RouteLeg>, waypointOffset: Int, geometryOffset: Int): List<RouteLeg> {
+        if (waypointOffset == 0 && geometryOffset == 0) return legs
+        return legs.map { leg ->
+            val via = leg.viaWaypoints() ?: return@map leg
+            leg.toBuilder().viaWaypoints(
+                via.map {
+                    it.toBuilder()
+                        .waypointIndex(it.waypointIndex() + waypointOffset)
+                        .geometryIndex(it.geometryIndex() + geometryOffset)
+                        .build()
+                }
+            ).build()
+        }
+    }
+}
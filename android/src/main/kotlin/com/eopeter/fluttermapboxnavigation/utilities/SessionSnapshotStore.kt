@@ -0,0 +1,283 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.Looper
+import android.os.SystemClock
+import android.util.Log
+import com.eopeter.fluttermapboxnavigation.FlutterMapboxNavigationPlugin
+import com.mapbox.navigation.base.route.NavigationRoute
+import com.mapbox.navigation.base.route.RouterOrigin
+import com.mapbox.navigation.base.trip.model.RouteProgress
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.util.UUID
+
+/**
+ * Checkpoints the navigation session of the NavigationActivity while the `sessionResume` option is set,
+ * so a process killed mid-trip can resume guidance without asking the router again.
+ *
+ * The snapshot is two files of [directory]: the primary route, as its directions response and request URL,
+ * written once per route, and the state, a few dozen bytes with the leg reached and the options
+ * guidance depends on, rewritten at most every [Config.intervalMillis] as the route progress comes in.
+ * Both are written on a worker thread, to a temporary file renamed over the previous one so a kill
+ * mid-write leaves the last complete snapshot. The options are kept with it because the ones of the plugin
+ * are lost with the process.
+ *
+ * A session is identified by a random id the activity keeps in its saved instance state, so only the
+ * activity recreated for it resumes it. All calls are expected on the main thread.
+ */
+class SessionSnapshotStore(private val directory: File) {
+
+    companion object {
+        const val DIRECTORY = "mapbox_navigation_session"
+        private const val VERSION = 2
+
+        private val mainHandler = Handler(Looper.getMainLooper())
+        private val worker: Handler by lazy {
+            Handler(HandlerThread("MapboxNavigationSession").apply { start() }.looper)
+        }
+    }
+
+    data class Config(val intervalMillis: Long, val maxAgeMillis: Long) {
+        companion object {
+            /**
+             * Reads `{"checkpointIntervalMillis": Int, "maxAgeSeconds": Int}`, or returns null to disable
+             * the checkpoints.
+             */
+            fun fromMap(map: Map<*, *>?): Config? {
+                if (map == null || map["enabled"] == false) return null
+                val interval = (map["checkpointIntervalMillis"] as? Number)?.toLong()?.coerceAtLeast(250) ?: 5000L
+                val maxAge = (map["maxAgeSeconds"] as? Number)?.toLong()?.coerceAtLeast(1) ?: 1800L
+                return Config(interval, maxAge * 1000)
+            }
+        }
+    }
+
+    /**
+     * The plugin options a resumed session needs, captured with every checkpoint.
+     */
+    data class Options(
+        val language: String,
+        val voiceUnits: String,
+        val simulateRoute: Boolean,
+        val mapStyleUrlDay: String?,
+        val mapStyleUrlNight: String?,
+        val config: Config
+    ) {
+        fun apply() {
+            FlutterMapboxNavigationPlugin.navigationLanguage = language
+            FlutterMapboxNavigationPlugin.navigationVoiceUnits = voiceUnits
+            FlutterMapboxNavigationPlugin.simulateRoute = simulateRoute
+            FlutterMapboxNavigationPlugin.mapStyleUrlDay = mapStyleUrlDay
+            FlutterMapboxNavigationPlugin.mapStyleUrlNight = mapStyleUrlNight
+            FlutterMapboxNavigationPlugin.sessionResume = config
+        }
+
+        companion object {
+            fun capture(config: Config) = Options(
+                FlutterMapboxNavigationPlugin.navigationLanguage,
+                FlutterMapboxNavigationPlugin.navigationVoiceUnits,
+                FlutterMapboxNavigationPlugin.simulateRoute,
+                FlutterMapboxNavigationPlugin.mapStyleUrlDay,
+                FlutterMapboxNavigationPlugin.mapStyleUrlNight,
+                config
+            )
+        }
+    }
+
+    class Session(
+        val id: String,
+        val route: NavigationRoute,
+        val legIndex: Int,
+        val options: Options
+    )
+
+    private class State(val sessionId: String, val routeId: String, val legIndex: Int)
+
+    private val config: Config?
+        get() = FlutterMapboxNavigationPlugin.sessionResume
+
+    private val routeFile = File(directory, "route")
+    private val stateFile = File(directory, "state")
+
+    /**
+     * The id of the session being checkpointed, or null.
+     */
+    var sessionId: String? = null
+        private set
+
+    private var routeId: String? = null
+    private var latest: State? = null
+    private var scheduled = false
+    private var lastCheckpointAt = 0L
+
+    /**
+     * Starts checkpointing a new session, forgetting the previous one, if the `sessionResume` option is set.
+     */
+    fun begin() {
+        sessionId = if (config != null) UUID.randomUUID().toString() else null
+        routeId = null
+        latest = null
+    }
+
+    /**
+     * Goes on checkpointing the session [sessionId] on [route], restored or still navigated.
+     */
+    fun resume(sessionId: String, route: NavigationRoute) {
+        this.sessionId = sessionId
+        // the route on disk is this one
+        routeId = route.id
+        latest = null
+    }
+
+    /**
+     * Writes the primary route of [routes] unless it is the one already written.
+     */
+    fun onRoutesChanged(routes: List<NavigationRoute>) {
+        val sessionId = sessionId ?: return
+        val route = routes.firstOrNull() ?: return
+        if (config == null || route.id == routeId) return
+        routeId = route.id
+        // checkpoints still scheduled for the previous route are dropped
+        latest = null
+        worker.post { writeRoute(sessionId, route) }
+    }
+
+    fun onRouteProgress(progress: RouteProgress) {
+        val sessionId = sessionId ?: return
+        val config = config ?: return
+        if (progress.navigationRoute.id != routeId) return
+        latest = State(sessionId, progress.navigationRoute.id, progress.currentLegProgress?.legIndex ?: 0)
+        if (scheduled) return
+        scheduled = true
+        val at = maxOf(SystemClock.uptimeMillis(), lastCheckpointAt + config.intervalMillis)
+        mainHandler.postAtTime({
+            scheduled = false
+            lastCheckpointAt = SystemClock.uptimeMillis()
+            val state = latest ?: return@postAtTime
+            val options = Options.capture(this.config ?: return@postAtTime)
+            worker.post { writeState(state, options) }
+        }, at)
+    }
+
+    /**
+     * Ends the session and deletes its snapshot, as when the trip is over or cancelled.
+     */
+    fun clear() {
+        sessionId = null
+        routeId = null
+        latest = null
+        worker.post {
+            stateFile.delete()
+            routeFile.delete()
+        }
+    }
+
+    /**
+     * Hands [onDone] the session [sessionId] checkpointed by a previous process, or null if there is none
+     * or it is older than its [Config.maxAgeMillis]. The route is rebuilt on the worker thread.
+     */
+    fun restore(sessionId: String, onDone: (Session?) -> Unit) {
+        worker.post {
+            val session = try {
+                read(sessionId)
+            } catch (e: Exception) {
+                Log.e("SessionSnapshotStore", "Failed to restore session $sessionId", e)
+                null
+            }
+            mainHandler.post { onDone(session) }
+        }
+    }
+
+    // worker thread
+
+    private fun writeRoute(sessionId: String, route: NavigationRoute) {
+        write(routeFile) { output ->
+            output.writeInt(VERSION)
+            output.writeUTF(sessionId)
+            output.writeUTF(route.id)
+            output.writeInt(route.routeIndex)
+            writeString(output, route.routeOptions.toUrl("").toString())
+            writeString(output, route.directionsResponse.toJson())
+        }
+    }
+
+    private fun writeState(state: State, options: Options) {
+        write(stateFile) { output ->
+            output.writeInt(VERSION)
+            output.writeUTF(state.sessionId)
+            output.writeUTF(state.routeId)
+            output.writeLong(System.currentTimeMillis())
+            output.writeInt(state.legIndex)
+            output.writeUTF(options.language)
+            output.writeUTF(options.voiceUnits)
+            output.writeBoolean(options.simulateRoute)
+            output.writeUTF(options.mapStyleUrlDay.orEmpty())
+            output.writeUTF(options.mapStyleUrlNight.orEmpty())
+            output.writeLong(options.config.intervalMillis)
+            output.writeLong(options.config.maxAgeMillis)
+        }
+    }
+
+    private fun read(sessionId: String): Session? {
+        if (!stateFile.exists() || !routeFile.exists()) return null
+        val (state, options) = DataInputStream(BufferedInputStream(FileInputStream(stateFile))).use { input ->
+            if (input.readInt() != VERSION || input.readUTF() != sessionId) return null
+            val routeId = input.readUTF()
+            val savedAt = input.readLong()
+            val state = State(sessionId, routeId, input.readInt())
+            val options = Options(
+                input.readUTF(),
+                input.readUTF(),
+                input.readBoolean(),
+                input.readUTF().ifEmpty { null },
+                input.readUTF().ifEmpty { null },
+                Config(input.readLong(), input.readLong())
+            )
+            if (System.currentTimeMillis() - savedAt > options.config.maxAgeMillis) return null
+            state to options
+        }
+        return DataInputStream(BufferedInputStream(FileInputStream(routeFile))).use { input ->
+            if (input.readInt() != VERSION || input.readUTF() != sessionId || input.readUTF() != state.routeId) {
+                return null
+            }
+            val routeIndex = input.readInt()
+            val url = readString(input)
+            val response = readString(input)
+            val route = NavigationRoute.create(response, url, RouterOrigin.Custom())
+                .firstOrNull { it.routeIndex == routeIndex } ?: return null
+            Session(sessionId, route, state.legIndex, options)
+        }
+    }
+
+    private fun write(file: File, block: (DataOutputStream) -> Unit) {
+        val temporary = File(directory, file.name + ".tmp")
+        try {
+            directory.mkdirs()
+            DataOutputStream(BufferedOutputStream(FileOutputStream(temporary))).use(block)
+            if (!temporary.renameTo(file)) throw IOException("Failed to rename $temporary")
+        } catch (e: IOException) {
+            Log.e("SessionSnapshotStore", "Failed to write ${file.name}", e)
+            temporary.delete()
+        }
+    }
+
+    private fun writeString(output: DataOutputStream, value: String) {
+        val bytes = value.toByteArray(Charsets.UTF_8)
+        output.writeInt(bytes.size)
+        output.write(bytes)
+    }
+
+    private fun readString(input: DataInputStream): String {
+        val bytes = ByteArray(input.readInt())
+        input.readFully(bytes)
+        return String(bytes, Charsets.UTF_8)
+    }
+}
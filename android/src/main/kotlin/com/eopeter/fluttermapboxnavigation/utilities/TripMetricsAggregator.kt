@@ -0,0 +1,179 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.location.Location
+import android.os.SystemClock
+import com.eopeter.fluttermapboxnavigation.models.MapBoxEvents
+import com.mapbox.navigation.base.trip.model.RouteProgress
+import kotlin.math.sqrt
+
+/**
+ * Keeps streaming trip statistics from the location and route progress observers, and
+ * sends them as a [MapBoxEvents.TRIP_METRICS] summary at most once per [Config.intervalMillis]:
+ * - `averageSpeed`: exponentially weighted moving average of the reported speed, in m/s
+ * - `movingTime` and `stoppedTime`: seconds spent above and below [STOPPED_SPEED]
+ * - `eta`, `etaDrift` and `etaStdDev`: the predicted arrival time in epoch milliseconds, how many seconds
+ *   it moved since the first prediction, and the standard deviation of all predictions in seconds
+ * - `legSplitTimes`: seconds spent on every completed leg, and `currentLegTime` on the current one
+ *
+ * Every statistic is updated in place, so memory doesn't grow with the length of the trip,
+ * only with its number of legs. The metrics are enabled by the `tripMetrics` option of the [route] they are
+ * sent to. All calls are expected on the main thread, where the observers run.
+ */
+class TripMetricsAggregator(
+    private val route: EventRouter.Route,
+    private val send: (Map<String, Any?>) -> Unit
+) {
+
+    companion object {
+        // below this speed, in m/s, the user is considered stopped
+        private const val STOPPED_SPEED = 0.5f
+    }
+
+    data class Config(val intervalMillis: Long, val speedSmoothing: Double) {
+        companion object {
+            /**
+             * Reads `{"intervalMillis": Number, "speedSmoothing": Number}`, or returns null to disable the metrics.
+             */
+            fun fromMap(map: Map<*, *>?): Config? {
+                if (map == null) return null
+                val interval = (map["intervalMillis"] as? Number)?.toLong()?.coerceAtLeast(100) ?: 5000L
+                val smoothing = (map["speedSmoothing"] as? Number)?.toDouble()?.coerceIn(0.01, 1.0) ?: 0.2
+                return Config(interval, smoothing)
+            }
+        }
+    }
+
+    private val config: Config?
+        get() = route.tripMetrics
+
+    private var tripStartedAt = 0L
+    private var lastSentAt = 0L
+
+    private var averageSpeed: Double? = null
+    private var lastLocationNanos = 0L
+    private var lastSpeed = 0f
+    private var movingSeconds = 0.0
+    private var stoppedSeconds = 0.0
+
+    // Welford's running mean and variance of the predicted arrival time
+    private var etaCount = 0L
+    private var etaMean = 0.0
+    private var etaM2 = 0.0
+    private var firstEta = 0L
+    private var lastEta = 0L
+
+    private var legIndex = -1
+    private var legStartedAt = 0L
+    private val legSplitTimes = mutableListOf<Double>()
+
+    private var distanceTraveled = 0f
+    private var distanceRemaining = 0f
+
+    /**
+     * Starts a new trip, forgetting everything measured so far.
+     */
+    fun reset() {
+        tripStartedAt = 0L
+        lastSentAt = 0L
+        averageSpeed = null
+        lastLocationNanos = 0L
+        lastSpeed = 0f
+        movingSeconds = 0.0
+        stoppedSeconds = 0.0
+        etaCount = 0L
+        etaMean = 0.0
+        etaM2 = 0.0
+        firstEta = 0L
+        lastEta = 0L
+        legIndex = -1
+        legStartedAt = 0L
+        legSplitTimes.clear()
+        distanceTraveled = 0f
+        distanceRemaining = 0f
+    }
+
+    fun onLocation(location: Location) {
+        val config = config ?: return
+        if (tripStartedAt == 0L) return
+
+        val nanos = location.elapsedRealtimeNanos
+        if (lastLocationNanos != 0L && nanos > lastLocationNanos) {
+            val seconds = (nanos - lastLocationNanos) / 1e9
+            if (lastSpeed < STOPPED_SPEED) stoppedSeconds += seconds else movingSeconds += seconds
+        }
+        lastLocationNanos = nanos
+
+        if (location.hasSpeed()) {
+            val speed = location.speed
+            val average = averageSpeed
+            averageSpeed = if (average == null) {
+                speed.toDouble()
+            } else {
+                average + config.speedSmoothing * (speed - average)
+            }
+            lastSpeed = speed
+        }
+    }
+
+    fun onRouteProgress(progress: RouteProgress) {
+        val config = config ?: return
+        val now = SystemClock.elapsedRealtime()
+        if (tripStartedAt == 0L) {
+            tripStartedAt = now
+            lastSentAt = now
+        }
+
+        val index = progress.currentLegProgress?.legIndex ?: 0
+        if (index != legIndex) {
+            if (legIndex >= 0) {
+                legSplitTimes.add((now - legStartedAt) / 1000.0)
+            }
+            legIndex = index
+            legStartedAt = now
+        }
+
+        distanceTraveled = progress.distanceTraveled
+        distanceRemaining = progress.distanceRemaining
+
+        val eta = System.currentTimeMillis() + (progress.durationRemaining * 1000).toLong()
+        if (etaCount == 0L) firstEta = eta
+        lastEta = eta
+        etaCount++
+        val seconds = (eta - firstEta) / 1000.0
+        val delta = seconds - etaMean
+        etaMean += delta / etaCount
+        etaM2 += delta * (seconds - etaMean)
+
+        if (now - lastSentAt >= config.intervalMillis) {
+            flush()
+        }
+    }
+
+    /**
+     * Sends the summary right away, e.g. on arrival.
+     */
+    fun flush() {
+        if (config == null || tripStartedAt == 0L) return
+        lastSentAt = SystemClock.elapsedRealtime()
+        send(summary(lastSentAt))
+    }
+
+    private fun summary(now: Long): Map<String, Any?> {
+        val total = distanceTraveled + distanceRemaining
+        return hashMapOf(
+            "elapsedTime" to (now - tripStartedAt) / 1000.0,
+            "movingTime" to movingSeconds,
+            "stoppedTime" to stoppedSeconds,
+            "averageSpeed" to averageSpeed,
+            "distanceTraveled" to distanceTraveled.toDouble(),
+            "distanceRemaining" to distanceRemaining.toDouble(),
+            "fractionTraveled" to if (total > 0) (distanceTraveled / total).toDouble() else 0.0,
+            "eta" to lastEta,
+            "etaDrift" to (lastEta - firstEta) / 1000.0,
+            "etaStdDev" to if (etaCount > 1) sqrt(etaM2 / (etaCount - 1)) else 0.0,
+            "legIndex" to legIndex,
+            "legSplitTimes" to ArrayList(legSplitTimes),
+            "currentLegTime" to (now - legStartedAt) / 1000.0
+        )
+    }
+}
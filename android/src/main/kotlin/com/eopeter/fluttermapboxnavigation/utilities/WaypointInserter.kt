@@ -0,0 +1,150 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import android.location.Location
+import com.eopeter.fluttermapboxnavigation.FlutterMapboxNavigationPlugin
+import com.eopeter.fluttermapboxnavigation.models.Waypoint
+import com.eopeter.fluttermapboxnavigation.models.WaypointSet
+import com.mapbox.api.directions.v5.models.Bearing
+import com.mapbox.api.directions.v5.models.RouteOptions
+import com.mapbox.geojson.Point
+import com.mapbox.navigation.base.route.NavigationRoute
+import com.mapbox.navigation.base.route.NavigationRouterCallback
+import com.mapbox.navigation.base.route.RouterFailure
+import com.mapbox.navigation.base.route.RouterOrigin
+import com.mapbox.navigation.base.trip.model.RouteProgress
+import com.mapbox.navigation.core.MapboxNavigation
+
+/**
+ * Inserts stops into the route being navigated without routing the whole trip again.
+ *
+ * Only the current leg is requested again, from the current location through the new stops to the
+ * destination of the leg. The legs after it are taken unchanged from the active route and joined to the
+ * new ones by [RouteStitcher], so a stop added to a long trip costs one short request and the rest of the
+ * trip keeps its geometry, instructions and waypoint names.
+ *
+ * Silent waypoints of the current leg are dropped, since the ones already passed can't be told apart
+ * from the ones ahead. Like the other stitched routes, the result has no alternatives, no request UUID and
+ * doesn't refresh, see [RouteStitcher.stitch]; only a route of the current leg alone comes back as the
+ * router answered it.
+ * All calls are expected on the main thread.
+ */
+object WaypointInserter {
+
+    private const val BEARING_TOLERANCE = 45.0
+
+    /**
+     * Requests the route from [location] through [stops] followed by the rest of the route of [progress],
+     * for [owner], like [RouteRequestCoordinator.request]. Returns false without requesting anything if
+     * the route can't be split at the current leg, so the caller can route the whole trip instead.
+     */
+    fun insert(
+        owner: Any,
+        navigation: MapboxNavigation,
+        progress: RouteProgress,
+        location: Location,
+        stops: List<Waypoint>,
+        callback: NavigationRouterCallback
+    ): Boolean {
+        val route = progress.navigationRoute
+        val options = route.routeOptions
+        val legIndex = progress.currentLegProgress?.legIndex ?: 0
+        val legs = route.directionsRoute.legs().orEmpty()
+        val coordinates = options.coordinatesList()
+        val indices = options.waypointIndicesList() ?: coordinates.indices.toList()
+        if (stops.isEmpty() || legIndex >= legs.size || legIndex + 1 >= indices.size) return false
+
+        val destination = indices[legIndex + 1]
+        val names = options.waypointNamesList()
+        val head = WaypointSet()
+        head.add(Waypoint(Point.fromLngLat(location.longitude, location.latitude), false))
+        stops.forEach { head.add(it) }
+        head.add(Waypoint(names?.getOrNull(legIndex + 1) ?: "", coordinates[destination], false))
+
+        val headOptions = options(options, head, location, destination, destination + 1)
+        val whole = options(options, head, location, destination, coordinates.size)
+        val headLast = head.coordinatesList().size - 1
+        val wholeOptions = whole.toBuilder()
+            .waypointIndicesList(
+                head.waypointsIndices() + indices.drop(legIndex + 2).map { it - destination + headLast }
+            )
+            .enableRefresh(false)
+        names?.let { wholeOptions.waypointNamesList(head.waypointsNames() + it.drop(legIndex + 2)) }
+        val stitchedOptions = wholeOptions.build()
+        val hasTail = legIndex + 1 < legs.size
+
+        FlutterMapboxNavigationPlugin.routeRequests.request(
+            owner,
+            navigation,
+            headOptions,
+            object : NavigationRouterCallback {
+                override fun onRoutesReady(routes: List<NavigationRoute>, routerOrigin: RouterOrigin) {
+                    val first = routes.firstOrNull()
+                    if (first == null || !hasTail) {
+                        callback.onRoutesReady(listOfNotNull(first), routerOrigin)
+                        return
+                    }
+                    RouteStitcher.stitchAsync(
+                        first,
+                        stitchedOptions,
+                        { listOf(RouteStitcher.piece(first), RouteStitcher.piece(route, legIndex + 1)) }
+                    ) { stitched ->
+                        when {
+                            // rerouted in the meantime, the tail no longer matches what is navigated
+                            navigation.getNavigationRoutes().firstOrNull()?.id != route.id ->
+                                callback.onCanceled(stitchedOptions, routerOrigin)
+                            stitched == null -> callback.onFailure(emptyList(), stitchedOptions)
+                            else -> callback.onRoutesReady(stitched, RouterOrigin.Custom())
+                        }
+                    }
+                }
+
+                override fun onFailure(reasons: List<RouterFailure>, routeOptions: RouteOptions) {
+                    callback.onFailure(reasons, routeOptions)
+                }
+
+                override fun onCanceled(routeOptions: RouteOptions, routerOrigin: RouterOrigin) {
+                    callback.onCanceled(routeOptions, routerOrigin)
+                }
+            }
+        )
+        return true
+    }
+
+    /**
+     * Returns [options] with the coordinates of [head] followed by the original coordinates after
+     * [destination] up to [end]. Per-coordinate lists keep their original values for the kept coordinates.
+     */
+    private fun options(
+        options: RouteOptions,
+        head: WaypointSet,
+        location: Location,
+        destination: Int,
+        end: Int
+    ): RouteOptions {
+        val coordinates = options.coordinatesList()
+        val added = head.coordinatesList().size - 1
+        val builder = options.toBuilder()
+            .coordinatesList(head.coordinatesList() + coordinates.subList(destination + 1, end))
+            .waypointIndicesList(head.waypointsIndices())
+            .alternatives(false)
+        if (options.waypointNamesList() != null) builder.waypointNamesList(head.waypointsNames())
+
+        val bearing = if (location.hasBearing()) {
+            Bearing.builder().angle(location.bearing.toDouble()).degrees(BEARING_TOLERANCE).build()
+        } else {
+            null
+        }
+        val bearings = options.bearingsList()
+        if (bearings != null || bearing != null) {
+            val kept = bearings?.subList(destination, end) ?: List(end - destination) { null }
+            builder.bearingsList(listOf(bearing) + List(added - 1) { null } + kept)
+        }
+        options.radiusesList()?.let {
+            builder.radiusesList(List(added) { null } + it.subList(destination, end))
+        }
+        options.approachesList()?.let {
+            builder.approachesList(List(added) { null } + it.subList(destination, end))
+        }
+        return builder.build()
+    }
+}
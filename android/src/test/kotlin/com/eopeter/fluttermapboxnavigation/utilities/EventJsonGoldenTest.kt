@@ -0,0 +1,206 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.eopeter.fluttermapboxnavigation.models.MapBoxEvents
+import com.eopeter.fluttermapboxnavigation.models.MapBoxLocation
+import com.eopeter.fluttermapboxnavigation.models.MapBoxMileStone
+import com.eopeter.fluttermapboxnavigation.models.MapBoxRouteLeg
+import com.eopeter.fluttermapboxnavigation.models.MapBoxRouteProgressEvent
+import com.google.gson.Gson
+import com.google.gson.JsonArray
+import com.google.gson.JsonObject
+import com.mapbox.api.directions.v5.models.LegStep
+import com.mapbox.api.directions.v5.models.RouteLeg
+import com.mapbox.api.directions.v5.models.StepManeuver
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Compares the events written by [JsonStreamWriter] with the bytes the Gson trees and string templates
+ * it replaced produced, which are rebuilt here as they were.
+ */
+class EventJsonGoldenTest {
+
+    private val leg = RouteLeg.builder()
+        .distance(1523.4)
+        .duration(187.25)
+        .summary("Main Street")
+        .steps(listOf(step(1500.1, 180.0), step(23.3, 7.25)))
+        .build()
+
+    @Test
+    fun stepsAndLegsMatchGson() {
+        val writer = JsonStreamWriter()
+        MapBoxRouteLeg(leg).writeJson(writer)
+
+        assertEquals(Gson().toJson(legJsonObject(leg)), writer.toString())
+    }
+
+    @Test
+    fun progressMatchesGson() {
+        val event = MapBoxRouteProgressEvent(
+            distance = 842.5f,
+            duration = 97.3,
+            distanceTraveled = 680.9f,
+            legIndex = 0,
+            routeId = null,
+            routeLeg = leg,
+            currentStepInstruction = "Turn left onto <Main> & 'Second'",
+            currentLegDistanceTraveled = 680.9f,
+            currentLegDistanceRemaining = 842.5f
+        )
+
+        val json = JsonObject()
+        json.addProperty("distance", 842.5f)
+        json.addProperty("duration", 97.3)
+        json.addProperty("distanceTraveled", 680.9f)
+        json.addProperty("legIndex", 0)
+        json.addProperty("currentLegDistanceRemaining", 842.5f)
+        json.addProperty("currentLegDistanceTraveled", 680.9f)
+        json.addProperty("currentStepInstruction", "Turn left onto <Main> & 'Second'")
+        json.add("currentLeg", legJsonObject(leg))
+        val data = Gson().toJson(json)
+
+        assertEquals(data, event.toJson())
+        assertEquals(
+            "{" +
+                    "  \"eventType\": \"${MapBoxEvents.PROGRESS_CHANGE.value}\"," +
+                    "  \"data\": $data" +
+                    "}",
+            JsonStreamWriter.obtain()
+                .beginObject(spaced = true)
+                .name("eventType").value(MapBoxEvents.PROGRESS_CHANGE.value)
+                .name("data").also { event.writeJson(it) }
+                .endObject()
+                .toString()
+        )
+    }
+
+    @Test
+    fun progressWithoutInstructionOrLegMatchesGson() {
+        val event = MapBoxRouteProgressEvent(12.5f, 3.0, 0f, null, null, null, "", null, null)
+
+        val json = JsonObject()
+        json.addProperty("distance", 12.5f)
+        json.addProperty("duration", 3.0)
+        json.addProperty("distanceTraveled", 0f)
+
+        assertEquals(Gson().toJson(json), event.toJson())
+    }
+
+    @Test
+    fun locationMatchesTemplate() {
+        val latitude = 37.7749295
+        val longitude = -122.4194155
+
+        assertEquals(
+            "{" +
+                    "  \"latitude\": $latitude," +
+                    "  \"longitude\": $longitude" +
+                    "}",
+            MapBoxLocation("", latitude, longitude).toString()
+        )
+    }
+
+    @Test
+    fun mileStoneMatchesTemplate() {
+        val identifier = 3
+        val distanceTraveled = 1250.75
+        val legIndex = 1
+        val stepIndex = 4
+
+        // the fields after stepIndex came with the native milestones and are null for the old ones
+        assertEquals(
+            "{" +
+                    "  \"identifier\": \"$identifier\"," +
+                    "  \"distanceTraveled\": $distanceTraveled," +
+                    "  \"legIndex\": \"$legIndex\"," +
+                    "  \"stepIndex\": \"$stepIndex\"," +
+                    "  \"type\": null," +
+                    "  \"value\": null," +
+                    "  \"distanceRemaining\": null," +
+                    "  \"durationRemaining\": null" +
+                    "}",
+            MapBoxMileStone(identifier, distanceTraveled, legIndex, stepIndex).toString()
+        )
+    }
+
+    @Test
+    fun plainTextEventMatchesTemplate() {
+        val data = "Route request failed: no route found near (37.77, -122.41) <code 422>"
+
+        assertEquals(
+            "{" +
+                    "  \"eventType\": \"${MapBoxEvents.ROUTE_BUILD_FAILED.value}\"," +
+                    "  \"data\": \"$data\"" +
+                    "}",
+            PluginUtilities.jsonEvent(MapBoxEvents.ROUTE_BUILD_FAILED, data)
+        )
+    }
+
+    @Test
+    fun jsonEventMatchesTemplate() {
+        val data = MapBoxLocation("", 37.7749295, -122.4194155).toString()
+
+        assertEquals(
+            "{" +
+                    "  \"eventType\": \"${MapBoxEvents.ON_MAP_TAP.value}\"," +
+                    "  \"data\": $data" +
+                    "}",
+            PluginUtilities.jsonEvent(MapBoxEvents.ON_MAP_TAP, data)
+        )
+    }
+
+    @Test
+    fun plainTextEventIsEscaped() {
+        // the template pasted this in as is, which made the whole event invalid JSON
+        val data = "Unexpected \"status\"\nat C:\\route"
+
+        assertEquals(
+            "{" +
+                    "  \"eventType\": \"${MapBoxEvents.ROUTE_BUILD_FAILED.value}\"," +
+                    "  \"data\": \"Unexpected \\\"status\\\"\\nat C:\\\\route\"" +
+                    "}",
+            PluginUtilities.jsonEvent(MapBoxEvents.ROUTE_BUILD_FAILED, data)
+        )
+    }
+
+    @Test
+    fun jsonEventWithoutDataIsAnEmptyString() {
+        // the template wrote `"data": }` here
+        assertEquals(
+            "{" +
+                    "  \"eventType\": \"${MapBoxEvents.MILESTONE_EVENT.value}\"," +
+                    "  \"data\": \"\"" +
+                    "}",
+            PluginUtilities.jsonEvent(MapBoxEvents.MILESTONE_EVENT, "")
+        )
+    }
+
+    private fun step(distance: Double, duration: Double): LegStep {
+        return LegStep.builder()
+            .distance(distance)
+            .duration(duration)
+            .weight(duration)
+            .mode("driving")
+            .maneuver(StepManeuver.builder().rawLocation(doubleArrayOf(-122.4194155, 37.7749295)).build())
+            .build()
+    }
+
+    private fun legJsonObject(leg: RouteLeg): JsonObject {
+        val json = JsonObject()
+        json.addProperty("distance", leg.distance())
+        json.addProperty("expectedTravelTime", leg.duration())
+
+        val steps = JsonArray()
+        for (step in leg.steps()!!) {
+            val stepJson = JsonObject()
+            stepJson.addProperty("instructions", "")
+            stepJson.addProperty("distance", step.distance())
+            stepJson.addProperty("expectedTravelTime", step.duration())
+            steps.add(stepJson)
+        }
+        json.add("steps", steps)
+
+        return json
+    }
+}
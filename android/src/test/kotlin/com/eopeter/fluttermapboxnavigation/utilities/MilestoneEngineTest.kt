@@ -0,0 +1,160 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.eopeter.fluttermapboxnavigation.models.MapBoxMileStone
+import com.eopeter.fluttermapboxnavigation.utilities.MilestoneEngine.Metric
+import com.eopeter.fluttermapboxnavigation.utilities.MilestoneEngine.Milestone
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class MilestoneEngineTest {
+
+    private val sent = mutableListOf<MapBoxMileStone>()
+    private var milestones: List<Milestone> = emptyList()
+    private val engine = MilestoneEngine({ milestones }) { sent.add(it) }
+
+    @Test
+    fun upperBoundFindsTheFirstGreaterKey() {
+        val keys = doubleArrayOf(1.0, 2.0, 2.0, 3.0)
+
+        assertEquals(0, MilestoneEngine.upperBound(keys, 0.5))
+        assertEquals(1, MilestoneEngine.upperBound(keys, 1.0))
+        assertEquals(3, MilestoneEngine.upperBound(keys, 2.0))
+        assertEquals(3, MilestoneEngine.upperBound(keys, 2.5))
+        assertEquals(4, MilestoneEngine.upperBound(keys, 3.0))
+        assertEquals(0, MilestoneEngine.upperBound(DoubleArray(0), 1.0))
+    }
+
+    @Test
+    fun crossedThresholdFiresOnce() {
+        milestones = listOf(Milestone(1, Metric.DISTANCE_TRAVELED, 100.0))
+
+        engine.onProgress(progress(traveled = 0.0))
+        engine.onProgress(progress(traveled = 50.0))
+        engine.onProgress(progress(traveled = 150.0))
+        engine.onProgress(progress(traveled = 200.0))
+
+        assertEquals(listOf(1), sent.map { it.identifier })
+    }
+
+    @Test
+    fun thresholdCrossedBackAndForthFiresOnce() {
+        milestones = listOf(Milestone(1, Metric.DURATION_REMAINING, 600.0))
+
+        engine.onProgress(progress(duration = 700.0))
+        engine.onProgress(progress(duration = 590.0))
+        // traffic pushes the arrival back, then it comes closer again
+        engine.onProgress(progress(duration = 650.0))
+        engine.onProgress(progress(duration = 580.0))
+
+        assertEquals(listOf(1), sent.map { it.identifier })
+    }
+
+    @Test
+    fun thresholdsCrossedInOneTickAllFire() {
+        milestones = listOf(
+            Milestone(1, Metric.DISTANCE_REMAINING, 300.0),
+            Milestone(2, Metric.DISTANCE_REMAINING, 1000.0),
+            Milestone(3, Metric.DISTANCE_REMAINING, 500.0),
+            Milestone(4, Metric.DISTANCE_REMAINING, 100.0)
+        )
+
+        engine.onProgress(progress(remaining = 1200.0))
+        engine.onProgress(progress(remaining = 250.0))
+
+        // in the order they were crossed, and not the one still ahead
+        assertEquals(listOf(2, 3, 1), sent.map { it.identifier })
+        assertEquals(listOf("distanceRemaining"), sent.map { it.type }.distinct())
+        assertEquals(listOf(250.0), sent.map { it.distanceRemaining }.distinct())
+    }
+
+    @Test
+    fun firstProgressOnlySetsTheMarks() {
+        milestones = listOf(
+            Milestone(1, Metric.DISTANCE_TRAVELED, 100.0),
+            Milestone(2, Metric.DISTANCE_TRAVELED, 700.0)
+        )
+
+        // a trip resumed halfway
+        engine.onProgress(progress(traveled = 500.0))
+        engine.onProgress(progress(traveled = 600.0))
+        assertEquals(emptyList<Int>(), sent.map { it.identifier })
+
+        engine.onProgress(progress(traveled = 800.0))
+        assertEquals(listOf(2), sent.map { it.identifier })
+    }
+
+    @Test
+    fun resetStartsTheMarksOver() {
+        milestones = listOf(Milestone(1, Metric.DISTANCE_TRAVELED, 100.0))
+
+        engine.onProgress(progress(traveled = 0.0))
+        engine.onProgress(progress(traveled = 150.0))
+        engine.reset()
+        engine.onProgress(progress(routeId = "b", traveled = 0.0))
+        engine.onProgress(progress(routeId = "b", traveled = 150.0))
+
+        assertEquals(listOf(1, 1), sent.map { it.identifier })
+    }
+
+    @Test
+    fun perLegMetricsStartOverOnANewLeg() {
+        milestones = listOf(
+            Milestone(1, Metric.STEP_INDEX, 2.0),
+            Milestone(2, Metric.LEG_FRACTION, 0.5)
+        )
+
+        engine.onProgress(progress(legIndex = 0, stepIndex = 0, legFraction = 0.0))
+        engine.onProgress(progress(legIndex = 0, stepIndex = 3, legFraction = 0.6))
+        // the step index and fraction go back to zero, which must not count as crossing anything
+        engine.onProgress(progress(legIndex = 1, stepIndex = 0, legFraction = 0.0))
+        engine.onProgress(progress(legIndex = 1, stepIndex = 2, legFraction = 0.5))
+
+        assertEquals(listOf(1, 2, 1, 2), sent.map { it.identifier })
+        assertEquals(listOf(0, 0, 1, 1), sent.map { it.legIndex })
+    }
+
+    @Test
+    fun legIndexIsNotPerLeg() {
+        milestones = listOf(Milestone(1, Metric.LEG_INDEX, 1.0))
+
+        engine.onProgress(progress(legIndex = 0))
+        engine.onProgress(progress(legIndex = 1))
+        engine.onProgress(progress(legIndex = 2))
+
+        assertEquals(listOf(1), sent.map { it.identifier })
+    }
+
+    @Test
+    fun distanceTraveledAddsUpAcrossReroutes() {
+        milestones = listOf(Milestone(1, Metric.DISTANCE_TRAVELED, 500.0))
+
+        engine.onProgress(progress(routeId = "a", traveled = 0.0))
+        engine.onProgress(progress(routeId = "a", traveled = 400.0))
+        // the rerouted route counts from zero again
+        engine.onProgress(progress(routeId = "b", traveled = 0.0))
+        engine.onProgress(progress(routeId = "b", traveled = 50.0))
+        assertEquals(emptyList<Int>(), sent.map { it.identifier })
+
+        engine.onProgress(progress(routeId = "b", traveled = 200.0))
+        assertEquals(listOf(1), sent.map { it.identifier })
+        assertEquals(600.0, sent.single().distanceTraveled!!, 0.0)
+    }
+
+    @Test
+    fun nothingIsSentWithoutMilestones() {
+        engine.onProgress(progress(traveled = 0.0))
+        engine.onProgress(progress(traveled = 1000.0))
+
+        assertEquals(emptyList<MapBoxMileStone>(), sent)
+    }
+
+    private fun progress(
+        routeId: String = "a",
+        legIndex: Int = 0,
+        stepIndex: Int = 0,
+        legFraction: Double = 0.0,
+        traveled: Double = 0.0,
+        remaining: Double = 10_000.0,
+        duration: Double = 1000.0
+    ) = MilestoneEngine.Progress(routeId, legIndex, stepIndex, legFraction, traveled, remaining, duration)
+}
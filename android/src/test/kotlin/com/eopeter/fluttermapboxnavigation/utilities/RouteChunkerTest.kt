@@ -0,0 +1,75 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.mapbox.api.directions.v5.DirectionsCriteria
+import com.mapbox.api.directions.v5.models.RouteOptions
+import com.mapbox.geojson.Point
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Test
+
+/**
+ * Splits requests with more coordinates than one Directions request takes, on a line of coordinates along
+ * the equator.
+ */
+class RouteChunkerTest {
+
+    @Test
+    fun segmentsShareTheirBoundaryCoordinate() {
+        val (segments, whole) = RouteChunker.split(options(60))
+
+        assertEquals(listOf(0..24, 24..48, 48..59), segments.map { longitudes(it) })
+        segments.forEach { assertEquals(it.coordinatesList().indices.toList(), it.waypointIndicesList()) }
+        assertEquals((0 until 60).toList(), whole.waypointIndicesList())
+        assertEquals(false, whole.enableRefresh())
+    }
+
+    @Test
+    fun segmentsEndOnTheLastRegularWaypointInReach() {
+        val (segments, whole) = RouteChunker.split(options(40, listOf(0, 10, 20, 30, 39)))
+
+        assertEquals(listOf(0..20, 20..39), segments.map { longitudes(it) })
+        assertEquals(listOf(0, 10, 20), segments[0].waypointIndicesList())
+        assertEquals(listOf(0, 10, 19), segments[1].waypointIndicesList())
+        assertEquals(listOf(0, 10, 20, 30, 39), whole.waypointIndicesList())
+    }
+
+    @Test
+    fun silentBoundaryBecomesRegular() {
+        // no regular waypoint within reach of the first one
+        val (segments, whole) = RouteChunker.split(options(30, listOf(0, 29), listOf("start", "end")))
+
+        assertEquals(listOf(0..24, 24..29), segments.map { longitudes(it) })
+        assertEquals(listOf(0, 24), segments[0].waypointIndicesList())
+        assertEquals(listOf("start", ""), segments[0].waypointNamesList())
+        assertEquals(listOf(0, 5), segments[1].waypointIndicesList())
+        assertEquals(listOf("", "end"), segments[1].waypointNamesList())
+        assertEquals(listOf(0, 24, 29), whole.waypointIndicesList())
+        assertEquals(listOf("start", "", "end"), whole.waypointNamesList())
+    }
+
+    @Test
+    fun segmentsNeverAskForAlternatives() {
+        val (segments, _) = RouteChunker.split(options(30).toBuilder().alternatives(true).build())
+
+        segments.forEach { assertFalse(it.alternatives()!!) }
+    }
+
+    /**
+     * Coordinates at longitudes 0 to [count] - 1 thousandths of a degree, so each one tells its index.
+     */
+    private fun options(count: Int, waypointIndices: List<Int>? = null, names: List<String>? = null): RouteOptions {
+        val builder = RouteOptions.builder()
+            .profile(DirectionsCriteria.PROFILE_DRIVING)
+            .geometries(DirectionsCriteria.GEOMETRY_POLYLINE6)
+            .coordinatesList(List(count) { Point.fromLngLat(it * 0.001, 0.0) })
+        waypointIndices?.let { builder.waypointIndicesList(it) }
+        names?.let { builder.waypointNamesList(it) }
+        return builder.build()
+    }
+
+    private fun longitudes(options: RouteOptions): IntRange {
+        val coordinates = options.coordinatesList().map { Math.round(it.longitude() * 1000).toInt() }
+        assertEquals((coordinates.first()..coordinates.last()).toList(), coordinates)
+        return coordinates.first()..coordinates.last()
+    }
+}
@@ -0,0 +1,144 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.mapbox.geojson.Point
+import kotlin.math.abs
+import kotlin.math.cos
+import kotlin.math.sqrt
+import kotlin.random.Random
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Projects positions next to a route on the equator, where a hundredth of a degree is [STEP] meters
+ * both ways, so the expected distances can be worked out by hand.
+ */
+class RouteProjectionIndexTest {
+
+    companion object {
+        private const val METERS_PER_DEGREE = GeoMath.EARTH_RADIUS * Math.PI / 180
+        private const val STEP = METERS_PER_DEGREE * 0.01
+        private const val TOLERANCE = 1e-3
+    }
+
+    // east, then north
+    private val index = RouteProjectionIndex(
+        listOf(
+            Point.fromLngLat(0.0, 0.0),
+            Point.fromLngLat(0.01, 0.0),
+            Point.fromLngLat(0.01, 0.01)
+        )
+    )
+
+    @Test
+    fun lengthAddsUpTheSegments() {
+        assertEquals(2 * STEP, index.length, TOLERANCE)
+    }
+
+    @Test
+    fun positionLeftOfTheRouteIsNegative() {
+        val projection = index.project(0.005, 0.001, 500.0)!!
+
+        assertEquals(0, projection.segment)
+        assertEquals(STEP / 2, projection.along, TOLERANCE)
+        assertEquals(-0.001 * METERS_PER_DEGREE, projection.crossTrack, TOLERANCE)
+        assertEquals(0.005, projection.nearest.longitude(), 1e-9)
+        assertEquals(0.0, projection.nearest.latitude(), 1e-9)
+    }
+
+    @Test
+    fun positionRightOfTheRouteIsPositive() {
+        val south = index.project(0.005, -0.001, 500.0)!!
+        assertEquals(0.001 * METERS_PER_DEGREE, south.crossTrack, TOLERANCE)
+
+        // east of the northbound segment
+        val east = index.project(0.011, 0.005, 500.0)!!
+        assertEquals(1, east.segment)
+        assertEquals(1.5 * STEP, east.along, TOLERANCE)
+        assertEquals(0.001 * cos(Math.toRadians(0.005)) * METERS_PER_DEGREE, east.crossTrack, TOLERANCE)
+    }
+
+    @Test
+    fun alongStopsAtTheSegmentEnds() {
+        val corner = index.project(0.01, 0.0, 500.0)!!
+        assertEquals(STEP, corner.along, TOLERANCE)
+        assertEquals(0.0, corner.crossTrack, TOLERANCE)
+
+        // outside the corner, both segments are nearest at their shared point
+        val outside = index.project(0.012, -0.002, 500.0)!!
+        assertEquals(STEP, outside.along, TOLERANCE)
+        assertEquals(0.01, outside.nearest.longitude(), 1e-9)
+        assertEquals(0.0, outside.nearest.latitude(), 1e-9)
+
+        val beforeStart = index.project(-0.001, 0.0, 500.0)!!
+        assertEquals(0.0, beforeStart.along, TOLERANCE)
+        assertEquals(0.001 * METERS_PER_DEGREE, abs(beforeStart.crossTrack), TOLERANCE)
+
+        val afterEnd = index.project(0.01, 0.012, 500.0)!!
+        assertEquals(index.length, afterEnd.along, TOLERANCE)
+    }
+
+    @Test
+    fun routeFurtherThanMaxDistanceIsNotProjected() {
+        // about 556 meters from both segments
+        assertNull(index.project(0.005, 0.005, 500.0))
+        assertNotNull(index.project(0.005, 0.005, 600.0))
+    }
+
+    @Test
+    fun distantSegmentIsFoundSeveralRingsOut() {
+        // about 890 meters, three to four cells of 250 meters away
+        val projection = index.project(0.005, -0.008, 1000.0)!!
+
+        assertEquals(0, projection.segment)
+        assertEquals(0.008 * METERS_PER_DEGREE, projection.crossTrack, TOLERANCE)
+    }
+
+    @Test
+    fun nearestSegmentMatchesBruteForce() {
+        // a zigzag whose segments pass through the cells around each other
+        val random = Random(7)
+        val route = List(40) { i ->
+            Point.fromLngLat(i * 0.002, if (i % 2 == 0) 0.0 else 0.004 + random.nextDouble(0.0, 0.002))
+        }
+        val zigzag = RouteProjectionIndex(route)
+
+        repeat(500) {
+            val longitude = random.nextDouble(-0.005, 0.085)
+            val latitude = random.nextDouble(-0.005, 0.011)
+            val projection = zigzag.project(longitude, latitude, 2000.0)
+            val expected = nearestDistance(route, longitude, latitude)
+
+            if (expected > 2000.0) {
+                assertNull(projection)
+            } else {
+                assertNotNull("no projection of $longitude, $latitude", projection)
+                assertEquals(expected, abs(projection!!.crossTrack), TOLERANCE)
+                assertTrue(projection.along in 0.0..zigzag.length)
+            }
+        }
+    }
+
+    /**
+     * The distance from the position to the nearest segment, looking at every one of them.
+     */
+    private fun nearestDistance(route: List<Point>, longitude: Double, latitude: Double): Double {
+        val cosLat = cos(Math.toRadians(latitude))
+        var best = Double.MAX_VALUE
+        for (i in 0 until route.size - 1) {
+            val ax = (route[i].longitude() - longitude) * cosLat * METERS_PER_DEGREE
+            val ay = (route[i].latitude() - latitude) * METERS_PER_DEGREE
+            val bx = (route[i + 1].longitude() - longitude) * cosLat * METERS_PER_DEGREE
+            val by = (route[i + 1].latitude() - latitude) * METERS_PER_DEGREE
+            val sx = bx - ax
+            val sy = by - ay
+            val t = ((-ax * sx - ay * sy) / (sx * sx + sy * sy)).coerceIn(0.0, 1.0)
+            val px = ax + sx * t
+            val py = ay + sy * t
+            best = minOf(best, sqrt(px * px + py * py))
+        }
+        return best
+    }
+}
@@ -0,0 +1,217 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.mapbox.api.directions.v5.DirectionsCriteria
+import com.mapbox.api.directions.v5.models.DirectionsResponse
+import com.mapbox.api.directions.v5.models.DirectionsRoute
+import com.mapbox.api.directions.v5.models.DirectionsWaypoint
+import com.mapbox.api.directions.v5.models.LegStep
+import com.mapbox.api.directions.v5.models.RouteLeg
+import com.mapbox.api.directions.v5.models.RouteOptions
+import com.mapbox.api.directions.v5.models.SilentWaypoint
+import com.mapbox.api.directions.v5.models.StepManeuver
+import com.mapbox.core.constants.Constants
+import com.mapbox.geojson.Point
+import com.mapbox.geojson.utils.PolylineUtils
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+/**
+ * Stitches fixture routes along the equator, where point `n` lies at `n` thousandths of a degree of longitude
+ * and waypoint `n` is named after it, so every index of the result tells which point it refers to.
+ */
+class RouteStitcherTest {
+
+    @Test
+    fun laterLegsOfARouteAreShiftedToTheirFirstPoint() {
+        // 0 -> 2 -> 4, with a silent waypoint at 3
+        val piece = RouteStitcher.piece(
+            route(listOf(leg(0..2), leg(2..4, silent(2, 3)))),
+            waypoints(0, 2, 3, 4),
+            options(listOf(0, 2, 3, 4), listOf(0, 1, 3)),
+            fromLeg = 1
+        )
+
+        assertEquals(listOf(2, 3, 4), indices(piece.geometry))
+        assertEquals(listOf("2", "3", "4"), piece.waypoints.map { it.name() })
+        assertEquals(1, piece.legs.size)
+        val via = piece.legs.single().viaWaypoints()!!.single()
+        assertEquals(1, via.waypointIndex())
+        assertEquals(1, via.geometryIndex())
+        assertEquals(20.0, piece.distance, 0.0)
+    }
+
+    @Test
+    fun twoRoutesAreJoinedAtTheirSharedPoint() {
+        val first = RouteStitcher.piece(
+            route(listOf(leg(0..2))),
+            waypoints(0, 2),
+            options(listOf(0, 2)),
+            fromLeg = 0
+        )
+        val second = RouteStitcher.piece(
+            route(listOf(leg(2..4, silent(1, 1)))),
+            waypoints(2, 3, 4),
+            options(listOf(2, 3, 4), listOf(0, 2)),
+            fromLeg = 0
+        )
+
+        val response = stitch(listOf(first, second))
+        val route = response.routes().single()
+
+        assertEquals(2, route.legs()!!.size)
+        assertEquals(listOf(0, 1, 2, 3, 4), indices(geometry(route)))
+        assertEquals(listOf("0", "2", "3", "4"), response.waypoints()!!.map { it.name() })
+        val via = route.legs()!![1].viaWaypoints()!!.single()
+        assertEquals(2, via.waypointIndex())
+        assertEquals(3, via.geometryIndex())
+        assertEquals(40.0, route.distance(), 0.0)
+    }
+
+    @Test
+    fun threePiecesShiftEveryLaterLeg() {
+        val pieces = listOf(
+            RouteStitcher.Piece(listOf(leg(0..2, silent(1, 1))), points(0..2), waypoints(0, 1, 2), 20.0, 2.0, 3.0),
+            RouteStitcher.Piece(listOf(leg(2..4, silent(1, 1))), points(2..4), waypoints(2, 3, 4), 20.0, 2.0, 3.0),
+            RouteStitcher.Piece(
+                listOf(leg(4..5), leg(5..7, silent(2, 2))),
+                points(4..7),
+                waypoints(4, 5, 6, 7),
+                30.0,
+                3.0,
+                4.0
+            )
+        )
+
+        val response = stitch(pieces)
+        val route = response.routes().single()
+
+        assertEquals(4, route.legs()!!.size)
+        assertEquals((0..7).toList(), indices(geometry(route)))
+        assertEquals((0..7).map { "$it" }, response.waypoints()!!.map { it.name() })
+        // every via waypoint points at the waypoint and the point it is named after
+        listOf(0 to 1, 1 to 3, 3 to 6).forEach { (leg, at) ->
+            val via = route.legs()!![leg].viaWaypoints()!!.single()
+            assertEquals(at, via.waypointIndex())
+            assertEquals(at, via.geometryIndex())
+        }
+        assertEquals(70.0, route.distance(), 0.0)
+        assertEquals(7.0, route.duration(), 0.0)
+        assertEquals(10.0, route.weight()!!, 0.0)
+    }
+
+    @Test
+    fun stitchedRouteCannotBeRefreshed() {
+        val piece = RouteStitcher.Piece(listOf(leg(0..2)), points(0..2), waypoints(0, 2), 20.0, 2.0, 3.0)
+
+        val response = RouteStitcher.stitchResponse(
+            template(),
+            template().routes().first(),
+            options(listOf(0, 2)),
+            listOf(piece)
+        )
+
+        assertNull(response.uuid())
+        val route = response.routes().single()
+        assertNull(route.requestUuid())
+        assertEquals("0", route.routeIndex())
+        assertEquals(false, route.routeOptions()!!.enableRefresh())
+    }
+
+    private fun stitch(pieces: List<RouteStitcher.Piece>): DirectionsResponse {
+        val template = template()
+        return RouteStitcher.stitchResponse(template, template.routes().first(), options(listOf(0)), pieces)
+    }
+
+    private fun template(): DirectionsResponse {
+        val route = DirectionsRoute.builder()
+            .distance(1.0)
+            .duration(1.0)
+            .requestUuid("template")
+            .build()
+        return DirectionsResponse.builder()
+            .code("Ok")
+            .uuid("template")
+            .routes(listOf(route))
+            .build()
+    }
+
+    /**
+     * A route with [legs], each one step long, along the geometry of their steps.
+     */
+    private fun route(legs: List<RouteLeg>): DirectionsRoute {
+        val first = legs.first().steps()!!.first().geometry()!!
+        val points = legs.fold(PolylineUtils.decode(first, Constants.PRECISION_6).take(1)) { points, leg ->
+            points + PolylineUtils.decode(leg.steps()!!.single().geometry()!!, Constants.PRECISION_6).drop(1)
+        }
+        return DirectionsRoute.builder()
+            .distance(legs.sumOf { it.distance()!! })
+            .duration(legs.sumOf { it.duration()!! })
+            .weight(legs.sumOf { it.duration()!! })
+            .geometry(PolylineUtils.encode(points, Constants.PRECISION_6))
+            .legs(legs)
+            .build()
+    }
+
+    /**
+     * A one step leg over [range], 10 meters and 1 second per point, passing the [via] waypoint if any.
+     */
+    private fun leg(range: IntRange, via: SilentWaypoint? = null): RouteLeg {
+        val distance = (range.last - range.first) * 10.0
+        val duration = (range.last - range.first) * 1.0
+        val step = LegStep.builder()
+            .distance(distance)
+            .duration(duration)
+            .mode("driving")
+            .weight(duration)
+            .geometry(PolylineUtils.encode(points(range), Constants.PRECISION_6))
+            .maneuver(StepManeuver.builder().rawLocation(doubleArrayOf(range.first * 0.001, 0.0)).build())
+            .build()
+        val builder = RouteLeg.builder()
+            .distance(distance)
+            .duration(duration)
+            .summary("")
+            .steps(listOf(step))
+        via?.let { builder.viaWaypoints(listOf(it)) }
+        return builder.build()
+    }
+
+    /**
+     * A silent waypoint at index [waypointIndex] of the waypoints and [geometryIndex] of the geometry of
+     * its route.
+     */
+    private fun silent(waypointIndex: Int, geometryIndex: Int): SilentWaypoint {
+        return SilentWaypoint.builder()
+            .waypointIndex(waypointIndex)
+            .distanceFromStart(geometryIndex * 10.0)
+            .geometryIndex(geometryIndex)
+            .build()
+    }
+
+    private fun options(points: List<Int>, waypointIndices: List<Int>? = null): RouteOptions {
+        val builder = RouteOptions.builder()
+            .profile(DirectionsCriteria.PROFILE_DRIVING)
+            .geometries(DirectionsCriteria.GEOMETRY_POLYLINE6)
+            .coordinatesList(points.map { point(it) })
+        waypointIndices?.let { builder.waypointIndicesList(it) }
+        return builder.build()
+    }
+
+    private fun waypoints(vararg points: Int): List<DirectionsWaypoint> {
+        return points.map {
+            DirectionsWaypoint.builder().name("$it").rawLocation(doubleArrayOf(it * 0.001, 0.0)).build()
+        }
+    }
+
+    private fun points(range: IntRange): List<Point> = range.map { point(it) }
+
+    private fun point(index: Int): Point = Point.fromLngLat(index * 0.001, 0.0)
+
+    private fun geometry(route: DirectionsRoute): List<Point> {
+        return PolylineUtils.decode(route.geometry()!!, Constants.PRECISION_6)
+    }
+
+    private fun indices(points: List<Point>): List<Int> {
+        return points.map { Math.round(it.longitude() * 1000).toInt() }
+    }
+}
@@ -0,0 +1,89 @@
+package com.eopeter.fluttermapboxnavigation.utilities
+
+import com.eopeter.fluttermapboxnavigation.models.Waypoint
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Orders stops on the equator, where the great-circle distances grow with the longitude alone, or with
+ * hand-made travel time matrices.
+ */
+class StopOrderOptimizerTest {
+
+    @Test
+    fun stopsOnALineAreVisitedInOrder() {
+        val result = StopOrderOptimizer.solve(stops(0.0, 0.04, 0.01, 0.03, 0.02, 0.05))
+
+        assertArrayEquals(intArrayOf(0, 2, 4, 3, 1, 5), result.order)
+        assertTrue(result.cost < result.initialCost)
+    }
+
+    @Test
+    fun firstAndLastStayFixed() {
+        // the last waypoint lies between the others, where a closed tour would visit it
+        val result = StopOrderOptimizer.solve(stops(0.0, 0.01, 0.03, 0.04, 0.02))
+
+        assertEquals(0, result.order.first())
+        assertEquals(4, result.order.last())
+        assertEquals(listOf(0, 1, 2, 3, 4), result.order.sorted())
+        assertTrue(result.cost <= result.initialCost)
+    }
+
+    @Test
+    fun silentWaypointsMoveWithTheirStop() {
+        val waypoints = listOf(
+            Waypoint("", 0.0, 0.0, false),
+            Waypoint("", 0.04, 0.0, false),
+            Waypoint("", 0.041, 0.0, true),
+            Waypoint("", 0.01, 0.0, false),
+            Waypoint("", 0.02, 0.0, false),
+            Waypoint("", 0.05, 0.0, false)
+        )
+
+        val result = StopOrderOptimizer.solve(waypoints)
+
+        assertArrayEquals(intArrayOf(0, 3, 4, 1, 2, 5), result.order)
+    }
+
+    @Test
+    fun asymmetricDurationsAreHonored() {
+        // every waypoint at the same place, so only the durations tell them apart
+        val waypoints = stops(0.0, 0.0, 0.0, 0.0, 0.0)
+        val durations = List(5) { from -> MutableList(5) { to -> if (from == to) 0.0 else 10.0 } }
+        // cheap one way only: 0, 3, 1, 2, 4
+        durations[0][3] = 1.0
+        durations[3][1] = 1.0
+        durations[1][2] = 1.0
+        durations[2][4] = 1.0
+
+        val result = StopOrderOptimizer.solve(waypoints, durations)
+
+        assertArrayEquals(intArrayOf(0, 3, 1, 2, 4), result.order)
+        assertEquals(31.0, result.initialCost, 0.0)
+        assertEquals(4.0, result.cost, 0.0)
+    }
+
+    @Test
+    fun nonSquareDurationsKeepTheOrder() {
+        val waypoints = stops(0.0, 0.04, 0.01, 0.03, 0.02, 0.05)
+
+        val missingRow = List(5) { List(6) { 1.0 } }
+        assertArrayEquals(intArrayOf(0, 1, 2, 3, 4, 5), StopOrderOptimizer.solve(waypoints, missingRow).order)
+
+        val shortRow = List(6) { row -> List(if (row == 3) 5 else 6) { 1.0 } }
+        assertArrayEquals(intArrayOf(0, 1, 2, 3, 4, 5), StopOrderOptimizer.solve(waypoints, shortRow).order)
+    }
+
+    @Test
+    fun fewStopsKeepTheOrder() {
+        val result = StopOrderOptimizer.solve(stops(0.0, 0.02, 0.01))
+
+        assertArrayEquals(intArrayOf(0, 1, 2), result.order)
+    }
+
+    private fun stops(vararg longitudes: Double): List<Waypoint> {
+        return longitudes.map { Waypoint("", it, 0.0, false) }
+    }
+}
@@ -1,10 +1,10 @@
 import 'dart:async';
-import 'dart:convert';
 import 'dart:io';
 
 import 'package:flutter/services.dart';
 import 'package:flutter/widgets.dart';
 import 'package:flutter_mapbox_navigation/src/models/models.dart';
+import 'package:flutter_mapbox_navigation/src/route_event_decoder.dart';
 
 /// Controller for a single MapBox Navigation instance
 /// running on the host platform.
@@ -43,6 +43,154 @@ class MapBoxNavigationViewController {
       .invokeMethod<double>('getDurationRemaining')
       .then((dynamic result) => result as double);
 
+  /// Counters of the background event pipeline, or null when it is disabled.
+  /// Android only.
+  Future<Map<String, dynamic>?> get eventPipelineStats => _methodChannel
+      .invokeMapMethod<String, dynamic>('getEventPipelineStats');
+
+  /// Counters of the route response cache. Android only.
+  Future<Map<String, dynamic>?> get routeCacheStats =>
+      _methodChannel.invokeMapMethod<String, dynamic>('getRouteCacheStats');
+
+  /// Counters of the route requests answered by the hybrid router and the
+  /// quality of the network. Android only.
+  Future<Map<String, dynamic>?> get routerStats =>
+      _methodChannel.invokeMapMethod<String, dynamic>('getRouterStats');
+
+  /// Counters and latency of the route requests. Android only.
+  Future<Map<String, dynamic>?> get routeRequestStats =>
+      _methodChannel.invokeMapMethod<String, dynamic>('getRouteRequestStats');
+
+  /// Outcomes of the route refreshes scheduled for
+  /// [MapBoxOptions.enableRefresh]. Android only.
+  Future<Map<String, dynamic>?> get routeRefreshStats =>
+      _methodChannel.invokeMapMethod<String, dynamic>('getRouteRefreshStats');
+
+  /// Forgets every cached route response. Android only.
+  Future<bool?> clearRouteCache() =>
+      _methodChannel.invokeMethod<bool>('clearRouteCache');
+
+  /// A page of the legs of a route from the handles of the route_built
+  /// event. Android only.
+  Future<RoutePage<RouteLeg>?> getRouteLegs(
+    String routeId, {
+    int offset = 0,
+    int limit = 20,
+  }) async {
+    final page = await _methodChannel.invokeMapMethod<String, dynamic>(
+      'getRouteLegs',
+      {'routeId': routeId, 'offset': offset, 'limit': limit},
+    );
+    return page == null ? null : RoutePage.fromJson(page, RouteLeg.fromJson);
+  }
+
+  /// A page of the steps of one leg of a route. Android only.
+  Future<RoutePage<RouteStep>?> getRouteSteps(
+    String routeId, {
+    int legIndex = 0,
+    int offset = 0,
+    int limit = 20,
+  }) async {
+    final page = await _methodChannel.invokeMapMethod<String, dynamic>(
+      'getRouteSteps',
+      {
+        'routeId': routeId,
+        'legIndex': legIndex,
+        'offset': offset,
+        'limit': limit,
+      },
+    );
+    return page == null ? null : RoutePage.fromJson(page, RouteStep.fromJson);
+  }
+
+  /// A page of the points of a route as an encoded polyline. Android only.
+  Future<RouteGeometryPage?> getRouteGeometry(
+    String routeId, {
+    int offset = 0,
+    int limit = 1000,
+  }) async {
+    final page = await _methodChannel.invokeMapMethod<String, dynamic>(
+      'getRouteGeometry',
+      {'routeId': routeId, 'offset': offset, 'limit': limit},
+    );
+    return page == null ? null : RouteGeometryPage.fromJson(page);
+  }
+
+  /// The geometry of a route simplified for [zoom], dropping the points closer
+  /// than [tolerance] pixels (1 by default) to the line. Android only.
+  Future<SimplifiedRouteGeometry?> getSimplifiedRouteGeometry(
+    String routeId, {
+    required double zoom,
+    RouteGeometryFormat format = RouteGeometryFormat.polyline6,
+    double? tolerance,
+  }) async {
+    final geometry = await _methodChannel.invokeMapMethod<String, dynamic>(
+      'getSimplifiedRouteGeometry',
+      {
+        'routeId': routeId,
+        'zoom': zoom,
+        'format': format.toString().split('.').last,
+        'tolerance': tolerance,
+      },
+    );
+    return geometry == null ? null : SimplifiedRouteGeometry.fromJson(geometry);
+  }
+
+  /// Requests the route through [wayPoints] for every mode in [modes] at the
+  /// same time, without changing the mode of this view. Android only.
+  Future<RouteComparison?> compareRoutes({
+    required List<WayPoint> wayPoints,
+    List<MapBoxNavigationMode> modes = const [
+      MapBoxNavigationMode.drivingWithTraffic,
+      MapBoxNavigationMode.cycling,
+      MapBoxNavigationMode.walking,
+    ],
+    Duration timeout = const Duration(seconds: 8),
+  }) async {
+    assert(wayPoints.length > 1, 'Error: WayPoints must be at least 2');
+    final comparison = await _methodChannel.invokeMapMethod<String, dynamic>(
+      'compareRoutes',
+      {
+        'wayPoints': _wayPointMap(wayPoints),
+        'profiles': modes.map((e) => e.toString().split('.').last).toList(),
+        'timeoutMillis': timeout.inMilliseconds,
+      },
+    );
+    return comparison == null ? null : RouteComparison.fromJson(comparison);
+  }
+
+  /// Replaces the milestones of [MapBoxOptions.milestones] of this view with
+  /// [milestones] and returns how many are valid. Other views and the full
+  /// screen navigation keep theirs. Android only.
+  Future<int?> setMilestones(List<RouteMilestone> milestones) =>
+      _methodChannel.invokeMethod<int>(
+        'setMilestones',
+        {'milestones': milestones.map((e) => e.toMap()).toList()},
+      );
+
+  /// Projects [positions] onto the active route, followed by the markers
+  /// with [markerIds], or by all markers of this view when [includeMarkers]
+  /// is set, and returns how far in front of or behind the driver each of
+  /// them is. Positions further than [maxDistance] meters from the route
+  /// aren't projected. Android only.
+  Future<RouteProjection?> projectOnRoute({
+    List<WayPoint> positions = const [],
+    List<String>? markerIds,
+    bool includeMarkers = false,
+    double maxDistance = 500,
+  }) async {
+    final projection = await _methodChannel.invokeMapMethod<String, dynamic>(
+      'projectOnRoute',
+      {
+        'coordinates': RouteProjection.pack(positions),
+        if (markerIds != null) 'markerIds': markerIds,
+        'includeMarkers': includeMarkers,
+        'maxDistance': maxDistance,
+      },
+    );
+    return projection == null ? null : RouteProjection.fromJson(projection);
+  }
+
   ///Build the Route Used for the Navigation
   ///
   /// [wayPoints] must not be null. A collection of [WayPoint](longitude,
@@ -64,30 +212,9 @@ class MapBoxNavigationViewController {
         ''',
       );
     }
-    final pointList = <Map<String, Object?>>[];
-
-    for (var i = 0; i < wayPoints.length; i++) {
-      final wayPoint = wayPoints[i];
-      assert(wayPoint.name != null, 'Error: waypoints need name');
-      assert(wayPoint.latitude != null, 'Error: waypoints need latitude');
-      assert(wayPoint.longitude != null, 'Error: waypoints need longitude');
-
-      final pointMap = <String, dynamic>{
-        'Order': i,
-        'Name': wayPoint.name,
-        'Latitude': wayPoint.latitude,
-        'Longitude': wayPoint.longitude,
-        'IsSilent': wayPoint.isSilent,
-      };
-      pointList.add(pointMap);
-    }
-
-    var i = 0;
-    final wayPointMap = {for (var e in pointList) i++: e};
-
     var args = <String, dynamic>{};
     if (options != null) args = options.toMap();
-    args['wayPoints'] = wayPointMap;
+    args['wayPoints'] = _wayPointMap(wayPoints);
 
     _routeEventSubscription = _streamRouteEvent!.listen(_onProgressData);
     return _methodChannel
@@ -189,6 +316,29 @@ class MapBoxNavigationViewController {
   }
 
   /// Generic Handler for Messages sent from the Platform
+  Map<int, Map<String, Object?>> _wayPointMap(List<WayPoint> wayPoints) {
+    final pointList = <Map<String, Object?>>[];
+
+    for (var i = 0; i < wayPoints.length; i++) {
+      final wayPoint = wayPoints[i];
+      assert(wayPoint.name != null, 'Error: waypoints need name');
+      assert(wayPoint.latitude != null, 'Error: waypoints need latitude');
+      assert(wayPoint.longitude != null, 'Error: waypoints need longitude');
+
+      final pointMap = <String, dynamic>{
+        'Order': i,
+        'Name': wayPoint.name,
+        'Latitude': wayPoint.latitude,
+        'Longitude': wayPoint.longitude,
+        'IsSilent': wayPoint.isSilent,
+      };
+      pointList.add(pointMap);
+    }
+
+    var i = 0;
+    return {for (var e in pointList) i++: e};
+  }
+
   Future<dynamic> _handleMethod(MethodCall call) async {
     switch (call.method) {
       case 'sendFromNative':
@@ -210,21 +360,6 @@ class MapBoxNavigationViewController {
   Stream<RouteEvent>? get _streamRouteEvent {
     return _eventChannel
         .receiveBroadcastStream()
-        .map((dynamic event) => _parseRouteEvent(event as String));
-  }
-
-  RouteEvent _parseRouteEvent(String jsonString) {
-    RouteEvent event;
-    final map = json.decode(jsonString) as Map<String, dynamic>;
-    final progressEvent = RouteProgressEvent.fromJson(map);
-    if (progressEvent.isProgressEvent!) {
-      event = RouteEvent(
-        eventType: MapBoxEvent.progress_change,
-        data: progressEvent,
-      );
-    } else {
-      event = RouteEvent.fromJson(map);
-    }
-    return event;
+        .expand(RouteEventDecoder().decodeAll);
   }
 }
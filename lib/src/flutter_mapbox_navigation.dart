@@ -56,11 +56,162 @@ class MapBoxNavigation {
     return FlutterMapboxNavigationPlatform.instance.getDurationRemaining();
   }
 
+  /// Counters of the background event pipeline (capacity, queued, offered,
+  /// dropped, delivered), or null when it is disabled. Android only.
+  Future<Map<String, dynamic>?> getEventPipelineStats() {
+    return FlutterMapboxNavigationPlatform.instance.getEventPipelineStats();
+  }
+
+  /// Counters of the route response cache (entries, hits, diskHits, misses,
+  /// evictions, expirations, hitRate, averageFetchMillis). Android only.
+  Future<Map<String, dynamic>?> getRouteCacheStats() {
+    return FlutterMapboxNavigationPlatform.instance.getRouteCacheStats();
+  }
+
+  /// Counters of the route requests answered by the hybrid router (quality,
+  /// online, raced, offline, raceOnlineWins, raceOfflineWins, deadlineHits,
+  /// staleAnswers, failures, winsByOrigin, lastRouterOrigin). Android only.
+  Future<Map<String, dynamic>?> getRouterStats() {
+    return FlutterMapboxNavigationPlatform.instance.getRouterStats();
+  }
+
+  /// Counters of the route requests (queueDepth, requested, coalesced,
+  /// superseded, completed, failed) and their latency in milliseconds from
+  /// the request to the routes. Android only.
+  Future<Map<String, dynamic>?> getRouteRequestStats() {
+    return FlutterMapboxNavigationPlatform.instance.getRouteRequestStats();
+  }
+
+  /// Outcomes of the route refreshes scheduled for
+  /// [MapBoxOptions.enableRefresh] (requested, succeeded, failed, expired,
+  /// cancelled, skippedOffline, averageRefreshMillis) and the last interval
+  /// in seconds with the reason for it. Android only.
+  Future<Map<String, dynamic>?> getRouteRefreshStats() {
+    return FlutterMapboxNavigationPlatform.instance.getRouteRefreshStats();
+  }
+
+  /// Requests the route through [wayPoints] for every mode in [modes] at the
+  /// same time and returns the distance, duration and route handle of each,
+  /// without changing the mode used for navigation. Modes that haven't
+  /// answered within [timeout] are reported as timed out.
+  /// Needs a navigation view to be created. Android only.
+  Future<RouteComparison?> compareRoutes({
+    required List<WayPoint> wayPoints,
+    List<MapBoxNavigationMode> modes = const [
+      MapBoxNavigationMode.drivingWithTraffic,
+      MapBoxNavigationMode.cycling,
+      MapBoxNavigationMode.walking,
+    ],
+    Duration timeout = const Duration(seconds: 8),
+  }) {
+    return FlutterMapboxNavigationPlatform.instance.compareRoutes(
+      wayPoints: wayPoints,
+      modes: modes,
+      timeout: timeout,
+    );
+  }
+
+  /// Replaces the milestones of [MapBoxOptions.milestones] of the full screen
+  /// navigation with [milestones], during a trip as well, and returns how
+  /// many are valid. Embedded views keep theirs. Each one sends a
+  /// milestone_event with a [MilestoneEvent] when the progress crosses it.
+  /// Android only.
+  Future<int?> setMilestones(List<RouteMilestone> milestones) {
+    return FlutterMapboxNavigationPlatform.instance.setMilestones(milestones);
+  }
+
+  /// Projects [positions] onto the active route and returns how far along
+  /// it each of them is, in front of or behind the driver, and how far from
+  /// it. Positions further than [maxDistance] meters from the route aren't
+  /// projected. Meant for batches of up to thousands of positions, such as
+  /// the members of a convoy. Returns null until a route is active.
+  /// Android only.
+  Future<RouteProjection?> projectOnRoute({
+    required List<WayPoint> positions,
+    double maxDistance = 500,
+  }) {
+    return FlutterMapboxNavigationPlatform.instance.projectOnRoute(
+      positions: positions,
+      maxDistance: maxDistance,
+    );
+  }
+
+  /// Forgets every cached route response, in memory and on disk.
+  /// Android only.
+  Future<bool?> clearRouteCache() {
+    return FlutterMapboxNavigationPlatform.instance.clearRouteCache();
+  }
+
+  /// The DirectionsRoute json of a route from the handles of the
+  /// route_built event, or null if the route is gone. Android only.
+  Future<String?> getRoute(String routeId) {
+    return FlutterMapboxNavigationPlatform.instance.getRoute(routeId);
+  }
+
+  /// A page of the legs of the route [routeId]. Android only.
+  Future<RoutePage<RouteLeg>?> getRouteLegs(
+    String routeId, {
+    int offset = 0,
+    int limit = 20,
+  }) {
+    return FlutterMapboxNavigationPlatform.instance
+        .getRouteLegs(routeId, offset: offset, limit: limit);
+  }
+
+  /// A page of the steps of leg [legIndex] of the route [routeId].
+  /// Android only.
+  Future<RoutePage<RouteStep>?> getRouteSteps(
+    String routeId, {
+    int legIndex = 0,
+    int offset = 0,
+    int limit = 20,
+  }) {
+    return FlutterMapboxNavigationPlatform.instance.getRouteSteps(
+      routeId,
+      legIndex: legIndex,
+      offset: offset,
+      limit: limit,
+    );
+  }
+
+  /// A page of the points of the route [routeId] as an encoded polyline.
+  /// Android only.
+  Future<RouteGeometryPage?> getRouteGeometry(
+    String routeId, {
+    int offset = 0,
+    int limit = 1000,
+  }) {
+    return FlutterMapboxNavigationPlatform.instance
+        .getRouteGeometry(routeId, offset: offset, limit: limit);
+  }
+
+  /// The geometry of the route [routeId] simplified for [zoom], to draw
+  /// previews without the full resolution geometry. Points closer than
+  /// [tolerance] pixels (1 by default) to the line are dropped.
+  /// Android only.
+  Future<SimplifiedRouteGeometry?> getSimplifiedRouteGeometry(
+    String routeId, {
+    required double zoom,
+    RouteGeometryFormat format = RouteGeometryFormat.polyline6,
+    double? tolerance,
+  }) {
+    return FlutterMapboxNavigationPlatform.instance.getSimplifiedRouteGeometry(
+      routeId,
+      zoom: zoom,
+      format: format,
+      tolerance: tolerance,
+    );
+  }
+
   ///Adds waypoints or stops to an on-going navigation
   ///
   /// [wayPoints] must not be null and have at least 1 item. The way points will
   /// be inserted after the currently navigating waypoint
   /// in the existing navigation
+  ///
+  /// On Android only the current leg is routed again, through the new stops,
+  /// and the remaining legs of the trip are kept as they are. Silent waypoints
+  /// of the current leg are dropped.
   Future<dynamic> addWayPoints({required List<WayPoint> wayPoints}) async {
     return FlutterMapboxNavigationPlatform.instance
         .addWayPoints(wayPoints: wayPoints);
@@ -1,5 +1,4 @@
 import 'dart:async';
-import 'dart:convert';
 import 'dart:developer';
 import 'dart:io';
 
@@ -7,6 +6,7 @@ import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
 import 'package:flutter_mapbox_navigation/src/flutter_mapbox_navigation_platform_interface.dart';
 import 'package:flutter_mapbox_navigation/src/models/models.dart';
+import 'package:flutter_mapbox_navigation/src/route_event_decoder.dart';
 
 /// An implementation of [FlutterMapboxNavigationPlatform]
 /// that uses method channels.
@@ -44,6 +44,166 @@ class MethodChannelFlutterMapboxNavigation
     return duration;
   }
 
+  @override
+  Future<Map<String, dynamic>?> getEventPipelineStats() async {
+    final stats = await methodChannel
+        .invokeMapMethod<String, dynamic>('getEventPipelineStats');
+    return stats;
+  }
+
+  @override
+  Future<Map<String, dynamic>?> getRouteCacheStats() async {
+    final stats = await methodChannel
+        .invokeMapMethod<String, dynamic>('getRouteCacheStats');
+    return stats;
+  }
+
+  @override
+  Future<Map<String, dynamic>?> getRouterStats() async {
+    final stats =
+        await methodChannel.invokeMapMethod<String, dynamic>('getRouterStats');
+    return stats;
+  }
+
+  @override
+  Future<Map<String, dynamic>?> getRouteRequestStats() async {
+    final stats = await methodChannel
+        .invokeMapMethod<String, dynamic>('getRouteRequestStats');
+    return stats;
+  }
+
+  @override
+  Future<Map<String, dynamic>?> getRouteRefreshStats() async {
+    final stats = await methodChannel
+        .invokeMapMethod<String, dynamic>('getRouteRefreshStats');
+    return stats;
+  }
+
+  @override
+  Future<RouteComparison?> compareRoutes({
+    required List<WayPoint> wayPoints,
+    List<MapBoxNavigationMode> modes = const [
+      MapBoxNavigationMode.drivingWithTraffic,
+      MapBoxNavigationMode.cycling,
+      MapBoxNavigationMode.walking,
+    ],
+    Duration timeout = const Duration(seconds: 8),
+  }) async {
+    assert(wayPoints.length > 1, 'Error: WayPoints must be at least 2');
+    final pointList = _getPointListFromWayPoints(wayPoints);
+    var i = 0;
+    final comparison = await methodChannel.invokeMapMethod<String, dynamic>(
+      'compareRoutes',
+      {
+        'wayPoints': {for (var e in pointList) i++: e},
+        'profiles': modes.map((e) => e.toString().split('.').last).toList(),
+        'timeoutMillis': timeout.inMilliseconds,
+      },
+    );
+    return comparison == null ? null : RouteComparison.fromJson(comparison);
+  }
+
+  @override
+  Future<int?> setMilestones(List<RouteMilestone> milestones) async {
+    final count = await methodChannel.invokeMethod<int>(
+      'setMilestones',
+      {'milestones': milestones.map((e) => e.toMap()).toList()},
+    );
+    return count;
+  }
+
+  @override
+  Future<RouteProjection?> projectOnRoute({
+    required List<WayPoint> positions,
+    double maxDistance = 500,
+  }) async {
+    final projection = await methodChannel.invokeMapMethod<String, dynamic>(
+      'projectOnRoute',
+      {
+        'coordinates': RouteProjection.pack(positions),
+        'maxDistance': maxDistance,
+      },
+    );
+    return projection == null ? null : RouteProjection.fromJson(projection);
+  }
+
+  @override
+  Future<bool?> clearRouteCache() async {
+    final result = await methodChannel.invokeMethod<bool>('clearRouteCache');
+    return result;
+  }
+
+  @override
+  Future<String?> getRoute(String routeId) async {
+    final route = await methodChannel
+        .invokeMethod<String>('getRoute', {'routeId': routeId});
+    return route;
+  }
+
+  @override
+  Future<RoutePage<RouteLeg>?> getRouteLegs(
+    String routeId, {
+    int offset = 0,
+    int limit = 20,
+  }) async {
+    final page = await methodChannel.invokeMapMethod<String, dynamic>(
+      'getRouteLegs',
+      {'routeId': routeId, 'offset': offset, 'limit': limit},
+    );
+    return page == null ? null : RoutePage.fromJson(page, RouteLeg.fromJson);
+  }
+
+  @override
+  Future<RoutePage<RouteStep>?> getRouteSteps(
+    String routeId, {
+    int legIndex = 0,
+    int offset = 0,
+    int limit = 20,
+  }) async {
+    final page = await methodChannel.invokeMapMethod<String, dynamic>(
+      'getRouteSteps',
+      {
+        'routeId': routeId,
+        'legIndex': legIndex,
+        'offset': offset,
+        'limit': limit,
+      },
+    );
+    return page == null ? null : RoutePage.fromJson(page, RouteStep.fromJson);
+  }
+
+  @override
+  Future<RouteGeometryPage?> getRouteGeometry(
+    String routeId, {
+    int offset = 0,
+    int limit = 1000,
+  }) async {
+    final page = await methodChannel.invokeMapMethod<String, dynamic>(
+      'getRouteGeometry',
+      {'routeId': routeId, 'offset': offset, 'limit': limit},
+    );
+    return page == null ? null : RouteGeometryPage.fromJson(page);
+  }
+
+  @override
+  Future<SimplifiedRouteGeometry?> getSimplifiedRouteGeometry(
+    String routeId, {
+    required double zoom,
+    RouteGeometryFormat format = RouteGeometryFormat.polyline6,
+    double? tolerance,
+  }) async {
+    final geometry = await methodChannel.invokeMapMethod<String, dynamic>(
+      'getSimplifiedRouteGeometry',
+      {
+        'routeId': routeId,
+        'zoom': zoom,
+        'format': format.toString().split('.').last,
+        'tolerance': tolerance,
+      },
+    );
+    return geometry == null ? null : SimplifiedRouteGeometry.fromJson(geometry);
+  }
+
   @override
   Future<bool?> startFreeDrive(MapBoxOptions options) async {
     _routeEventSubscription = routeEventsListener!.listen(_onProgressData);
@@ -117,7 +277,7 @@ class MethodChannelFlutterMapboxNavigation
   Stream<RouteEvent>? get routeEventsListener {
     return eventChannel
         .receiveBroadcastStream()
-        .map((dynamic event) => _parseRouteEvent(event as String));
+        .expand(RouteEventDecoder().decodeAll);
   }
 
   void _onProgressData(RouteEvent event) {
@@ -132,22 +292,6 @@ class MethodChannelFlutterMapboxNavigation
     }
   }
 
-  RouteEvent _parseRouteEvent(String jsonString) {
-    RouteEvent event;
-    final map = json.decode(jsonString);
-    final progressEvent =
-        RouteProgressEvent.fromJson(map as Map<String, dynamic>);
-    if (progressEvent.isProgressEvent!) {
-      event = RouteEvent(
-        eventType: MapBoxEvent.progress_change,
-        data: progressEvent,
-      );
-    } else {
-      event = RouteEvent.fromJson(map);
-    }
-    return event;
-  }
-
   List<Map<String, Object?>> _getPointListFromWayPoints(
     List<WayPoint> wayPoints,
   ) {
@@ -45,6 +45,113 @@ abstract class FlutterMapboxNavigationPlatform extends PlatformInterface {
     );
   }
 
+  /// Counters of the background event pipeline, or null when it is disabled
+  Future<Map<String, dynamic>?> getEventPipelineStats() {
+    throw UnimplementedError(
+      'getEventPipelineStats() has not been implemented.',
+    );
+  }
+
+  /// Counters of the route response cache
+  Future<Map<String, dynamic>?> getRouteCacheStats() {
+    throw UnimplementedError('getRouteCacheStats() has not been implemented.');
+  }
+
+  /// Counters of the route requests answered by the hybrid router
+  Future<Map<String, dynamic>?> getRouterStats() {
+    throw UnimplementedError('getRouterStats() has not been implemented.');
+  }
+
+  /// Counters and latency of the route requests
+  Future<Map<String, dynamic>?> getRouteRequestStats() {
+    throw UnimplementedError(
+      'getRouteRequestStats() has not been implemented.',
+    );
+  }
+
+  /// Requests the route through [wayPoints] for every mode in [modes] at once
+  Future<RouteComparison?> compareRoutes({
+    required List<WayPoint> wayPoints,
+    List<MapBoxNavigationMode> modes = const [
+      MapBoxNavigationMode.drivingWithTraffic,
+      MapBoxNavigationMode.cycling,
+      MapBoxNavigationMode.walking,
+    ],
+    Duration timeout = const Duration(seconds: 8),
+  }) {
+    throw UnimplementedError('compareRoutes() has not been implemented.');
+  }
+
+  /// Outcomes of the route refreshes scheduled for [MapBoxOptions.enableRefresh]
+  Future<Map<String, dynamic>?> getRouteRefreshStats() {
+    throw UnimplementedError(
+      'getRouteRefreshStats() has not been implemented.',
+    );
+  }
+
+  /// Replaces the milestones that send a milestone_event when crossed
+  Future<int?> setMilestones(List<RouteMilestone> milestones) {
+    throw UnimplementedError('setMilestones() has not been implemented.');
+  }
+
+  /// Projects [positions] onto the active route
+  Future<RouteProjection?> projectOnRoute({
+    required List<WayPoint> positions,
+    double maxDistance = 500,
+  }) {
+    throw UnimplementedError('projectOnRoute() has not been implemented.');
+  }
+
+  /// Forgets every cached route response
+  Future<bool?> clearRouteCache() {
+    throw UnimplementedError('clearRouteCache() has not been implemented.');
+  }
+
+  /// The DirectionsRoute json of a route built on the native side
+  Future<String?> getRoute(String routeId) {
+    throw UnimplementedError('getRoute() has not been implemented.');
+  }
+
+  /// A page of the legs of a route built on the native side
+  Future<RoutePage<RouteLeg>?> getRouteLegs(
+    String routeId, {
+    int offset = 0,
+    int limit = 20,
+  }) {
+    throw UnimplementedError('getRouteLegs() has not been implemented.');
+  }
+
+  /// A page of the steps of one leg of a route built on the native side
+  Future<RoutePage<RouteStep>?> getRouteSteps(
+    String routeId, {
+    int legIndex = 0,
+    int offset = 0,
+    int limit = 20,
+  }) {
+    throw UnimplementedError('getRouteSteps() has not been implemented.');
+  }
+
+  /// A page of the geometry of a route built on the native side
+  Future<RouteGeometryPage?> getRouteGeometry(
+    String routeId, {
+    int offset = 0,
+    int limit = 1000,
+  }) {
+    throw UnimplementedError('getRouteGeometry() has not been implemented.');
+  }
+
+  /// The geometry of a route built on the native side, simplified for [zoom]
+  Future<SimplifiedRouteGeometry?> getSimplifiedRouteGeometry(
+    String routeId, {
+    required double zoom,
+    RouteGeometryFormat format = RouteGeometryFormat.polyline6,
+    double? tolerance,
+  }) {
+    throw UnimplementedError(
+      'getSimplifiedRouteGeometry() has not been implemented.',
+    );
+  }
+
   /// Free-drive mode is a unique Mapbox Navigation SDK feature that allows
   /// drivers to navigate without a set destination. This mode is sometimes
   /// referred to as passive navigation.
@@ -0,0 +1,64 @@
+// ignore_for_file: public_member_api_docs
+
+///A change of the points of interest coming up along the route, sent with
+///the poi_corridor event when the poiCorridor option is set. Distances are
+///in meters along the route.
+class CorridorPoiUpdate {
+  CorridorPoiUpdate.fromJson(Map<String, dynamic> json)
+      : routeId = json['routeId'] as String?,
+        driverAlong = (json['driverAlong'] as num?)?.toDouble() ?? 0,
+        reset = json['reset'] as bool? ?? false,
+        entered = (json['entered'] as List<dynamic>? ?? [])
+            .map(
+              (e) => CorridorPoi.fromJson(
+                (e as Map<dynamic, dynamic>).cast<String, dynamic>(),
+              ),
+            )
+            .toList(),
+        passed = (json['passed'] as List<dynamic>? ?? [])
+            .map((e) => e as String)
+            .toList();
+
+  String? routeId;
+
+  /// distance from the start of the route to the driver
+  double driverAlong;
+
+  /// set on the first update of a route: the points of earlier updates no
+  /// longer apply
+  bool reset;
+
+  /// points that came up, nearest first
+  List<CorridorPoi> entered;
+
+  /// ids of the points the driver went past
+  List<String> passed;
+}
+
+///A point of interest along the route.
+class CorridorPoi {
+  CorridorPoi.fromJson(Map<String, dynamic> json)
+      : id = json['id'] as String? ?? '',
+        name = json['name'] as String?,
+        category = json['category'] as String?,
+        latitude = (json['latitude'] as num?)?.toDouble() ?? 0,
+        longitude = (json['longitude'] as num?)?.toDouble() ?? 0,
+        along = (json['along'] as num?)?.toDouble() ?? 0,
+        crossTrack = (json['crossTrack'] as num?)?.toDouble() ?? 0;
+
+  String id;
+  String? name;
+  String? category;
+  double latitude;
+  double longitude;
+
+  /// distance from the start of the route
+  double along;
+
+  /// distance from the route, positive to the right of the direction of
+  /// travel
+  double crossTrack;
+
+  /// distance in front of a driver at [driverAlong]
+  double ahead(double driverAlong) => along - driverAlong;
+}
@@ -0,0 +1,16 @@
+///When the native side hands route events to the event channel.
+///Only honoured on Android; other platforms always deliver immediately.
+///
+///Events of one type always arrive in the order they were sent, and so do
+///events of different types, except for types rate limited by an
+///EventPolicy: those arrive when their interval ends, but never after a
+///lifecycle event such as on_arrival or navigation_cancelled.
+///Each navigation view has its own stream and batches.
+enum EventDelivery {
+  /// every event is sent as its own message as soon as it is encoded
+  immediate,
+
+  /// events are collected and sent once per display frame as a single
+  /// message, in the order they were sent
+  frame,
+}
@@ -0,0 +1,10 @@
+///Wire format used by the native side to send route events.
+///Only honoured on Android; other platforms always send json.
+enum EventFormat {
+  /// every event is sent as a json string
+  json,
+
+  /// events are sent as typed values by the channel's StandardMessageCodec,
+  /// avoiding json encoding and decoding on every progress update
+  binary,
+}
@@ -0,0 +1,39 @@
+/// What to drop when the background event buffer is full
+enum EventOverflowPolicy {
+  /// drop the event being sent
+  dropNewest,
+
+  /// drop the oldest event still waiting to be serialized
+  dropOldest,
+}
+
+/// Configures serialization of route events on a background thread, so
+/// only the final hand off to Flutter runs on the main thread.
+/// Only honoured on Android.
+class EventPipelineOptions {
+  /// Constructor
+  EventPipelineOptions({
+    this.enabled = true,
+    this.capacity = 256,
+    this.overflowPolicy = EventOverflowPolicy.dropOldest,
+  });
+
+  /// Whether events are serialized in the background (default: true)
+  bool enabled;
+
+  /// Number of events that can wait for serialization (default: 256)
+  int capacity;
+
+  /// What to drop when [capacity] events are waiting. Dropped events are
+  /// counted in `getEventPipelineStats()`.
+  EventOverflowPolicy overflowPolicy;
+
+  /// Convert to a map for platform channel communication
+  Map<String, dynamic> toMap() {
+    return {
+      'enabled': enabled,
+      'capacity': capacity,
+      'overflowPolicy': overflowPolicy.toString().split('.').last,
+    };
+  }
+}
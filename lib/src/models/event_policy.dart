@@ -0,0 +1,32 @@
+/// Limits how often the native side sends one type of route event.
+/// Only honoured on Android.
+///
+/// Lifecycle events such as on_arrival, navigation_running,
+/// navigation_cancelled and the route_build events are never dropped or
+/// delayed, whatever their policy.
+class EventPolicy {
+  /// Constructor
+  EventPolicy({
+    this.maxPerSecond,
+    this.dropDuplicates = false,
+  });
+
+  /// Maximum number of events sent per second. Events arriving faster are
+  /// coalesced and only the latest one is sent at the end of the interval.
+  /// Null means not rate limited.
+  double? maxPerSecond;
+
+  /// When true, an event is skipped if its data equals the data of the last
+  /// event of the same type, e.g. an unchanged banner instruction. Progress
+  /// events are compared on the remaining distance and duration, leg and
+  /// instruction, so only those of a user standing still are skipped.
+  bool dropDuplicates;
+
+  /// Convert to a map for platform channel communication
+  Map<String, dynamic> toMap() {
+    return {
+      if (maxPerSecond != null) 'maxPerSecond': maxPerSecond,
+      'dropDuplicates': dropDuplicates,
+    };
+  }
+}
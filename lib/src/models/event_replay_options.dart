@@ -0,0 +1,62 @@
+import 'package:flutter_mapbox_navigation/src/models/events.dart';
+
+/// Which events of a type are kept while nobody listens to the event stream
+enum EventRetention {
+  /// keep every event
+  all,
+
+  /// keep only the latest event
+  latest,
+
+  /// keep none
+  none,
+}
+
+/// Configures the buffer that keeps route events while nobody listens to the
+/// event stream, e.g. before listening or while the Flutter engine is
+/// detached from a running navigation. Buffered events are delivered in
+/// order to the next listener. Each embedded view and the full screen
+/// navigation have their own buffer. Only honoured on Android, and off
+/// unless this option is passed.
+class EventReplayOptions {
+  /// Constructor
+  EventReplayOptions({
+    this.enabled = true,
+    this.capacity = 128,
+    this.spillToDisk = false,
+    this.retention,
+  });
+
+  /// Whether events are buffered (default: true)
+  bool enabled;
+
+  /// Number of events kept in memory, not counting the latest events of the
+  /// types that only keep those (default: 128)
+  int capacity;
+
+  /// Append the events beyond [capacity] to a file in the cache directory
+  /// instead of dropping them. A full file starts over with the newest
+  /// events (default: false)
+  bool spillToDisk;
+
+  /// Retention per event type. By default progress_change, trip_metrics and
+  /// banner_instruction keep the latest event, progress_delta and
+  /// speech_announcement keep none, and every other type keeps all.
+  Map<MapBoxEvent, EventRetention>? retention;
+
+  /// Convert to a map for platform channel communication
+  Map<String, dynamic> toMap() {
+    return {
+      'enabled': enabled,
+      'capacity': capacity,
+      'spillToDisk': spillToDisk,
+      if (retention != null)
+        'retention': retention!.map(
+          (event, value) => MapEntry(
+            event.toString().split('.').last,
+            value.toString().split('.').last,
+          ),
+        ),
+    };
+  }
+}
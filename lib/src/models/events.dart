@@ -1,6 +1,9 @@
 // ignore_for_file: constant_identifier_names, public_member_api_docs
 
 /// All possible events that could occur in the course of navigation
+///
+/// Binary events are tagged with the index of the event, so the order must
+/// match `MapBoxEvents` on Android.
 enum MapBoxEvent {
   map_ready,
   route_building,
@@ -20,5 +23,8 @@ enum MapBoxEvent {
   on_arrival,
   failed_to_reroute,
   reroute_along,
-  on_map_tap
+  on_map_tap,
+  progress_delta,
+  trip_metrics,
+  poi_corridor
 }
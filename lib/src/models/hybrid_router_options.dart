@@ -0,0 +1,37 @@
+/// Chooses between the Mapbox router and the route cache from the quality
+/// of the network, so route requests in dead zones don't wait for a
+/// timeout. On a good network the Mapbox router answers; on a marginal one
+/// it races the routes last cached for the request, which win after
+/// [raceDeadlineMillis]; on a poor one or without a network the cached
+/// routes answer first, and the onboard router of the Mapbox SDK when there
+/// are none. Cached answers need the routeCache option, and are only used
+/// until [maxStaleAgeSeconds] past their expiry. Only honoured
+/// on Android.
+class HybridRouterOptions {
+  /// Constructor
+  HybridRouterOptions({
+    this.enabled = true,
+    this.raceDeadlineMillis = 1500,
+    this.maxStaleAgeSeconds = 86400,
+  });
+
+  /// Whether route requests go through the hybrid router (default: true)
+  bool enabled;
+
+  /// Milliseconds the Mapbox router has on a marginal network before the
+  /// cached routes win the race (default: 1500)
+  int raceDeadlineMillis;
+
+  /// Seconds cached routes can still answer after they expired; older ones
+  /// are deleted when read (default: 86400)
+  int maxStaleAgeSeconds;
+
+  /// Convert to a map for platform channel communication
+  Map<String, dynamic> toMap() {
+    return {
+      'enabled': enabled,
+      'raceDeadlineMillis': raceDeadlineMillis,
+      'maxStaleAgeSeconds': maxStaleAgeSeconds,
+    };
+  }
+}
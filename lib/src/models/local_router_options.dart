@@ -0,0 +1,46 @@
+/// Replaces the Mapbox router with a local stand-in that never uses the
+/// network, to test and benchmark route heavy flows offline. Routes come
+/// from recorded directions responses in [fixtureDirectory] or are generated
+/// as straight lines between the waypoints. Only honoured on Android.
+class LocalRouterOptions {
+  /// Constructor
+  LocalRouterOptions({
+    this.enabled = true,
+    this.latencyMillis = 0,
+    this.jitterMillis = 0,
+    this.fixtureDirectory,
+    this.seed = 0,
+  });
+
+  /// Whether routes come from the local router (default: true)
+  bool enabled;
+
+  /// Milliseconds every answer waits, to stand in for the network
+  /// (default: 0)
+  int latencyMillis;
+
+  /// Up to this many milliseconds are added to [latencyMillis], drawn from
+  /// [seed] so runs are repeatable (default: 0)
+  int jitterMillis;
+
+  /// Directory of directions response JSON files. A request is answered
+  /// with the file named after the SHA-1, in hex, of the profile and the
+  /// coordinates with 5 decimals, e.g. the SHA-1 of
+  /// `driving-traffic/13.38886,52.51704;13.39763,52.52941` followed by
+  /// `.json`. Requests without a file get a generated route.
+  String? fixtureDirectory;
+
+  /// Seed of the latency jitter (default: 0)
+  int seed;
+
+  /// Convert to a map for platform channel communication
+  Map<String, dynamic> toMap() {
+    return {
+      'enabled': enabled,
+      'latencyMillis': latencyMillis,
+      'jitterMillis': jitterMillis,
+      'fixtureDirectory': fixtureDirectory,
+      'seed': seed,
+    };
+  }
+}
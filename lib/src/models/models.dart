@@ -1,13 +1,31 @@
 export 'clustering_options.dart';
+export 'corridor_poi.dart';
 export 'event_data.dart';
+export 'event_delivery.dart';
+export 'event_format.dart';
+export 'event_pipeline_options.dart';
+export 'event_policy.dart';
+export 'event_replay_options.dart';
 export 'events.dart';
 export 'feedback.dart';
+export 'hybrid_router_options.dart';
+export 'local_router_options.dart';
 export 'map_marker.dart';
 export 'navmode.dart';
 export 'options.dart';
+export 'poi_corridor_options.dart';
+export 'progress_event_mode.dart';
+export 'route_built_payload.dart';
+export 'route_cache_options.dart';
+export 'route_comparison.dart';
 export 'route_event.dart';
+export 'route_handle.dart';
 export 'route_leg.dart';
+export 'route_milestone.dart';
 export 'route_progress_event.dart';
+export 'route_projection.dart';
 export 'route_step.dart';
+export 'session_resume_options.dart';
+export 'trip_metrics.dart';
 export 'voice_units.dart';
 export 'way_point.dart';
@@ -1,7 +1,22 @@
 // ignore_for_file: public_member_api_docs
 
 import 'package:flutter/widgets.dart';
+import 'package:flutter_mapbox_navigation/src/models/event_delivery.dart';
+import 'package:flutter_mapbox_navigation/src/models/event_format.dart';
+import 'package:flutter_mapbox_navigation/src/models/event_pipeline_options.dart';
+import 'package:flutter_mapbox_navigation/src/models/event_policy.dart';
+import 'package:flutter_mapbox_navigation/src/models/event_replay_options.dart';
+import 'package:flutter_mapbox_navigation/src/models/events.dart';
+import 'package:flutter_mapbox_navigation/src/models/hybrid_router_options.dart';
+import 'package:flutter_mapbox_navigation/src/models/local_router_options.dart';
 import 'package:flutter_mapbox_navigation/src/models/navmode.dart';
+import 'package:flutter_mapbox_navigation/src/models/poi_corridor_options.dart';
+import 'package:flutter_mapbox_navigation/src/models/progress_event_mode.dart';
+import 'package:flutter_mapbox_navigation/src/models/route_built_payload.dart';
+import 'package:flutter_mapbox_navigation/src/models/route_cache_options.dart';
+import 'package:flutter_mapbox_navigation/src/models/route_milestone.dart';
+import 'package:flutter_mapbox_navigation/src/models/session_resume_options.dart';
+import 'package:flutter_mapbox_navigation/src/models/trip_metrics.dart';
 import 'package:flutter_mapbox_navigation/src/models/voice_units.dart';
 
 /// Configuration options for the MapBoxNavigation.
@@ -28,6 +43,7 @@ class MapBoxOptions {
     this.longPressDestinationEnabled,
     this.simulateRoute,
     this.isOptimized,
+    this.durationMatrix,
     this.mapStyleUrlDay,
     this.mapStyleUrlNight,
     this.padding,
@@ -35,6 +51,21 @@ class MapBoxOptions {
     this.showReportFeedbackButton = true,
     this.showEndOfRouteFeedback = true,
     this.enableOnMapTapCallback = false,
+    this.eventFormat,
+    this.progressEventMode,
+    this.eventPolicies,
+    this.eventPipeline,
+    this.eventDelivery,
+    this.tripMetrics,
+    this.eventReplay,
+    this.routeBuiltPayload,
+    this.routeCache,
+    this.routeRequestDebounceMillis,
+    this.localRouter,
+    this.hybridRouter,
+    this.poiCorridor,
+    this.milestones,
+    this.sessionResume,
   });
 
   MapBoxOptions.from(MapBoxOptions option) {
@@ -54,12 +85,28 @@ class MapBoxOptions {
     longPressDestinationEnabled = option.longPressDestinationEnabled;
     simulateRoute = option.simulateRoute;
     isOptimized = option.isOptimized;
+    durationMatrix = option.durationMatrix;
     mapStyleUrlDay = option.mapStyleUrlDay;
     mapStyleUrlNight = option.mapStyleUrlNight;
     padding = option.padding;
     animateBuildRoute = option.animateBuildRoute;
     showReportFeedbackButton = option.showReportFeedbackButton;
     showEndOfRouteFeedback = option.showEndOfRouteFeedback;
+    eventFormat = option.eventFormat;
+    progressEventMode = option.progressEventMode;
+    eventPolicies = option.eventPolicies;
+    eventPipeline = option.eventPipeline;
+    eventDelivery = option.eventDelivery;
+    tripMetrics = option.tripMetrics;
+    eventReplay = option.eventReplay;
+    routeBuiltPayload = option.routeBuiltPayload;
+    routeCache = option.routeCache;
+    routeRequestDebounceMillis = option.routeRequestDebounceMillis;
+    localRouter = option.localRouter;
+    hybridRouter = option.hybridRouter;
+    poiCorridor = option.poiCorridor;
+    milestones = option.milestones;
+    sessionResume = option.sessionResume;
   }
 
   /// The initial Latitude of the Map View
@@ -127,6 +174,10 @@ class MapBoxOptions {
   /// same as 'not continueStraight' on Android
   bool? allowsUTurnAtWayPoints;
 
+  /// if true, the traffic and ETA of the active route are refreshed at an
+  /// interval that follows the remaining duration, the density of maneuvers
+  /// ahead and the drift of the ETA, instead of every 5 minutes.
+  /// Android only; the outcomes are in getRouteRefreshStats
   bool? enableRefresh;
   // if true voice instruction is enabled
   bool? voiceInstructionsEnabled;
@@ -143,11 +194,16 @@ class MapBoxOptions {
   /// The Url of the style the Navigation MapView should use at night
   String? mapStyleUrlNight;
 
-  /// if true, will reorder the routes to optimize navigation for time and
-  /// shortest distance using the Travelling Salesman Algorithm.
-  /// Always false for now
+  /// if true, the stops between the first and the last waypoint are
+  /// reordered to shorten the trip before the route is requested. Silent
+  /// waypoints stay after the stop they follow. Android only.
   bool? isOptimized;
 
+  /// Travel times between the waypoints, in the order given, used by
+  /// [isOptimized] instead of straight line distances: `durationMatrix[i][j]`
+  /// is the time from waypoint i to waypoint j.
+  List<List<double>>? durationMatrix;
+
   /// Padding applied to the MapView when embedded
   EdgeInsets? padding;
 
@@ -168,6 +224,77 @@ class MapBoxOptions {
   /// to where you tap on the map.
   bool? enableOnMapTapCallback;
 
+  /// Format of the route events sent by the native side. Defaults to json.
+  /// [EventFormat.binary] is Android only and skips json encoding and
+  /// decoding of every event.
+  EventFormat? eventFormat;
+
+  /// How route progress is streamed by the native side. Defaults to full.
+  /// [ProgressEventMode.delta] is Android only and stops resending the
+  /// current leg and its steps on every progress update.
+  ProgressEventMode? progressEventMode;
+
+  /// Per event type limits applied by the native side before events are
+  /// sent, e.g. at most 2 progress_change events per second, or no repeated
+  /// banner_instruction events. Android only.
+  Map<MapBoxEvent, EventPolicy>? eventPolicies;
+
+  /// Serialize route events on a background thread. Android only.
+  EventPipelineOptions? eventPipeline;
+
+  /// When route events are handed to the event channel. Defaults to
+  /// immediate. [EventDelivery.frame] is Android only and sends the events
+  /// of a display frame as one message, which saves the per message
+  /// overhead when many small events fire at once, e.g. after a reroute.
+  EventDelivery? eventDelivery;
+
+  /// Aggregate speed, ETA and leg statistics on the native side and send
+  /// them as a [TripMetrics] summary with the trip_metrics event, at a much
+  /// lower rate than progress_change. Android only.
+  TripMetricsOptions? tripMetrics;
+
+  /// Buffering of route events while nobody listens to the event stream.
+  /// Android only.
+  EventReplayOptions? eventReplay;
+
+  /// What the route_built event carries. Defaults to routes.
+  /// [RouteBuiltPayload.handles] is Android only and sends a small
+  /// RouteHandle per route instead of the full routes, which can be several
+  /// megabytes for long multi-stop routes.
+  RouteBuiltPayload? routeBuiltPayload;
+
+  /// Reuse the routes of identical route requests for a while instead of
+  /// asking the router again. Android only.
+  RouteCacheOptions? routeCache;
+
+  /// Route requests of a view made within this many milliseconds of the
+  /// previous one wait for the end of the window, and only the newest of
+  /// them is sent. Older requests in flight are cancelled and their routes
+  /// are never applied. Defaults to 0, which sends every request right
+  /// away. Android only.
+  int? routeRequestDebounceMillis;
+
+  /// Answer route requests locally, without the network, for tests and
+  /// benchmarks. Android only.
+  LocalRouterOptions? localRouter;
+
+  /// Route requests from the Mapbox router or the route cache depending on
+  /// the quality of the network. Ignored with [localRouter]. Android only.
+  HybridRouterOptions? hybridRouter;
+
+  /// Points of interest of a local file to follow along the route, sent
+  /// with the poi_corridor event as they come up. Android only.
+  PoiCorridorOptions? poiCorridor;
+
+  /// Thresholds on the route progress that send a milestone_event when they
+  /// are crossed. With [ProgressEventMode.none] they can replace the
+  /// progress events. Android only.
+  List<RouteMilestone>? milestones;
+
+  /// Resume the full screen navigation on its route, without the network,
+  /// when it is recreated after Android killed the app. Android only.
+  SessionResumeOptions? sessionResume;
+
   Map<String, dynamic> toMap() {
     final optionsMap = <String, dynamic>{};
     void addIfNonNull(String fieldName, dynamic value) {
@@ -214,6 +341,7 @@ class MapBoxOptions {
       optionsMap['simulateRoute'] = simulateRoute;
     }
     if (isOptimized != null) optionsMap['isOptimized'] = isOptimized;
+    addIfNonNull('durationMatrix', durationMatrix);
 
     addIfNonNull('padding', <double?>[
       padding?.top,
@@ -225,6 +353,33 @@ class MapBoxOptions {
     addIfNonNull('showReportFeedbackButton', showReportFeedbackButton);
     addIfNonNull('showEndOfRouteFeedback', showEndOfRouteFeedback);
     addIfNonNull('enableOnMapTapCallback', enableOnMapTapCallback);
+    addIfNonNull('eventFormat', eventFormat?.toString().split('.').last);
+    addIfNonNull(
+      'progressEventMode',
+      progressEventMode?.toString().split('.').last,
+    );
+    addIfNonNull(
+      'eventPolicies',
+      eventPolicies?.map(
+        (event, policy) =>
+            MapEntry(event.toString().split('.').last, policy.toMap()),
+      ),
+    );
+    addIfNonNull('eventPipeline', eventPipeline?.toMap());
+    addIfNonNull('eventDelivery', eventDelivery?.toString().split('.').last);
+    addIfNonNull('tripMetrics', tripMetrics?.toMap());
+    addIfNonNull('eventReplay', eventReplay?.toMap());
+    addIfNonNull(
+      'routeBuiltPayload',
+      routeBuiltPayload?.toString().split('.').last,
+    );
+    addIfNonNull('routeCache', routeCache?.toMap());
+    addIfNonNull('routeRequestDebounceMillis', routeRequestDebounceMillis);
+    addIfNonNull('localRouter', localRouter?.toMap());
+    addIfNonNull('hybridRouter', hybridRouter?.toMap());
+    addIfNonNull('poiCorridor', poiCorridor?.toMap());
+    addIfNonNull('milestones', milestones?.map((e) => e.toMap()).toList());
+    addIfNonNull('sessionResume', sessionResume?.toMap());
 
     return optionsMap;
   }
@@ -0,0 +1,39 @@
+import 'package:flutter_mapbox_navigation/src/models/corridor_poi.dart';
+
+/// Follows the points of interest of a local file that lie along the rest
+/// of the route and sends the ones coming up, nearest first, with the
+/// poi_corridor event as a [CorridorPoiUpdate]. Only honoured on Android.
+class PoiCorridorOptions {
+  /// Constructor
+  PoiCorridorOptions({
+    required this.file,
+    this.corridorWidth = 100,
+    this.lookahead = 5000,
+    this.maxUpcoming = 50,
+  });
+
+  /// Path of a GeoJSON FeatureCollection of points. The id, name and
+  /// category of every point are read from its properties.
+  String file;
+
+  /// Meters on each side of the route within which a point is along it
+  /// (default: 100)
+  double corridorWidth;
+
+  /// Meters ahead of the driver within which a point is coming up
+  /// (default: 5000)
+  double lookahead;
+
+  /// Most points coming up at once, the nearest ones (default: 50)
+  int maxUpcoming;
+
+  /// Convert to a map for platform channel communication
+  Map<String, dynamic> toMap() {
+    return {
+      'file': file,
+      'corridorWidth': corridorWidth,
+      'lookahead': lookahead,
+      'maxUpcoming': maxUpcoming,
+    };
+  }
+}
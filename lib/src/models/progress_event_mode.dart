@@ -0,0 +1,17 @@
+import 'package:flutter_mapbox_navigation/src/models/route_progress_event.dart';
+
+///How route progress is streamed from the native side.
+///Only honoured on Android; other platforms always send full progress.
+enum ProgressEventMode {
+  /// every progress update carries the current leg and all of its steps
+  full,
+
+  /// the current leg is only sent when the route or leg changes, updates in
+  /// between carry just the changed distances, durations and instruction.
+  /// Listeners still receive complete [RouteProgressEvent]s.
+  delta,
+
+  /// no progress is sent at all, for listeners that only need milestone
+  /// events and the other events
+  none,
+}
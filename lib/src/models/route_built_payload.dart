@@ -0,0 +1,10 @@
+///What the route_built event carries. Only honoured on Android; other
+///platforms always send the routes.
+enum RouteBuiltPayload {
+  /// the full DirectionsRoute json of every route
+  routes,
+
+  /// a RouteHandle per route. Legs, steps and geometry are fetched in
+  /// pages with `getRouteLegs`, `getRouteSteps` and `getRouteGeometry`.
+  handles,
+}
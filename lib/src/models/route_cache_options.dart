@@ -0,0 +1,44 @@
+/// Configures the cache of route responses on the native side, which answers
+/// a route request made before without asking the router again, e.g. for
+/// trips between the same places. Cached routes are the same routes the
+/// router returned, so they can start guidance. Only honoured on Android.
+class RouteCacheOptions {
+  /// Constructor
+  RouteCacheOptions({
+    this.enabled = true,
+    this.ttlSeconds = 600,
+    this.maxEntries = 32,
+    this.coordinatePrecision = 5,
+    this.persistToDisk = false,
+  });
+
+  /// Whether route responses are cached (default: true)
+  bool enabled;
+
+  /// Seconds a response is reused for (default: 600). Traffic and closures
+  /// change, so keep it short.
+  double ttlSeconds;
+
+  /// Number of responses kept, the least recently used is evicted first
+  /// (default: 32)
+  int maxEntries;
+
+  /// Decimals of the waypoint coordinates that must match for a request to
+  /// reuse a response (default: 5, about a meter)
+  int coordinatePrecision;
+
+  /// Keep the responses in the cache directory too, so they survive the
+  /// process (default: false)
+  bool persistToDisk;
+
+  /// Convert to a map for platform channel communication
+  Map<String, dynamic> toMap() {
+    return {
+      'enabled': enabled,
+      'ttlSeconds': ttlSeconds,
+      'maxEntries': maxEntries,
+      'coordinatePrecision': coordinatePrecision,
+      'persistToDisk': persistToDisk,
+    };
+  }
+}
@@ -0,0 +1,78 @@
+// ignore_for_file: public_member_api_docs
+
+import 'package:flutter_mapbox_navigation/src/models/navmode.dart';
+
+///The routes of one trip for several navigation modes, requested at once.
+class RouteComparison {
+  RouteComparison({
+    required this.profiles,
+    required this.elapsedMillis,
+  });
+
+  RouteComparison.fromJson(Map<String, dynamic> json)
+      : profiles = (json['profiles'] as List<dynamic>? ?? [])
+            .map(
+              (e) => RouteProfileSummary.fromJson(
+                (e as Map<dynamic, dynamic>).cast<String, dynamic>(),
+              ),
+            )
+            .toList(),
+        elapsedMillis = json['elapsedMillis'] as int? ?? 0;
+
+  /// one summary per requested mode, in the requested order
+  List<RouteProfileSummary> profiles;
+
+  /// time until the last route arrived or the timeout passed
+  int elapsedMillis;
+}
+
+///The best route of one navigation mode in a [RouteComparison].
+class RouteProfileSummary {
+  RouteProfileSummary({
+    required this.status,
+    this.mode,
+    this.routeId,
+    this.distance,
+    this.duration,
+    this.routerOrigin,
+    this.millis,
+  });
+
+  RouteProfileSummary.fromJson(Map<String, dynamic> json)
+      : mode = _mode(json['mode'] as String?),
+        status = json['status'] as String? ?? 'failed',
+        routeId = json['routeId'] as String?,
+        distance = (json['distance'] as num?)?.toDouble(),
+        duration = (json['duration'] as num?)?.toDouble(),
+        routerOrigin = json['routerOrigin'] as String?,
+        millis = json['millis'] as int?;
+
+  MapBoxNavigationMode? mode;
+
+  /// ok, noRoute, failed, cancelled, timeout or invalid
+  String status;
+
+  /// handle of the route, for getRoute, getRouteLegs and the other route
+  /// methods; null unless [status] is ok
+  String? routeId;
+
+  /// meters
+  double? distance;
+
+  /// seconds
+  double? duration;
+
+  String? routerOrigin;
+
+  /// time from the request to this answer
+  int? millis;
+
+  bool get isOk => status == 'ok';
+
+  static MapBoxNavigationMode? _mode(String? name) {
+    for (final mode in MapBoxNavigationMode.values) {
+      if (mode.toString().split('.').last == name) return mode;
+    }
+    return null;
+  }
+}
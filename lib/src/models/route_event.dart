@@ -23,6 +23,16 @@ class RouteEvent {
     final dataJson = json['data'];
     if (eventType == MapBoxEvent.progress_change) {
       data = RouteProgressEvent.fromJson(dataJson as Map<String, dynamic>);
+    } else if (eventType == MapBoxEvent.progress_delta) {
+      data = dataJson as Map<String, dynamic>;
+    } else if (eventType == MapBoxEvent.trip_metrics) {
+      data = TripMetrics.fromJson(dataJson as Map<String, dynamic>);
+    } else if (eventType == MapBoxEvent.poi_corridor) {
+      data = CorridorPoiUpdate.fromJson(dataJson as Map<String, dynamic>);
+    } else if (eventType == MapBoxEvent.milestone_event && dataJson is Map) {
+      data = MilestoneEvent.fromJson(dataJson.cast<String, dynamic>());
+    } else if (eventType == MapBoxEvent.route_built && _isHandles(dataJson)) {
+      data = _routeHandles(dataJson as List);
     } else if (eventType == MapBoxEvent.navigation_finished &&
         (dataJson as String).isNotEmpty) {
       data =
@@ -36,6 +46,74 @@ class RouteEvent {
     }
   }
 
+  /// Creates [RouteEvent] object from a binary event, a list holding the
+  /// index of the [MapBoxEvent] and its payload
+  RouteEvent.fromBinary(List<Object?> message) {
+    final index = message[0]! as int;
+    if (index < MapBoxEvent.values.length) {
+      eventType = MapBoxEvent.values[index];
+    }
+
+    final payload = message[1];
+    if (eventType == MapBoxEvent.progress_change) {
+      data = RouteProgressEvent.fromJson(
+        (payload! as Map).cast<String, dynamic>(),
+      );
+    } else if (eventType == MapBoxEvent.progress_delta) {
+      data = (payload! as Map).cast<String, dynamic>();
+    } else if (eventType == MapBoxEvent.trip_metrics) {
+      data = TripMetrics.fromJson((payload! as Map).cast<String, dynamic>());
+    } else if (eventType == MapBoxEvent.poi_corridor) {
+      data = CorridorPoiUpdate.fromJson(
+        (payload! as Map).cast<String, dynamic>(),
+      );
+    } else if (eventType == MapBoxEvent.milestone_event &&
+        payload is String &&
+        payload.isNotEmpty) {
+      data =
+          MilestoneEvent.fromJson(jsonDecode(payload) as Map<String, dynamic>);
+    } else if (eventType == MapBoxEvent.route_built && _isHandles(payload)) {
+      data = _routeHandles(payload! as List);
+    } else if (eventType == MapBoxEvent.navigation_finished &&
+        payload is String &&
+        payload.isNotEmpty) {
+      data =
+          MapBoxFeedback.fromJson(jsonDecode(payload) as Map<String, dynamic>);
+    } else if (eventType == MapBoxEvent.on_map_tap) {
+      data = WayPoint.fromJson((payload! as Map).cast<String, dynamic>());
+    } else {
+      data = jsonEncode(payload);
+    }
+  }
+
+  /// Creates [RouteEvent] from a message of the event channel, either a json
+  /// string or a binary event
+  factory RouteEvent.fromMessage(dynamic message) {
+    if (message is List) return RouteEvent.fromBinary(message);
+
+    final map = json.decode(message as String) as Map<String, dynamic>;
+    final progressEvent = RouteProgressEvent.fromJson(map);
+    if (progressEvent.isProgressEvent!) {
+      return RouteEvent(
+        eventType: MapBoxEvent.progress_change,
+        data: progressEvent,
+      );
+    }
+    return RouteEvent.fromJson(map);
+  }
+
+  /// route_built carries a list of route json strings, or of handles when
+  /// RouteBuiltPayload.handles is set
+  static bool _isHandles(dynamic data) {
+    return data is List && data.isNotEmpty && data.first is Map;
+  }
+
+  static List<RouteHandle> _routeHandles(List<dynamic> data) {
+    return data
+        .map((e) => RouteHandle.fromJson((e as Map).cast<String, dynamic>()))
+        .toList();
+  }
+
   /// Route event type
   MapBoxEvent? eventType;
 
@@ -0,0 +1,136 @@
+// ignore_for_file: public_member_api_docs
+
+import 'dart:typed_data';
+
+///A lightweight reference to a route built on the native side, sent in the
+///route_built event instead of the full route.
+class RouteHandle {
+  RouteHandle({
+    this.id,
+    this.index,
+    this.summary,
+    this.distance,
+    this.duration,
+    this.legCount,
+    this.bbox,
+  });
+
+  RouteHandle.fromJson(Map<String, dynamic> json) {
+    id = json['id'] as String?;
+    index = json['index'] as int?;
+    summary = json['summary'] as String?;
+    distance = (json['distance'] as num?)?.toDouble();
+    duration = (json['duration'] as num?)?.toDouble();
+    legCount = json['legCount'] as int?;
+    bbox = (json['bbox'] as List?)?.map((e) => (e as num).toDouble()).toList();
+  }
+
+  /// id to pass to the route methods
+  String? id;
+
+  /// 0 for the primary route, alternatives follow
+  int? index;
+  String? summary;
+  double? distance;
+  double? duration;
+  int? legCount;
+
+  /// west, south, east, north
+  List<double>? bbox;
+}
+
+///A page of the legs or steps of a route.
+class RoutePage<T> {
+  RoutePage({required this.total, required this.offset, required this.items});
+
+  RoutePage.fromJson(
+    Map<String, dynamic> json,
+    T Function(Map<String, dynamic> json) fromJson,
+  )   : total = json['total'] as int,
+        offset = json['offset'] as int,
+        items = (json['items'] as List)
+            .map((e) => fromJson((e as Map).cast<String, dynamic>()))
+            .toList();
+
+  /// number of items in the route
+  int total;
+
+  /// index of the first item of this page
+  int offset;
+  List<T> items;
+
+  /// whether more items follow this page
+  bool get hasMore => offset + items.length < total;
+}
+
+///A page of the points of a route geometry, as an encoded polyline.
+class RouteGeometryPage {
+  RouteGeometryPage({
+    required this.total,
+    required this.offset,
+    required this.geometry,
+    required this.precision,
+  });
+
+  RouteGeometryPage.fromJson(Map<String, dynamic> json)
+      : total = json['total'] as int,
+        offset = json['offset'] as int,
+        geometry = json['geometry'] as String,
+        precision = json['precision'] as int;
+
+  /// number of points in the route geometry
+  int total;
+
+  /// index of the first point of this page
+  int offset;
+
+  /// polyline of the points of this page
+  String geometry;
+
+  /// polyline precision, 5 or 6
+  int precision;
+}
+
+///How a simplified route geometry is transferred.
+enum RouteGeometryFormat {
+  ///a polyline string with precision 6
+  polyline6,
+
+  ///packed longitude and latitude pairs, the cheapest to draw from
+  float32,
+}
+
+///A route geometry simplified for a zoom level.
+class SimplifiedRouteGeometry {
+  SimplifiedRouteGeometry({
+    required this.zoom,
+    required this.total,
+    required this.count,
+    this.polyline,
+    this.coordinates,
+  });
+
+  SimplifiedRouteGeometry.fromJson(Map<String, dynamic> json)
+      : zoom = (json['zoom'] as num).toDouble(),
+        total = json['total'] as int,
+        count = json['count'] as int,
+        polyline =
+            json['geometry'] is String ? json['geometry'] as String : null,
+        coordinates = json['geometry'] is Float32List
+            ? json['geometry'] as Float32List
+            : null;
+
+  double zoom;
+
+  /// number of points in the full route geometry
+  int total;
+
+  /// number of points kept for [zoom]
+  int count;
+
+  /// polyline with precision 6, for [RouteGeometryFormat.polyline6]
+  String? polyline;
+
+  /// longitude, latitude, longitude, ... for [RouteGeometryFormat.float32]
+  Float32List? coordinates;
+}
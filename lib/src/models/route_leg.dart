@@ -40,7 +40,9 @@ class RouteLeg {
     steps = (json['steps'] as List?)
         ?.map(
           (e) =>
-              e == null ? null : RouteStep.fromJson(e as Map<String, dynamic>),
+              e == null
+                  ? null
+                  : RouteStep.fromJson((e as Map).cast<String, dynamic>()),
         )
         .cast<RouteStep>()
         .toList();
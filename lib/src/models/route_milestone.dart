@@ -0,0 +1,86 @@
+// ignore_for_file: public_member_api_docs
+
+///What a [RouteMilestone] watches.
+enum MilestoneType {
+  /// meters traveled since the start of the trip, reroutes included
+  distanceTraveled,
+
+  /// meters left to the final destination
+  distanceRemaining,
+
+  /// seconds left to the final destination
+  durationRemaining,
+
+  /// index of the current leg
+  legIndex,
+
+  /// index of the current step within its leg
+  stepIndex,
+
+  /// fraction of the current leg traveled, from 0 to 1
+  legFraction,
+}
+
+///A threshold on the route progress that sends a milestone_event when it is
+///crossed. Milestones fire once, as the trip moves past them; the
+///[MilestoneType.stepIndex] and [MilestoneType.legFraction] ones fire once
+///per leg. Only honoured on Android.
+class RouteMilestone {
+  RouteMilestone({
+    required this.identifier,
+    required this.type,
+    required this.value,
+  });
+
+  /// sent back with the milestone_event
+  int identifier;
+
+  MilestoneType type;
+
+  /// meters, seconds, an index or a fraction, depending on [type]
+  double value;
+
+  Map<String, dynamic> toMap() {
+    return {
+      'identifier': identifier,
+      'type': type.toString().split('.').last,
+      'value': value,
+    };
+  }
+}
+
+///The data of a milestone_event: the [RouteMilestone] crossed and the
+///progress at that moment.
+class MilestoneEvent {
+  MilestoneEvent.fromJson(Map<String, dynamic> json)
+      : identifier = _int(json['identifier']),
+        type = _type(json['type'] as String?),
+        value = (json['value'] as num?)?.toDouble(),
+        distanceTraveled = (json['distanceTraveled'] as num?)?.toDouble(),
+        distanceRemaining = (json['distanceRemaining'] as num?)?.toDouble(),
+        durationRemaining = (json['durationRemaining'] as num?)?.toDouble(),
+        legIndex = _int(json['legIndex']),
+        stepIndex = _int(json['stepIndex']);
+
+  int? identifier;
+  MilestoneType? type;
+  double? value;
+  double? distanceTraveled;
+  double? distanceRemaining;
+  double? durationRemaining;
+  int? legIndex;
+  int? stepIndex;
+
+  // the identifier and indexes are sent as strings
+  static int? _int(dynamic value) {
+    if (value is int) return value;
+    return value is String ? int.tryParse(value) : null;
+  }
+
+  static MilestoneType? _type(String? name) {
+    for (final type in MilestoneType.values) {
+      if (type.toString().split('.').last == name) return type;
+    }
+    return null;
+  }
+}
@@ -48,14 +48,18 @@ class RouteProgressEvent {
     currentStepInstruction = json['currentStepInstruction'] as String?;
     currentLeg = json['currentLeg'] == null
         ? null
-        : RouteLeg.fromJson(json['currentLeg'] as Map<String, dynamic>);
+        : RouteLeg.fromJson(
+            (json['currentLeg'] as Map).cast<String, dynamic>(),
+          );
     priorLeg = json['priorLeg'] == null
         ? null
-        : RouteLeg.fromJson(json['priorLeg'] as Map<String, dynamic>);
+        : RouteLeg.fromJson((json['priorLeg'] as Map).cast<String, dynamic>());
     remainingLegs = (json['remainingLegs'] as List?)
         ?.map(
           (e) =>
-              e == null ? null : RouteLeg.fromJson(e as Map<String, dynamic>),
+              e == null
+                  ? null
+                  : RouteLeg.fromJson((e as Map).cast<String, dynamic>()),
         )
         .cast<RouteLeg>()
         .toList();
@@ -63,6 +67,36 @@ class RouteProgressEvent {
     stepIndex = json['stepIndex'] as int?;
   }
 
+  /// Returns a copy of this progress with the fields present in a
+  /// progress_delta event replaced, a null clearing the field. The legs are
+  /// shared, not copied.
+  RouteProgressEvent applyDelta(Map<String, dynamic> delta) {
+    double? value(String key, double? current) {
+      if (!delta.containsKey(key)) return current;
+      return (delta[key] as num?)?.toDouble();
+    }
+
+    return RouteProgressEvent(
+      arrived: arrived,
+      distance: value('distance', distance),
+      duration: value('duration', duration),
+      distanceTraveled: value('distanceTraveled', distanceTraveled),
+      currentLegDistanceTraveled:
+          value('currentLegDistanceTraveled', currentLegDistanceTraveled),
+      currentLegDistanceRemaining:
+          value('currentLegDistanceRemaining', currentLegDistanceRemaining),
+      currentStepInstruction: delta.containsKey('currentStepInstruction')
+          ? delta['currentStepInstruction'] as String?
+          : currentStepInstruction,
+      currentLeg: currentLeg,
+      priorLeg: priorLeg,
+      remainingLegs: remainingLegs,
+      legIndex: legIndex,
+      stepIndex: stepIndex,
+      isProgressEvent: isProgressEvent,
+    );
+  }
+
   bool? arrived;
   double? distance;
   double? duration;
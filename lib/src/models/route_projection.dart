@@ -0,0 +1,75 @@
+// ignore_for_file: public_member_api_docs
+
+import 'dart:typed_data';
+
+import 'package:flutter_mapbox_navigation/src/models/way_point.dart';
+
+///Positions projected onto the active route, such as the members of a
+///convoy, with how far ahead of or behind the driver each of them is.
+///
+///The arrays hold one value per position, in the order they were given,
+///followed by the markers listed in [markerIds]. Positions too far from the
+///route to be projected have NaN.
+class RouteProjection {
+  RouteProjection.fromJson(Map<String, dynamic> json)
+      : routeId = json['routeId'] as String?,
+        length = (json['length'] as num?)?.toDouble() ?? 0,
+        driverAlong = (json['driverAlong'] as num?)?.toDouble() ?? 0,
+        along = _doubles(json['along']),
+        ahead = _doubles(json['ahead']),
+        crossTrack = _doubles(json['crossTrack']),
+        nearest = _doubles(json['nearest']),
+        markerIds = (json['markerIds'] as List<dynamic>? ?? [])
+            .map((e) => e as String)
+            .toList();
+
+  /// handle of the projected route
+  String? routeId;
+
+  /// meters, along the line of the route
+  double length;
+
+  /// meters from the start of the route to the driver
+  double driverAlong;
+
+  /// meters from the start of the route
+  Float64List along;
+
+  /// meters in front of the driver, negative behind
+  Float64List ahead;
+
+  /// meters from the route, positive to the right of the direction of travel
+  Float64List crossTrack;
+
+  /// longitude and latitude pairs of the nearest points of the route
+  Float64List nearest;
+
+  /// ids of the markers projected after the given positions
+  List<String> markerIds;
+
+  /// number of projected positions, markers included
+  int get count => along.length;
+
+  bool isProjected(int index) => !along[index].isNaN;
+
+  /// The longitude and latitude pairs of [positions], as sent to the
+  /// platform.
+  static Float64List pack(List<WayPoint> positions) {
+    final coordinates = Float64List(positions.length * 2);
+    for (var i = 0; i < positions.length; i++) {
+      coordinates[i * 2] = positions[i].longitude ?? double.nan;
+      coordinates[i * 2 + 1] = positions[i].latitude ?? double.nan;
+    }
+    return coordinates;
+  }
+
+  static Float64List _doubles(dynamic value) {
+    if (value is Float64List) return value;
+    if (value is List) {
+      return Float64List.fromList(
+        value.map((e) => (e as num?)?.toDouble() ?? double.nan).toList(),
+      );
+    }
+    return Float64List(0);
+  }
+}
@@ -0,0 +1,33 @@
+/// Checkpoints the full screen navigation session so that, when Android
+/// kills the app mid-trip, the recreated navigation screen resumes guidance
+/// on the same route and leg without requesting the route again. The route
+/// is saved once per route and the progress at most every
+/// [checkpointIntervalMillis]. Only honoured on Android.
+class SessionResumeOptions {
+  /// Constructor
+  SessionResumeOptions({
+    this.enabled = true,
+    this.checkpointIntervalMillis = 5000,
+    this.maxAgeSeconds = 1800,
+  });
+
+  /// Whether the session is checkpointed (default: true)
+  bool enabled;
+
+  /// Minimum milliseconds between two checkpoints of the progress
+  /// (default: 5000)
+  int checkpointIntervalMillis;
+
+  /// Sessions checkpointed longer ago than this are not resumed, and the
+  /// route is requested again (default: 1800)
+  int maxAgeSeconds;
+
+  /// Convert to a map for platform channel communication
+  Map<String, dynamic> toMap() {
+    return {
+      'enabled': enabled,
+      'checkpointIntervalMillis': checkpointIntervalMillis,
+      'maxAgeSeconds': maxAgeSeconds,
+    };
+  }
+}
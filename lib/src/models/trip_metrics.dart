@@ -0,0 +1,91 @@
+// ignore_for_file: public_member_api_docs
+
+///Trip statistics aggregated on the native side and sent as a trip_metrics
+///event at the rate set by [TripMetricsOptions]. Times are in seconds,
+///distances in meters and speeds in meters per second.
+class TripMetrics {
+  TripMetrics({
+    this.elapsedTime,
+    this.movingTime,
+    this.stoppedTime,
+    this.averageSpeed,
+    this.distanceTraveled,
+    this.distanceRemaining,
+    this.fractionTraveled,
+    this.eta,
+    this.etaDrift,
+    this.etaStdDev,
+    this.legIndex,
+    this.legSplitTimes,
+    this.currentLegTime,
+  });
+
+  TripMetrics.fromJson(Map<String, dynamic> json) {
+    elapsedTime = (json['elapsedTime'] as num?)?.toDouble();
+    movingTime = (json['movingTime'] as num?)?.toDouble();
+    stoppedTime = (json['stoppedTime'] as num?)?.toDouble();
+    averageSpeed = (json['averageSpeed'] as num?)?.toDouble();
+    distanceTraveled = (json['distanceTraveled'] as num?)?.toDouble();
+    distanceRemaining = (json['distanceRemaining'] as num?)?.toDouble();
+    fractionTraveled = (json['fractionTraveled'] as num?)?.toDouble();
+    eta = json['eta'] == null
+        ? null
+        : DateTime.fromMillisecondsSinceEpoch((json['eta'] as num).toInt());
+    etaDrift = (json['etaDrift'] as num?)?.toDouble();
+    etaStdDev = (json['etaStdDev'] as num?)?.toDouble();
+    legIndex = json['legIndex'] as int?;
+    legSplitTimes = (json['legSplitTimes'] as List?)
+        ?.map((e) => (e as num).toDouble())
+        .toList();
+    currentLegTime = (json['currentLegTime'] as num?)?.toDouble();
+  }
+
+  double? elapsedTime;
+  double? movingTime;
+  double? stoppedTime;
+
+  /// exponentially weighted moving average of the speed
+  double? averageSpeed;
+  double? distanceTraveled;
+  double? distanceRemaining;
+  double? fractionTraveled;
+
+  /// latest predicted arrival time
+  DateTime? eta;
+
+  /// how far the predicted arrival moved since the trip started
+  double? etaDrift;
+
+  /// standard deviation of every arrival prediction of the trip
+  double? etaStdDev;
+  int? legIndex;
+
+  /// time spent on each completed leg
+  List<double>? legSplitTimes;
+  double? currentLegTime;
+}
+
+///Configures the trip metrics aggregated by the native side.
+///Only honoured on Android.
+class TripMetricsOptions {
+  /// Constructor
+  TripMetricsOptions({
+    this.interval = const Duration(seconds: 5),
+    this.speedSmoothing = 0.2,
+  });
+
+  /// How often a trip_metrics event is sent (default: 5 seconds)
+  Duration interval;
+
+  /// Weight of the newest speed in the moving average, between 0 and 1
+  /// (default: 0.2)
+  double speedSmoothing;
+
+  /// Convert to a map for platform channel communication
+  Map<String, dynamic> toMap() {
+    return {
+      'intervalMillis': interval.inMilliseconds,
+      'speedSmoothing': speedSmoothing,
+    };
+  }
+}
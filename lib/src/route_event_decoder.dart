@@ -0,0 +1,42 @@
+import 'package:flutter_mapbox_navigation/src/models/models.dart';
+
+/// Turns event channel messages into [RouteEvent]s, merging progress_delta
+/// messages into the last full progress so listeners always receive a
+/// complete [RouteProgressEvent].
+class RouteEventDecoder {
+  RouteProgressEvent? _lastProgress;
+
+  /// Decodes an event channel message, which is either a single event or a
+  /// batch of the events of one frame
+  Iterable<RouteEvent> decodeAll(dynamic message) {
+    if (isBatch(message)) {
+      return (message as List).map(decode);
+    }
+    return [decode(message)];
+  }
+
+  /// A batch is a list of events. Binary events are lists too, but start
+  /// with the index of their [MapBoxEvent], while the events of a batch are
+  /// json strings or binary event lists.
+  static bool isBatch(dynamic message) {
+    return message is List && message.isNotEmpty && message.first is! int;
+  }
+
+  /// Decodes a json or binary event channel message
+  RouteEvent decode(dynamic message) {
+    final event = RouteEvent.fromMessage(message);
+    if (event.eventType == MapBoxEvent.progress_change) {
+      _lastProgress = event.data as RouteProgressEvent;
+    } else if (event.eventType == MapBoxEvent.progress_delta) {
+      final delta = event.data as Map<String, dynamic>;
+      final progress =
+          (_lastProgress ?? RouteProgressEvent()).applyDelta(delta);
+      _lastProgress = progress;
+      return RouteEvent(
+        eventType: MapBoxEvent.progress_change,
+        data: progress,
+      );
+    }
+    return event;
+  }
+}
@@ -0,0 +1,199 @@
+import 'package:flutter_mapbox_navigation/flutter_mapbox_navigation.dart';
+import 'package:flutter_mapbox_navigation/src/route_event_decoder.dart';
+import 'package:flutter_test/flutter_test.dart';
+
+void main() {
+  test('json and binary progress events decode the same', () {
+    const jsonEvent = '{"eventType": "progress_change", "data": '
+        '{"distance": 120.5, "duration": 30.0, "legIndex": 0, '
+        '"currentStepInstruction": "Turn left", "currentLeg": '
+        '{"distance": 500.0, "steps": [{"instructions": "", '
+        '"distance": 80.0, "expectedTravelTime": 12.0}]}}}';
+    final binaryEvent = <Object?>[
+      MapBoxEvent.progress_change.index,
+      <Object?, Object?>{
+        'distance': 120.5,
+        'duration': 30.0,
+        'legIndex': 0,
+        'currentStepInstruction': 'Turn left',
+        'currentLeg': <Object?, Object?>{
+          'distance': 500.0,
+          'steps': <Object?>[
+            <Object?, Object?>{
+              'instructions': '',
+              'distance': 80.0,
+              'expectedTravelTime': 12.0,
+            },
+          ],
+        },
+      },
+    ];
+
+    final fromJson = RouteEvent.fromMessage(jsonEvent);
+    final fromBinary = RouteEvent.fromMessage(binaryEvent);
+    final jsonProgress = fromJson.data as RouteProgressEvent;
+    final binaryProgress = fromBinary.data as RouteProgressEvent;
+
+    expect(fromBinary.eventType, fromJson.eventType);
+    expect(binaryProgress.distance, jsonProgress.distance);
+    expect(binaryProgress.legIndex, jsonProgress.legIndex);
+    expect(
+      binaryProgress.currentStepInstruction,
+      jsonProgress.currentStepInstruction,
+    );
+    expect(
+      binaryProgress.currentLeg!.steps!.single.distance,
+      jsonProgress.currentLeg!.steps!.single.distance,
+    );
+  });
+
+  test('binary text events keep the json encoded data', () {
+    final event = RouteEvent.fromMessage(<Object?>[
+      MapBoxEvent.banner_instruction.index,
+      'Turn right',
+    ]);
+
+    expect(event.eventType, MapBoxEvent.banner_instruction);
+    expect(event.data, '"Turn right"');
+  });
+
+  test('progress deltas are merged into the last full progress', () {
+    final decoder = RouteEventDecoder()
+      ..decode(
+        '{"eventType": "progress_change", "data": {"distance": 500.0, '
+        '"duration": 60.0, "legIndex": 1, "currentLeg": {"distance": 900.0}}}',
+      );
+
+    final event = decoder.decode(<Object?>[
+      MapBoxEvent.progress_delta.index,
+      <Object?, Object?>{'distance': 450.0},
+    ]);
+    final progress = event.data as RouteProgressEvent;
+
+    expect(event.eventType, MapBoxEvent.progress_change);
+    expect(progress.distance, 450.0);
+    expect(progress.duration, 60.0);
+    expect(progress.legIndex, 1);
+    expect(progress.currentLeg!.distance, 900.0);
+  });
+
+  test('json progress deltas are merged like binary ones', () {
+    final decoder = RouteEventDecoder()
+      ..decode(
+        '{"eventType": "progress_change", "data": {"distance": 500.0, '
+        '"duration": 60.0, "legIndex": 1, '
+        '"currentStepInstruction": "Turn left", '
+        '"currentLeg": {"distance": 900.0}}}',
+      );
+
+    final event = decoder.decode(
+      '{"eventType": "progress_delta", "data": '
+      '{"distance": 450.0, "currentStepInstruction": null}}',
+    );
+    final progress = event.data as RouteProgressEvent;
+
+    expect(event.eventType, MapBoxEvent.progress_change);
+    expect(progress.distance, 450.0);
+    expect(progress.duration, 60.0);
+    expect(progress.currentStepInstruction, isNull);
+    expect(progress.legIndex, 1);
+    expect(progress.currentLeg!.distance, 900.0);
+  });
+
+  test('frame batches decode to their events in order', () {
+    final decoder = RouteEventDecoder();
+    final events = decoder.decodeAll(<Object?>[
+      '{"eventType": "reroute_along", "data": ""}',
+      <Object?>[MapBoxEvent.banner_instruction.index, 'Turn right'],
+      '{"eventType": "speech_announcement", "data": "Turn right"}',
+    ]).toList();
+
+    expect(events.map((e) => e.eventType), [
+      MapBoxEvent.reroute_along,
+      MapBoxEvent.banner_instruction,
+      MapBoxEvent.speech_announcement,
+    ]);
+    final single =
+        decoder.decodeAll(<Object?>[MapBoxEvent.on_arrival.index, '']);
+    expect(single.single.eventType, MapBoxEvent.on_arrival);
+  });
+
+  test('trip metrics decode from binary events', () {
+    final event = RouteEvent.fromMessage(<Object?>[
+      MapBoxEvent.trip_metrics.index,
+      <Object?, Object?>{
+        'averageSpeed': 12.5,
+        'etaStdDev': 4.0,
+        'legSplitTimes': <Object?>[310.0, 95.5],
+        'eta': 1700000000000,
+      },
+    ]);
+    final metrics = event.data as TripMetrics;
+
+    expect(event.eventType, MapBoxEvent.trip_metrics);
+    expect(metrics.averageSpeed, 12.5);
+    expect(metrics.etaStdDev, 4.0);
+    expect(metrics.legSplitTimes, [310.0, 95.5]);
+    expect(metrics.eta!.millisecondsSinceEpoch, 1700000000000);
+  });
+
+  test('route_built handles decode to RouteHandles', () {
+    final event = RouteEvent.fromMessage(
+      '{"eventType": "route_built", "data": [{"id": "abc#0", "index": 0, '
+      '"summary": "A1 / B2", "distance": 1200.0, "duration": 90.0, '
+      '"legCount": 2, "bbox": [13.3, 52.4, 13.5, 52.6]}]}',
+    );
+    final handle = (event.data as List<RouteHandle>).single;
+
+    expect(event.eventType, MapBoxEvent.route_built);
+    expect(handle.id, 'abc#0');
+    expect(handle.legCount, 2);
+    expect(handle.bbox, [13.3, 52.4, 13.5, 52.6]);
+  });
+
+  test('poi corridor updates decode from binary events', () {
+    final event = RouteEvent.fromMessage(<Object?>[
+      MapBoxEvent.poi_corridor.index,
+      <Object?, Object?>{
+        'routeId': 'abc#0',
+        'driverAlong': 1200.0,
+        'reset': true,
+        'entered': <Object?>[
+          <Object?, Object?>{
+            'id': 'fuel-1',
+            'name': 'Fuel',
+            'category': 'fuel',
+            'latitude': 52.5,
+            'longitude': 13.4,
+            'along': 1850.0,
+            'crossTrack': -35.5,
+          },
+        ],
+        'passed': <Object?>['cafe-7'],
+      },
+    ]);
+    final update = event.data as CorridorPoiUpdate;
+
+    expect(event.eventType, MapBoxEvent.poi_corridor);
+    expect(update.reset, isTrue);
+    expect(update.entered.single.id, 'fuel-1');
+    expect(update.entered.single.ahead(update.driverAlong), 650.0);
+    expect(update.passed, ['cafe-7']);
+  });
+
+  test('milestone events decode from json events', () {
+    final event = RouteEvent.fromMessage(
+      '{"eventType": "milestone_event", "data": {"identifier": "7", '
+      '"distanceTraveled": 5000.0, "legIndex": "0", "stepIndex": "3", '
+      '"type": "distanceTraveled", "value": 5000.0, '
+      '"distanceRemaining": 1200.0, "durationRemaining": 95.0}}',
+    );
+    final milestone = event.data as MilestoneEvent;
+
+    expect(event.eventType, MapBoxEvent.milestone_event);
+    expect(milestone.identifier, 7);
+    expect(milestone.type, MilestoneType.distanceTraveled);
+    expect(milestone.stepIndex, 3);
+    expect(milestone.durationRemaining, 95.0);
+  });
+}